@@ -0,0 +1,184 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.reply.challenge.training;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The JDK Flight Recorder events of a run. The Flight Recorder API needs
+ * Java 11, so this class is compiled separately from the rest of the
+ * solution, and only when building with JDK 11 or later. {@link RunMetrics}
+ * loads it by name if the API is available. The events are only created when
+ * enabled in the recording, so they cost nothing otherwise.
+ * 
+ * @author Donato Rimenti
+ *
+ */
+final class FlightRecorderEvents implements RunEvents {
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * co.aurasphere.reply.challenge.training.RunEvents#beginPhase(java.lang.
+	 * String)
+	 */
+	@Override
+	public Object beginPhase(String phase) {
+		PhaseEvent event = new PhaseEvent();
+		if (!event.isEnabled()) {
+			return null;
+		}
+		event.phase = phase;
+		event.begin();
+		return event;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * co.aurasphere.reply.challenge.training.RunEvents#endPhase(java.lang.
+	 * Object, long)
+	 */
+	@Override
+	public void endPhase(Object event, long heapUsed) {
+		PhaseEvent phaseEvent = (PhaseEvent) event;
+		phaseEvent.end();
+		phaseEvent.heapUsed = heapUsed;
+		phaseEvent.commit();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * co.aurasphere.reply.challenge.training.RunEvents#search(java.lang.String,
+	 * co.aurasphere.reply.challenge.training.SearchStatistics)
+	 */
+	@Override
+	public void search(String solver, SearchStatistics statistics) {
+		SearchEvent event = new SearchEvent();
+		if (!event.isEnabled()) {
+			return;
+		}
+		event.solver = solver;
+		event.expanded = statistics.getExpanded();
+		event.generated = statistics.getGenerated();
+		event.improved = statistics.getImproved();
+		event.reopened = statistics.getReopened();
+		event.obstacleTests = statistics.getObstacleTests();
+		event.openListPeak = statistics.getOpenListPeak();
+		event.commit();
+	}
+
+	/**
+	 * A phase of a run.
+	 * 
+	 * @author Donato Rimenti
+	 *
+	 */
+	@Name("co.aurasphere.reply.Phase")
+	@Label("Phase")
+	@Category("Reply Challenge")
+	@Description("A phase of the solution of a problem")
+	static class PhaseEvent extends Event {
+
+		/**
+		 * The name of the phase.
+		 */
+		@Label("Phase")
+		String phase;
+
+		/**
+		 * The heap used at the end of the phase.
+		 */
+		@Label("Heap Used")
+		@DataAmount
+		long heapUsed;
+
+	}
+
+	/**
+	 * The counters of a search.
+	 * 
+	 * @author Donato Rimenti
+	 *
+	 */
+	@Name("co.aurasphere.reply.Search")
+	@Label("Search")
+	@Category("Reply Challenge")
+	@Description("The work done by the search of a path")
+	static class SearchEvent extends Event {
+
+		/**
+		 * The algorithm of the search.
+		 */
+		@Label("Solver")
+		String solver;
+
+		/**
+		 * See {@link SearchStatistics#getExpanded()}.
+		 */
+		@Label("Nodes Expanded")
+		long expanded;
+
+		/**
+		 * See {@link SearchStatistics#getGenerated()}.
+		 */
+		@Label("Nodes Generated")
+		long generated;
+
+		/**
+		 * See {@link SearchStatistics#getImproved()}.
+		 */
+		@Label("Paths Improved")
+		long improved;
+
+		/**
+		 * See {@link SearchStatistics#getReopened()}.
+		 */
+		@Label("Nodes Reopened")
+		long reopened;
+
+		/**
+		 * See {@link SearchStatistics#getObstacleTests()}.
+		 */
+		@Label("Obstacle Tests")
+		long obstacleTests;
+
+		/**
+		 * See {@link SearchStatistics#getOpenListPeak()}.
+		 */
+		@Label("Open List Peak")
+		int openListPeak;
+
+	}
+
+}
@@ -0,0 +1,140 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.reply.challenge.training;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import co.aurasphere.reply.challenge.training.benchmark.Fixtures;
+import co.aurasphere.reply.challenge.training.model.Node;
+import co.aurasphere.reply.challenge.training.model.Scene;
+
+/**
+ * Benchmarks of the A* search, both of a single expansion and of the whole
+ * search. The expansions are made by {@link AStarAlgorithm} itself, which is
+ * why this benchmark shares its package. The expansions are measured in
+ * batches, since a single one takes too little to be timed alone. The search
+ * restarts from the starting point when it ends or grows too large, so the
+ * expansions always come from a real search. Restarts are rare enough to
+ * have no weight on the average.
+ * 
+ * @author Donato Rimenti
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class SearchBenchmark {
+
+	/**
+	 * Number of expansions after which the search restarts.
+	 */
+	private static final int MAX_EXPANSIONS = 1 << 20;
+
+	/**
+	 * Number of expansions of each call of {@link #expansion()}.
+	 */
+	private static final int BATCH_SIZE = 1024;
+
+	/**
+	 * The input file of the search. The second input has no solution.
+	 */
+	@Param({ "input_1.txt", "input_3.txt", "input_4.txt" })
+	public String input;
+
+	/**
+	 * The scene of the input.
+	 */
+	private Scene scene;
+
+	/**
+	 * The algorithm of the expansions.
+	 */
+	private final AStarAlgorithm expansions = new AStarAlgorithm();
+
+	/**
+	 * The algorithm of the whole search.
+	 */
+	private final PathFinder solver = new AStarAlgorithm();
+
+	/**
+	 * Loads the input.
+	 * 
+	 * @throws Exception
+	 *             if the input can't be loaded
+	 */
+	@Setup
+	public void setUp() throws Exception {
+		scene = Fixtures.scene(input);
+		expansions.start(scene, scene.getStartingPoint(), scene.getEndingPoint());
+	}
+
+	/**
+	 * Expands a batch of nodes, restarting the search if it's over or too
+	 * large. The time reported is the one of a single expansion.
+	 * 
+	 * @return the goal node if it has been reached by the last expansion,
+	 *         null otherwise
+	 */
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public Node expansion() {
+		Node path = null;
+		for (int i = 0; i < BATCH_SIZE; i++) {
+			if (path != null || !expansions.hasUnexplored()
+					|| expansions.getStatistics().getExpanded() >= MAX_EXPANSIONS) {
+				expansions.start(scene, scene.getStartingPoint(), scene.getEndingPoint());
+			}
+			path = expansions.expand();
+		}
+		return path;
+	}
+
+	/**
+	 * Solves the input, with the same checks of the main solution.
+	 * 
+	 * @return the last node of the path
+	 */
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public Node search() {
+		return Solution.solve(scene, solver);
+	}
+
+}
@@ -0,0 +1,170 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.reply.challenge.training.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+import co.aurasphere.reply.challenge.training.AStarAlgorithm;
+import co.aurasphere.reply.challenge.training.Solution;
+import co.aurasphere.reply.challenge.training.model.Node;
+import co.aurasphere.reply.challenge.training.model.ObstacleIndex;
+import co.aurasphere.reply.challenge.training.model.Scene;
+
+/**
+ * Data used by the benchmarks, derived from the input files bundled with the
+ * solution. The scenes are loaded once and shared by all the benchmarks of
+ * the same JVM, and the random samples use fixed seeds, so that every run
+ * measures the same work.
+ * 
+ * @author Donato Rimenti
+ *
+ */
+public class Fixtures {
+
+	/**
+	 * Seed of the random samples.
+	 */
+	private static final long SEED = 2018;
+
+	/**
+	 * The scenes already loaded, by input file.
+	 */
+	private static final Map<String, Scene> SCENES = new ConcurrentHashMap<String, Scene>();
+
+	/**
+	 * Private constructor for utility class.
+	 */
+	private Fixtures() {
+	}
+
+	/**
+	 * Loads an input file, or returns it if already loaded.
+	 * 
+	 * @param input
+	 *            the resource name of the input file
+	 * @return the scene of the input file
+	 * @throws Exception
+	 *             if the file can't be loaded
+	 */
+	public static Scene scene(String input) throws Exception {
+		Scene scene = SCENES.get(input);
+		if (scene == null) {
+			scene = Solution.parseFile(input);
+			SCENES.put(input, scene);
+		}
+		return scene;
+	}
+
+	/**
+	 * Samples random points within the bounding box of the obstacles, plus
+	 * a border of the given size.
+	 * 
+	 * @param scene
+	 *            the scene of the points
+	 * @param count
+	 *            the number of points
+	 * @param border
+	 *            the size of the border around the obstacles
+	 * @return the coordinates of the points, interleaved (x0, y0, x1, y1...)
+	 */
+	public static int[] points(Scene scene, int count, int border) {
+		ObstacleIndex index = scene.getObstacleIndex();
+		int minX = index.getMinX() - border;
+		int minY = index.getMinY() - border;
+		int width = index.getMaxX() + border - minX + 1;
+		int height = index.getMaxY() + border - minY + 1;
+		Random random = new Random(SEED);
+		int[] points = new int[count * 2];
+		for (int i = 0; i < count; i++) {
+			points[i * 2] = minX + random.nextInt(width);
+			points[i * 2 + 1] = minY + random.nextInt(height);
+		}
+		return points;
+	}
+
+	/**
+	 * Samples random segments within the bounding box of the obstacles. The
+	 * first point of each segment is random and the second one is at most
+	 * the given distance from it on each axis.
+	 * 
+	 * @param scene
+	 *            the scene of the segments
+	 * @param count
+	 *            the number of segments
+	 * @param maxLength
+	 *            the maximum distance between the ends of a segment on each
+	 *            axis
+	 * @return the coordinates of the ends of the segments, interleaved (x0,
+	 *         y0, x1, y1...)
+	 */
+	public static int[] segments(Scene scene, int count, int maxLength) {
+		int[] starts = points(scene, count, 0);
+		Random random = new Random(SEED + 1);
+		int[] segments = new int[count * 4];
+		for (int i = 0; i < count; i++) {
+			segments[i * 4] = starts[i * 2];
+			segments[i * 4 + 1] = starts[i * 2 + 1];
+			segments[i * 4 + 2] = starts[i * 2] + random.nextInt(maxLength * 2 + 1) - maxLength;
+			segments[i * 4 + 3] = starts[i * 2 + 1] + random.nextInt(maxLength * 2 + 1) - maxLength;
+		}
+		return segments;
+	}
+
+	/**
+	 * Solves a scene with {@link AStarAlgorithm} and returns the path made of
+	 * single steps, as it is before any optimization.
+	 * 
+	 * @param scene
+	 *            the scene to solve
+	 * @return the nodes of the path, one for each step
+	 * @throws IllegalArgumentException
+	 *             if the scene has no solution
+	 */
+	public static List<Node> rawPath(Scene scene) {
+		Node target = Solution.solve(scene, new AStarAlgorithm());
+		if (target == null) {
+			throw new IllegalArgumentException("The scene has no solution");
+		}
+
+		// The nodes are linked by straight lines, which are split in steps.
+		List<Node> path = new ArrayList<Node>();
+		path.add(target);
+		for (Node current = target; current.getParent() != null; current = current.getParent()) {
+			Node parent = current.getParent();
+			int steps = Math.max(Math.abs(current.x - parent.x), Math.abs(current.y - parent.y));
+			for (int i = steps - 1; i >= 0; i--) {
+				path.add(new Node(parent.x + Integer.signum(current.x - parent.x) * i,
+						parent.y + Integer.signum(current.y - parent.y) * i));
+			}
+		}
+		Collections.reverse(path);
+		return path;
+	}
+
+}
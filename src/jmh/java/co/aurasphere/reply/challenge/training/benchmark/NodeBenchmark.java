@@ -0,0 +1,166 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.reply.challenge.training.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import co.aurasphere.reply.challenge.training.model.Node;
+import co.aurasphere.reply.challenge.training.model.NodePool;
+import co.aurasphere.reply.challenge.training.model.Scene;
+
+/**
+ * Benchmarks of the generation of the neighbours of a node, which is done
+ * for each node expanded by the searches. The searches generate them in
+ * place from the direction offsets of the {@link NodePool}, while
+ * {@link Node#getAdjacentNodes(Scene)} creates a node for each of them. Each
+ * call uses the next of a fixed set of random nodes, close to the obstacles.
+ * 
+ * @author Donato Rimenti
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NodeBenchmark {
+
+	/**
+	 * Number of sampled nodes, a power of 2.
+	 */
+	private static final int SAMPLES = 4096;
+
+	/**
+	 * The input file of the obstacles.
+	 */
+	@Param({ "input_1.txt", "input_2.txt", "input_3.txt", "input_4.txt" })
+	public String input;
+
+	/**
+	 * The scene of the input.
+	 */
+	private Scene scene;
+
+	/**
+	 * The sampled nodes.
+	 */
+	private Node[] nodes;
+
+	/**
+	 * List reused by {@link #addIfValid()}.
+	 */
+	private final List<Node> neighbours = new ArrayList<Node>(NodePool.DIRECTIONS);
+
+	/**
+	 * Number of calls until now, used to pick the next sample.
+	 */
+	private int cursor;
+
+	/**
+	 * Loads the input and samples the nodes.
+	 * 
+	 * @throws Exception
+	 *             if the input can't be loaded
+	 */
+	@Setup
+	public void setUp() throws Exception {
+		scene = Fixtures.scene(input);
+		int[] points = Fixtures.points(scene, SAMPLES, 0);
+		nodes = new Node[SAMPLES];
+		for (int i = 0; i < SAMPLES; i++) {
+			nodes[i] = new Node(points[i * 2], points[i * 2 + 1]);
+		}
+	}
+
+	/**
+	 * Generates the valid neighbours of a node.
+	 * 
+	 * @return the neighbours
+	 */
+	@Benchmark
+	public List<Node> getAdjacentNodes() {
+		return nodes[cursor++ & (SAMPLES - 1)].getAdjacentNodes(scene);
+	}
+
+	/**
+	 * Checks all the neighbours of a node, adding the valid ones to a list.
+	 * 
+	 * @return the neighbours
+	 */
+	@Benchmark
+	public List<Node> addIfValid() {
+		Node n = nodes[cursor++ & (SAMPLES - 1)];
+		neighbours.clear();
+		for (int direction = 0; direction < NodePool.DIRECTIONS; direction++) {
+			Node.addIfValid(scene, new Node(n.x + NodePool.dx(direction), n.y + NodePool.dy(direction), n),
+					neighbours);
+		}
+		return neighbours;
+	}
+
+	/**
+	 * Checks all the neighbours of a node in place, as the searches do,
+	 * without creating any object.
+	 * 
+	 * @return the number of valid neighbours
+	 */
+	@Benchmark
+	public int neighbours() {
+		Node n = nodes[cursor++ & (SAMPLES - 1)];
+		int valid = 0;
+		for (int direction = 0; direction < NodePool.DIRECTIONS; direction++) {
+			if (scene.isValid(n.x + NodePool.dx(direction), n.y + NodePool.dy(direction))) {
+				valid++;
+			}
+		}
+		return valid;
+	}
+
+	/**
+	 * Checks a single node, without creating any object.
+	 * 
+	 * @return the result of the check
+	 */
+	@Benchmark
+	public boolean isValid() {
+		Node n = nodes[cursor++ & (SAMPLES - 1)];
+		return scene.isValid(n.x, n.y);
+	}
+
+}
@@ -0,0 +1,164 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.reply.challenge.training.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import co.aurasphere.reply.challenge.training.model.Obstacle;
+import co.aurasphere.reply.challenge.training.model.ObstacleIndex;
+import co.aurasphere.reply.challenge.training.model.Scene;
+
+/**
+ * Benchmarks of the geometric queries on the obstacles, both on a single
+ * {@link Obstacle} and on the whole {@link ObstacleIndex}. Each call queries
+ * the next of a fixed set of random points or segments.
+ * 
+ * @author Donato Rimenti
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ObstacleBenchmark {
+
+	/**
+	 * Number of sampled points and segments, a power of 2.
+	 */
+	private static final int SAMPLES = 4096;
+
+	/**
+	 * Maximum length of the sampled segments on each axis.
+	 */
+	private static final int SEGMENT_LENGTH = 64;
+
+	/**
+	 * The input file of the obstacles.
+	 */
+	@Param({ "input_1.txt", "input_2.txt", "input_3.txt", "input_4.txt" })
+	public String input;
+
+	/**
+	 * The obstacles of the input.
+	 */
+	private Obstacle[] obstacles;
+
+	/**
+	 * The index of the obstacles.
+	 */
+	private ObstacleIndex index;
+
+	/**
+	 * The sampled points.
+	 */
+	private int[] points;
+
+	/**
+	 * The sampled segments.
+	 */
+	private int[] segments;
+
+	/**
+	 * Number of queries run until now, used to pick the next sample.
+	 */
+	private int cursor;
+
+	/**
+	 * Loads the input and samples the queries.
+	 * 
+	 * @throws Exception
+	 *             if the input can't be loaded
+	 */
+	@Setup
+	public void setUp() throws Exception {
+		Scene scene = Fixtures.scene(input);
+		obstacles = scene.getObstacles().toArray(new Obstacle[0]);
+		index = scene.getObstacleIndex();
+		points = Fixtures.points(scene, SAMPLES, 0);
+		segments = Fixtures.segments(scene, SAMPLES, SEGMENT_LENGTH);
+	}
+
+	/**
+	 * Checks a point against a single obstacle.
+	 * 
+	 * @return the result of the check
+	 */
+	@Benchmark
+	public boolean obstacleIsPointInside() {
+		int i = cursor++;
+		int sample = i & (SAMPLES - 1);
+		return obstacles[i % obstacles.length].isPointInside(points[sample * 2], points[sample * 2 + 1]);
+	}
+
+	/**
+	 * Checks a segment against a single obstacle.
+	 * 
+	 * @return the result of the check
+	 */
+	@Benchmark
+	public boolean obstacleIsPathObstructed() {
+		int i = cursor++;
+		int sample = i & (SAMPLES - 1);
+		return obstacles[i % obstacles.length].isPathObstructed(segments[sample * 4], segments[sample * 4 + 1],
+				segments[sample * 4 + 2], segments[sample * 4 + 3]);
+	}
+
+	/**
+	 * Checks a point against all the obstacles through the index.
+	 * 
+	 * @return the result of the check
+	 */
+	@Benchmark
+	public boolean indexIsPointInside() {
+		int sample = cursor++ & (SAMPLES - 1);
+		return index.isPointInside(points[sample * 2], points[sample * 2 + 1]);
+	}
+
+	/**
+	 * Checks a segment against all the obstacles through the index.
+	 * 
+	 * @return the result of the check
+	 */
+	@Benchmark
+	public boolean indexIsPathObstructed() {
+		int sample = cursor++ & (SAMPLES - 1);
+		return index.isPathObstructed(segments[sample * 4], segments[sample * 4 + 1], segments[sample * 4 + 2],
+				segments[sample * 4 + 3]);
+	}
+
+}
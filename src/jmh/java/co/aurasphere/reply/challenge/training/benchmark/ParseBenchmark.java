@@ -0,0 +1,94 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.reply.challenge.training.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import co.aurasphere.reply.challenge.training.InputParser;
+import co.aurasphere.reply.challenge.training.Solution;
+import co.aurasphere.reply.challenge.training.model.Scene;
+
+/**
+ * Benchmarks of the loading of the input files, both of the whole loading
+ * and of the parsing of the integers alone.
+ * 
+ * @author Donato Rimenti
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class ParseBenchmark {
+
+	/**
+	 * The input file to load.
+	 */
+	@Param({ "input_1.txt", "input_2.txt", "input_3.txt", "input_4.txt" })
+	public String input;
+
+	/**
+	 * Loads the input file into a scene, rasterizing and indexing the
+	 * obstacles.
+	 * 
+	 * @return the scene
+	 * @throws Exception
+	 *             if the input can't be loaded
+	 */
+	@Benchmark
+	public Scene parseFile() throws Exception {
+		return Solution.parseFile(input);
+	}
+
+	/**
+	 * Parses all the integers of the input file.
+	 * 
+	 * @return the sum of the integers
+	 * @throws Exception
+	 *             if the input can't be read
+	 */
+	@Benchmark
+	public long tokenize() throws Exception {
+		InputParser parser = InputParser.open(input);
+		long sum = 0;
+		while (parser.hasNext()) {
+			sum += parser.nextInt();
+		}
+		return sum;
+	}
+
+}
@@ -0,0 +1,115 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.reply.challenge.training.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import co.aurasphere.reply.challenge.training.PathOptimizer;
+import co.aurasphere.reply.challenge.training.model.Node;
+import co.aurasphere.reply.challenge.training.model.Scene;
+
+/**
+ * Benchmarks of the optimizations applied to the path found by the search.
+ * The path is the one found by the A* search on each solvable input.
+ * 
+ * @author Donato Rimenti
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class PathOptimizerBenchmark {
+
+	/**
+	 * The input file of the path. The second input has no solution.
+	 */
+	@Param({ "input_1.txt", "input_3.txt", "input_4.txt" })
+	public String input;
+
+	/**
+	 * The scene of the input.
+	 */
+	private Scene scene;
+
+	/**
+	 * The path, made of single steps.
+	 */
+	private List<Node> path;
+
+	/**
+	 * The path, compressed.
+	 */
+	private List<Node> compressedPath;
+
+	/**
+	 * Loads the input and finds the path.
+	 * 
+	 * @throws Exception
+	 *             if the input can't be loaded
+	 */
+	@Setup
+	public void setUp() throws Exception {
+		scene = Fixtures.scene(input);
+		path = Fixtures.rawPath(scene);
+		compressedPath = PathOptimizer.compressPath(path);
+	}
+
+	/**
+	 * Compresses the path, leaving only its turning points.
+	 * 
+	 * @return the compressed path
+	 */
+	@Benchmark
+	public List<Node> compressPath() {
+		return PathOptimizer.compressPath(path);
+	}
+
+	/**
+	 * Reduces the compressed path, removing the points which can be skipped
+	 * with a straight line.
+	 * 
+	 * @return the reduced path
+	 */
+	@Benchmark
+	public List<Node> reduce() {
+		return PathOptimizer.reduce(scene, compressedPath);
+	}
+
+}
@@ -0,0 +1,110 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.reply.challenge.training.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import co.aurasphere.reply.challenge.training.ObstacleRasterizer;
+import co.aurasphere.reply.challenge.training.model.OccupancyGrid;
+
+/**
+ * Benchmarks of the rasterization of the obstacle perimeters on the grid,
+ * which replaced the list of points computed for each line.
+ * 
+ * @author Donato Rimenti
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class RasterBenchmark {
+
+	/**
+	 * The input file of the obstacles.
+	 */
+	@Param({ "input_1.txt", "input_2.txt", "input_3.txt", "input_4.txt" })
+	public String input;
+
+	/**
+	 * The coordinates of the obstacles.
+	 */
+	private int[] coordinates;
+
+	/**
+	 * Loads the input.
+	 * 
+	 * @throws Exception
+	 *             if the input can't be loaded
+	 */
+	@Setup
+	public void setUp() throws Exception {
+		coordinates = Fixtures.scene(input).getObstacleCoordinates();
+	}
+
+	/**
+	 * Rasterizes all the obstacles, in parallel if more than one processor
+	 * is available.
+	 * 
+	 * @return the grid of the obstacle points
+	 */
+	@Benchmark
+	public OccupancyGrid rasterize() {
+		OccupancyGrid grid = new OccupancyGrid();
+		ObstacleRasterizer.rasterize(coordinates, grid);
+		return grid;
+	}
+
+	/**
+	 * Draws the sides of all the obstacles one at a time on the calling
+	 * thread.
+	 * 
+	 * @return the grid of the obstacle points
+	 */
+	@Benchmark
+	public OccupancyGrid addLines() {
+		OccupancyGrid grid = new OccupancyGrid();
+		for (int i = 0; i < coordinates.length; i += 6) {
+			grid.addLine(coordinates[i], coordinates[i + 1], coordinates[i + 2], coordinates[i + 3]);
+			grid.addLine(coordinates[i + 2], coordinates[i + 3], coordinates[i + 4], coordinates[i + 5]);
+			grid.addLine(coordinates[i + 4], coordinates[i + 5], coordinates[i], coordinates[i + 1]);
+		}
+		return grid;
+	}
+
+}
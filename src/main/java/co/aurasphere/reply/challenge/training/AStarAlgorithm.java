@@ -23,28 +23,40 @@
  */
 package co.aurasphere.reply.challenge.training;
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.PriorityQueue;
-import java.util.Queue;
-import java.util.Set;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
+import co.aurasphere.reply.challenge.training.model.ClosedGrid;
 import co.aurasphere.reply.challenge.training.model.Node;
+import co.aurasphere.reply.challenge.training.model.NodePool;
+import co.aurasphere.reply.challenge.training.model.ObstacleIndex;
+import co.aurasphere.reply.challenge.training.model.Scene;
 
 /**
- * A* pathfinding algorithm implementation.
+ * A* pathfinding algorithm implementation. It can optionally work in any-angle
+ * mode (Lazy Theta*): each node takes the parent of its predecessor as its
+ * own, assuming it's visible, and the line of sight is only checked when the
+ * node is expanded. If the parent turns out not to be visible, the best
+ * expanded neighbour is used instead. The resulting paths are made of long
+ * straight segments and are already taut when the search ends.
  * 
  * @author Donato Rimenti
  *
  */
-public class AStarAlgorithm {
+public class AStarAlgorithm implements PathFinder {
 
 	/**
 	 * Cost of a diagonal step.
 	 */
 	public final static double DIAGONAL_COST = Math.sqrt(2);
 
+	/**
+	 * Scene of the current search.
+	 */
+	private Scene scene;
+
 	/**
 	 * Final destination to reach with this algorithm.
 	 */
@@ -56,95 +68,532 @@ public class AStarAlgorithm {
 	private double staticWeight = 1.5;
 
 	/**
-	 * Finds the shortest path from start to end. If a path has been found, the
-	 * end node is returned. You can get the path between the two nodes by
-	 * traversing them back using the {@link Node#getParent()} method.
+	 * Unexplored nodes, ordered by fitness.
+	 */
+	private final OpenList openList;
+
+	/**
+	 * Counters of the work done by the last search.
+	 */
+	private final SearchStatistics statistics = new SearchStatistics();
+
+	/**
+	 * State of the nodes discovered by the current search.
+	 */
+	private final NodePool pool = new NodePool();
+
+	/**
+	 * Where the explored nodes are moved out of the {@link #pool}, or null
+	 * to keep them there.
+	 */
+	private final ClosedGrid closedGrid;
+
+	/**
+	 * Whether the search works in any-angle mode.
+	 */
+	private final boolean anyAngle;
+
+	/**
+	 * Whether the {@link LandmarkHeuristic} is combined with the octile
+	 * distance to estimate the cost to reach the goal.
+	 */
+	private final boolean useLandmarks;
+
+	/**
+	 * The index the {@link #landmarks} have been computed for.
+	 */
+	private ObstacleIndex landmarksIndex;
+
+	/**
+	 * The distances from the landmarks of the obstacles of the current scene.
+	 */
+	private LandmarkHeuristic landmarks;
+
+	/**
+	 * The distances of the goal from the {@link #landmarks}, or null if they
+	 * are not used in the current search.
+	 */
+	private double[] goalDistances;
+
+	/**
+	 * Parent of each node in the {@link #pool}, used in any-angle mode only
+	 * since the parent may not be adjacent. The starting node is its own
+	 * parent.
+	 */
+	private int[] parents = new int[0];
+
+	/**
+	 * Instantiates a new AStarAlgorithm which uses an
+	 * {@link IndexedHeapOpenList}.
+	 */
+	public AStarAlgorithm() {
+		this(new IndexedHeapOpenList());
+	}
+
+	/**
+	 * Instantiates a new AStarAlgorithm.
+	 *
+	 * @param openList
+	 *            the list used to store the unexplored nodes
+	 */
+	public AStarAlgorithm(OpenList openList) {
+		this(openList, false);
+	}
+
+	/**
+	 * Instantiates a new AStarAlgorithm.
+	 *
+	 * @param openList
+	 *            the list used to store the unexplored nodes
+	 * @param anyAngle
+	 *            true to search in any-angle mode, false to move only between
+	 *            adjacent nodes
+	 */
+	public AStarAlgorithm(OpenList openList, boolean anyAngle) {
+		this(openList, anyAngle, false);
+	}
+
+	/**
+	 * Instantiates a new AStarAlgorithm.
+	 * 
+	 * @param openList
+	 *            the list used to store the unexplored nodes
+	 * @param anyAngle
+	 *            true to search in any-angle mode, false to move only between
+	 *            adjacent nodes
+	 * @param useLandmarks
+	 *            true to combine a {@link LandmarkHeuristic} with the octile
+	 *            distance, computing it once for each set of obstacles
+	 */
+	public AStarAlgorithm(OpenList openList, boolean anyAngle, boolean useLandmarks) {
+		this(openList, anyAngle, useLandmarks, null);
+	}
+
+	/**
+	 * Instantiates a new AStarAlgorithm.
+	 * 
+	 * @param openList
+	 *            the list used to store the unexplored nodes
+	 * @param anyAngle
+	 *            true to search in any-angle mode, false to move only between
+	 *            adjacent nodes
+	 * @param useLandmarks
+	 *            true to combine a {@link LandmarkHeuristic} with the octile
+	 *            distance, computing it once for each set of obstacles
+	 * @param closedGrid
+	 *            where the explored nodes are stored outside of the heap, or
+	 *            null to keep them with the unexplored ones
+	 */
+	public AStarAlgorithm(OpenList openList, boolean anyAngle, boolean useLandmarks, ClosedGrid closedGrid) {
+		if (anyAngle && useLandmarks) {
+			// The landmark distances are measured along the grid.
+			throw new IllegalArgumentException("Landmarks can't be used in any-angle mode");
+		}
+		if (anyAngle && closedGrid != null) {
+			// The cost of the explored nodes is needed to check the parents.
+			throw new IllegalArgumentException("A closed grid can't be used in any-angle mode");
+		}
+		this.openList = openList;
+		this.anyAngle = anyAngle;
+		this.useLandmarks = useLandmarks;
+		this.closedGrid = closedGrid;
+	}
+
+	/**
+	 * Returns the distances from the landmarks of the obstacles of a scene,
+	 * computing them if needed. Scenes sharing the same obstacles share the
+	 * same distances.
 	 * 
+	 * @param scene
+	 *            the scene of the obstacles
+	 * @return the distances from the landmarks
+	 */
+	public synchronized LandmarkHeuristic getLandmarks(Scene scene) {
+		if (landmarksIndex != scene.getObstacleIndex()) {
+			landmarks = new LandmarkHeuristic(scene);
+			landmarksIndex = scene.getObstacleIndex();
+		}
+		return landmarks;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * co.aurasphere.reply.challenge.training.PathFinder#calculateShortestPath(
+	 * co.aurasphere.reply.challenge.training.model.Scene,
+	 * co.aurasphere.reply.challenge.training.model.Node,
+	 * co.aurasphere.reply.challenge.training.model.Node)
+	 */
+	@Override
+	public Node calculateShortestPath(Scene scene, Node start, Node goal) {
+		start(scene, start, goal);
+		while (hasUnexplored()) {
+			Node path = expand();
+			if (path != null) {
+				return path;
+			}
+		}
+
+		// No path has been found.
+		return null;
+	}
+
+	/**
+	 * Starts a new search, which is carried on by {@link #expand()}.
+	 * 
+	 * @param scene
+	 *            the scene of the search
 	 * @param start
 	 *            the starting node
 	 * @param goal
 	 *            the ending node
-	 * @return the end node if a path has been found, null otherwise
 	 */
-	public Node calculateShortestPath(Node start, Node goal) {
+	void start(Scene scene, Node start, Node goal) {
+		this.scene = scene;
 		this.target = goal;
+		this.goalDistances = useLandmarks ? getLandmarks(scene).distances(goal.x, goal.y) : null;
+		statistics.reset();
 
 		// Unexplored nodes.
-		Queue<Node> openList = new PriorityQueue<Node>((n1, n2) -> Double.compare(f(n1), f(n2)));
-		Map<Node, Node> openMap = new HashMap<Node, Node>();
-		// Explored nodes.
-		Set<Node> closedList = new HashSet<Node>();
+		openList.clear();
+		// All the discovered nodes, with their state.
+		pool.clear();
+		if (closedGrid != null) {
+			closedGrid.clear();
+		}
 
 		// Initializes the first node by forcing g to 0.
-		start.setG(0);
-		openList.offer(start);
-
-		while (!openList.isEmpty()) {
-			Node q = openList.poll();
-
-			// Uncomment to enable logging.
-			// System.out.println(q);
-
-			// Main loop of the algorithm.
-			for (Node successor : q.getAdjacentNodes()) {
-
-				// If we already explored that node or we already added to the
-				// "to explore" list, we just skip it.
-				if (closedList.contains(successor)) {
-					continue;
-				}
-
-				// Stop if we reached the goal.
-				if (successor.equals(goal)) {
-					return successor;
-				}
-
-				// Add the node to the list to explore if not already there.
-				Node oldSuccessor = openMap.get(successor);
-				if (oldSuccessor == null) {
-					openList.offer(successor);
-					openMap.put(successor, successor);
-					continue;
-				}
-
-				// The distance from start to a neighbor.
-				double tentativeGScore = g(q) + distanceBetween(q, successor);
-
-				// This is not a better path.
-				if (tentativeGScore >= g(oldSuccessor)) {
-					continue;
-				}
-
-				// This path is the best until now.
-				oldSuccessor.setParent(q);
-				oldSuccessor.setG(tentativeGScore);
-				openList.remove(oldSuccessor);
-				openList.add(oldSuccessor);
+		int startId = pool.findOrAdd(start.x, start.y);
+		pool.setPath(startId, 0, NodePool.NO_DIRECTION);
+		pool.setOpen(startId);
+		if (anyAngle) {
+			setParent(startId, startId);
+		}
+		openList.add(startId, f(startId));
+	}
+
+	/**
+	 * Checks if the current search has nodes left to expand.
+	 * 
+	 * @return true if the open list is not empty, false otherwise
+	 */
+	boolean hasUnexplored() {
+		return !openList.isEmpty();
+	}
+
+	/**
+	 * Expands the best unexplored node of the current search. The open list
+	 * must not be empty.
+	 * 
+	 * @return the goal node, connected to the starting one through its
+	 *         parents, if it has been reached, null otherwise
+	 */
+	Node expand() {
+		Node goal = target;
+		int q = openList.poll();
+		statistics.expanded++;
+		int qx = pool.getX(q);
+		int qy = pool.getY(q);
+
+		// In any-angle mode, the parent is checked before the expansion
+		// and the goal is checked here since its parent may still change
+		// until then.
+		if (anyAngle) {
+			checkParent(q);
+			if (qx == goal.x && qy == goal.y) {
+				return buildAnyAnglePath(q);
+			}
+		}
+
+		// Uncomment to enable logging.
+		// System.out.println(qx + " " + qy);
+
+		// Main loop of the algorithm. Successors are generated in place,
+		// without allocating any node.
+		for (int direction = 0; direction < NodePool.DIRECTIONS; direction++) {
+			int x = qx + NodePool.dx(direction);
+			int y = qy + NodePool.dy(direction);
+			statistics.obstacleTests++;
+			if (!scene.isValid(x, y)) {
+				continue;
+			}
+
+			// If we already explored that node, we just skip it.
+			if (closedGrid != null && closedGrid.contains(x, y)) {
+				continue;
+			}
+			int successor = pool.findOrAdd(x, y);
+			if (pool.isClosed(successor)) {
+				continue;
+			}
+
+			// Stop if we reached the goal.
+			if (!anyAngle && x == goal.x && y == goal.y) {
+				return buildPath(q, x, y, direction);
+			}
+
+			// The distance from start to a neighbor. In any-angle mode, the
+			// neighbor is linked straight to the parent of the current node.
+			int parent = anyAngle ? parents[q] : q;
+			float tentativeGScore = anyAngle
+					? pool.getG(parent) + distance(pool.getX(parent), pool.getY(parent), x, y)
+					: pool.getG(q) + distance(direction);
+
+			// Add the node to the list to explore if not already there.
+			if (!pool.isOpen(successor)) {
+				setPath(successor, tentativeGScore, direction, parent);
+				pool.setOpen(successor);
+				openList.add(successor, f(successor));
+				statistics.generated++;
+				statistics.updateOpenListPeak(openList.size());
+				continue;
 			}
 
-			// This node has been fully explored.
-			closedList.add(q);
+			// This is not a better path.
+			if (tentativeGScore >= pool.getG(successor)) {
+				continue;
+			}
+
+			// This path is the best until now.
+			statistics.improved++;
+			setPath(successor, tentativeGScore, direction, parent);
+			openList.update(successor, f(successor));
 		}
 
-		// No path has been found.
+		// This node has been fully explored. With a closed grid, only its
+		// direction is kept and it leaves the heap.
+		if (closedGrid != null) {
+			closedGrid.add(qx, qy, pool.getDirection(q));
+			pool.remove(q);
+		} else {
+			pool.setClosed(q);
+		}
 		return null;
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see co.aurasphere.reply.challenge.training.PathFinder#getStatistics()
+	 */
+	@Override
+	public SearchStatistics getStatistics() {
+		return statistics;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see co.aurasphere.reply.challenge.training.PathFinder#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closedGrid != null) {
+			closedGrid.close();
+		}
+	}
+
+	/**
+	 * Checks that the parent of a node about to be expanded is visible from
+	 * it. If not, the node is linked to the expanded neighbour which gives
+	 * the shortest path instead. At least one exists, since the node has been
+	 * discovered through one of them.
+	 * 
+	 * @param n
+	 *            the id of the node to check
+	 */
+	private void checkParent(int n) {
+		int x = pool.getX(n);
+		int y = pool.getY(n);
+		int parent = parents[n];
+		if (parent == n) {
+			return;
+		}
+		statistics.obstacleTests++;
+		if (!scene.getObstacleIndex().isPathObstructed(pool.getX(parent), pool.getY(parent), x, y)) {
+			return;
+		}
+
+		float bestGScore = Float.POSITIVE_INFINITY;
+		for (int direction = 0; direction < NodePool.DIRECTIONS; direction++) {
+			int neighbour = pool.find(x - NodePool.dx(direction), y - NodePool.dy(direction));
+			if (neighbour < 0 || !pool.isClosed(neighbour)) {
+				continue;
+			}
+			float gScore = pool.getG(neighbour) + distance(direction);
+			if (gScore < bestGScore) {
+				bestGScore = gScore;
+				setPath(n, gScore, direction, neighbour);
+			}
+		}
+	}
+
+	/**
+	 * Updates the path to a node.
+	 * 
+	 * @param n
+	 *            the id of the node
+	 * @param g
+	 *            the cost from the starting node
+	 * @param direction
+	 *            the direction the node is reached from
+	 * @param parent
+	 *            the id of the parent, used in any-angle mode only
+	 */
+	private void setPath(int n, float g, int direction, int parent) {
+		pool.setPath(n, g, direction);
+		if (anyAngle) {
+			setParent(n, parent);
+		}
+	}
+
 	/**
-	 * Returns the distance between two nodes. The distance is defined ad
+	 * Sets the parent of a node in any-angle mode.
+	 * 
+	 * @param id
+	 *            the id of the node
+	 * @param parent
+	 *            the id of the parent
+	 */
+	private void setParent(int id, int parent) {
+		if (id >= parents.length) {
+			parents = Arrays.copyOf(parents, Math.max(id + 1, parents.length * 2));
+		}
+		parents[id] = parent;
+	}
+
+	/**
+	 * Converts a path found in any-angle mode into a chain of nodes by
+	 * following back the parent of each node. Consecutive nodes are connected
+	 * by straight lines.
+	 * 
+	 * @param last
+	 *            the id of the goal in the pool
+	 * @return the goal node, connected to the starting one through its
+	 *         parents
+	 */
+	private Node buildAnyAnglePath(int last) {
+		Node goal = new Node(pool.getX(last), pool.getY(last));
+		goal.setG(pool.getG(last));
+
+		Node child = goal;
+		for (int current = last; parents[current] != current;) {
+			current = parents[current];
+			Node node = new Node(pool.getX(current), pool.getY(current));
+			node.setG(pool.getG(current));
+			child.setParent(node);
+			child = node;
+		}
+		return goal;
+	}
+
+	/**
+	 * Converts a path found in the {@link #pool} into a chain of nodes by
+	 * following back the direction of each node.
+	 * 
+	 * @param last
+	 *            the id of the last node in the pool before the goal
+	 * @param goalX
+	 *            the x coordinate of the goal
+	 * @param goalY
+	 *            the y coordinate of the goal
+	 * @param goalDirection
+	 *            the direction the goal has been reached from
+	 * @return the goal node, connected to the starting one through its
+	 *         parents
+	 */
+	private Node buildPath(int last, int goalX, int goalY, int goalDirection) {
+		if (closedGrid != null) {
+			return buildClosedPath(last, goalX, goalY);
+		}
+		Node goal = new Node(goalX, goalY);
+		goal.setG(pool.getG(last) + distance(goalDirection));
+
+		Node child = goal;
+		int current = last;
+		while (true) {
+			Node node = new Node(pool.getX(current), pool.getY(current));
+			node.setG(pool.getG(current));
+			child.setParent(node);
+			child = node;
+
+			int direction = pool.getDirection(current);
+			if (direction == NodePool.NO_DIRECTION) {
+				return goal;
+			}
+			current = pool.find(node.x - NodePool.dx(direction), node.y - NodePool.dy(direction));
+		}
+	}
+
+	/**
+	 * Converts a path whose nodes have been moved to the {@link #closedGrid}
+	 * into a chain of nodes by following back the direction of each node.
+	 * The grid doesn't store the cost of the nodes, so it's added up again
+	 * from the starting node in the same order of the search.
+	 * 
+	 * @param last
+	 *            the id of the last node in the pool before the goal
+	 * @param goalX
+	 *            the x coordinate of the goal
+	 * @param goalY
+	 *            the y coordinate of the goal
+	 * @return the goal node, connected to the starting one through its
+	 *         parents
+	 */
+	private Node buildClosedPath(int last, int goalX, int goalY) {
+		List<Node> path = new ArrayList<Node>();
+		path.add(new Node(goalX, goalY));
+		int x = pool.getX(last);
+		int y = pool.getY(last);
+		int direction = pool.getDirection(last);
+		path.add(new Node(x, y));
+		while (direction != NodePool.NO_DIRECTION) {
+			x -= NodePool.dx(direction);
+			y -= NodePool.dy(direction);
+			path.add(new Node(x, y));
+			direction = closedGrid.getDirection(x, y);
+		}
+
+		float g = 0;
+		for (int i = path.size() - 1; i > 0; i--) {
+			Node node = path.get(i);
+			Node child = path.get(i - 1);
+			node.setG(g);
+			child.setParent(node);
+			g += child.x != node.x && child.y != node.y ? (float) DIAGONAL_COST : 1;
+		}
+		path.get(0).setG(g);
+		return path.get(0);
+	}
+
+	/**
+	 * Returns the length of a step in a direction. The distance is defined as
 	 * {@link #DIAGONAL_COST} if the move is diagonal or 1 otherwise.
 	 * 
-	 * @param start the starting node
-	 * @param end the ending node
+	 * @param direction
+	 *            the direction of the step
+	 * @return the length of the step
+	 */
+	private static float distance(int direction) {
+		return NodePool.isDiagonal(direction) ? (float) DIAGONAL_COST : 1;
+	}
+
+	/**
+	 * Returns the euclidean distance between two nodes.
+	 * 
+	 * @param x0
+	 *            the x coordinate of the first node
+	 * @param y0
+	 *            the y coordinate of the first node
+	 * @param x1
+	 *            the x coordinate of the second node
+	 * @param y1
+	 *            the y coordinate of the second node
 	 * @return the distance between the nodes
 	 */
-	private double distanceBetween(Node start, Node end) {
-		// Nodes are diagonal.
-		if (start.x != end.x && start.y != end.y) {
-			return DIAGONAL_COST;
-		}
-		// Nodes are not diagonal.
-		return 1;
+	private static float distance(int x0, int y0, int x1, int y1) {
+		return (float) Math.hypot(x1 - x0, y1 - y0);
 	}
 
 	/**
@@ -152,10 +601,10 @@ public class AStarAlgorithm {
 	 * node.
 	 * 
 	 * @param n
-	 *            the node whose fitness value needs to be computed
+	 *            the id of the node whose fitness value needs to be computed
 	 * @return the fitness score for the node n
 	 */
-	private double f(Node n) {
+	private double f(int n) {
 		return g(n) + w(n) * h(n);
 	}
 
@@ -163,10 +612,11 @@ public class AStarAlgorithm {
 	 * Returns the weight of the heuristic function for a node.
 	 * 
 	 * @param n
-	 *            the node whose heuristic weight needs to be computed
+	 *            the id of the node whose heuristic weight needs to be
+	 *            computed
 	 * @return the weight of the heuristic function for a node
 	 */
-	private double w(Node n) {
+	private double w(int n) {
 		// Static weight
 		return staticWeight;
 	}
@@ -176,25 +626,41 @@ public class AStarAlgorithm {
 	 * an heuristic.
 	 * 
 	 * @param n
-	 *            the node whose cost to reach the end needs to be estimated
+	 *            the id of the node whose cost to reach the end needs to be
+	 *            estimated
 	 * @return the estimated cost to reach the end from the node n
 	 */
-	private int h(Node n) {
-		// We use Chebyshev distance (or diagonal distance) as our heuristic
-		// since we can move in 8 different directions.
-		return Math.max(Math.abs(n.x - target.x), Math.abs(n.y - target.y));
+	private double h(int n) {
+		// In any-angle mode the moves are straight lines, so we use the
+		// euclidean distance.
+		if (anyAngle) {
+			return distance(pool.getX(n), pool.getY(n), target.x, target.y);
+		}
+
+		// The landmarks give a tighter bound around the obstacles, while the
+		// octile distance is exact where there are none.
+		int x = pool.getX(n);
+		int y = pool.getY(n);
+		if (goalDistances != null) {
+			return Math.max(JumpPointSearch.octile(Math.abs(x - target.x), Math.abs(y - target.y)),
+					landmarks.estimate(x, y, goalDistances));
+		}
+
+		// Otherwise we use Chebyshev distance (or diagonal distance) as our
+		// heuristic since we can move in 8 different directions.
+		return Math.max(Math.abs(x - target.x), Math.abs(y - target.y));
 	}
 
 	/**
 	 * Returns the cost from the starting node to the node n.
 	 * 
 	 * @param n
-	 *            the node up to where the distance from start needs to be
-	 *            computed
+	 *            the id of the node up to where the distance from start needs
+	 *            to be computed
 	 * @return the distance between the starting node and the node n
 	 */
-	private double g(Node n) {
-		return n.getG();
+	private double g(int n) {
+		return pool.getG(n);
 	}
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,390 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.reply.challenge.training;
+
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+
+import co.aurasphere.reply.challenge.training.model.Node;
+import co.aurasphere.reply.challenge.training.model.NodePool;
+import co.aurasphere.reply.challenge.training.model.Scene;
+
+/**
+ * Anytime Repairing A* (ARA*) implementation. A first path is found quickly
+ * with a high heuristic weight, then the weight is lowered step by step and
+ * the search is repeated, each time reusing the nodes already discovered.
+ * Nodes whose cost improves after being expanded are kept in an inconsistent
+ * list instead of being reopened, and are put back in the open list at the
+ * start of the next search.
+ * <p>
+ * Each time a better path is found, it's published to a listener. The search
+ * stops when the path is proven to be the shortest one or when the time
+ * budget runs out, returning the best path found. The budget only bounds the
+ * improvements: the first search goes on until it finds a path or proves
+ * there's none, so null always means that there's no path.
+ * 
+ * @author Donato Rimenti
+ *
+ */
+public class AnytimeAStar implements PathFinder {
+
+	/**
+	 * Number of expansions between two checks of the time budget.
+	 */
+	private static final int CLOCK_CHECK_INTERVAL = 1024;
+
+	/**
+	 * Weight of the heuristic function in the first search.
+	 */
+	private final double initialWeight;
+
+	/**
+	 * Amount the weight is lowered by after each search.
+	 */
+	private final double weightStep;
+
+	/**
+	 * Maximum time for the whole search, in milliseconds, which can only be
+	 * exceeded to find the first path.
+	 */
+	private final long budgetMillis;
+
+	/**
+	 * Notified with the scene and the goal node each time a better path is
+	 * found.
+	 */
+	private final BiConsumer<Scene, Node> listener;
+
+	/**
+	 * Unexplored nodes, ordered by fitness.
+	 */
+	private final OpenList openList = new IndexedHeapOpenList();
+
+	/**
+	 * Counters of the work done by the last search.
+	 */
+	private final SearchStatistics statistics = new SearchStatistics();
+
+	/**
+	 * State of the nodes discovered by the search.
+	 */
+	private final NodePool pool = new NodePool();
+
+	/**
+	 * Ids of the nodes whose cost improved after being expanded in the
+	 * current search. May contain duplicates.
+	 */
+	private int[] inconsistent = new int[1024];
+
+	/**
+	 * Number of ids in {@link #inconsistent}.
+	 */
+	private int inconsistentSize;
+
+	/**
+	 * Scene of the current search.
+	 */
+	private Scene scene;
+
+	/**
+	 * Final destination to reach with this algorithm.
+	 */
+	private Node target;
+
+	/**
+	 * Weight of the heuristic function in the current search.
+	 */
+	private double weight;
+
+	/**
+	 * Time when the search must stop, from {@link System#nanoTime()}.
+	 */
+	private long deadline;
+
+	/**
+	 * Instantiates a new AnytimeAStar.
+	 * 
+	 * @param initialWeight
+	 *            the weight of the heuristic function in the first search
+	 * @param weightStep
+	 *            the amount the weight is lowered by after each search
+	 * @param budgetMillis
+	 *            the maximum time for the whole search, in milliseconds,
+	 *            which can only be exceeded to find the first path
+	 * @param listener
+	 *            notified with the scene and the goal node each time a better
+	 *            path is found
+	 */
+	public AnytimeAStar(double initialWeight, double weightStep, long budgetMillis,
+			BiConsumer<Scene, Node> listener) {
+		if (initialWeight < 1 || weightStep <= 0) {
+			throw new IllegalArgumentException(
+					"Invalid weights: initial " + initialWeight + ", step " + weightStep);
+		}
+		this.initialWeight = initialWeight;
+		this.weightStep = weightStep;
+		this.budgetMillis = budgetMillis;
+		this.listener = listener;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * co.aurasphere.reply.challenge.training.PathFinder#calculateShortestPath(
+	 * co.aurasphere.reply.challenge.training.model.Scene,
+	 * co.aurasphere.reply.challenge.training.model.Node,
+	 * co.aurasphere.reply.challenge.training.model.Node)
+	 */
+	@Override
+	public Node calculateShortestPath(Scene scene, Node start, Node goal) {
+		this.scene = scene;
+		this.target = goal;
+		statistics.reset();
+		this.weight = initialWeight;
+		this.deadline = System.nanoTime() + budgetMillis * 1_000_000;
+		openList.clear();
+		pool.clear();
+		inconsistentSize = 0;
+
+		int startId = pool.findOrAdd(start.x, start.y);
+		pool.setPath(startId, 0, NodePool.NO_DIRECTION);
+		pool.setOpen(startId);
+		openList.add(startId, f(startId));
+		int goalId = pool.findOrAdd(goal.x, goal.y);
+
+		// The start is already the shortest path, and the bound below would
+		// be undefined.
+		if (goalId == startId) {
+			Node path = buildPath(goalId);
+			listener.accept(scene, path);
+			return path;
+		}
+
+		Node best = null;
+		while (true) {
+			boolean completed = improvePath(goalId);
+			if (pool.getG(goalId) == Float.POSITIVE_INFINITY) {
+				// The first search is never stopped by the budget, so no path
+				// exists.
+				return null;
+			}
+			if (best == null || pool.getG(goalId) < best.getG()) {
+				best = buildPath(goalId);
+				listener.accept(scene, best);
+			}
+
+			// Lowers the weight and moves the inconsistent nodes back to the
+			// open list. The bound on the current path is used to skip the
+			// weights which wouldn't improve it.
+			double bound = Math.min(weight, pool.getG(goalId) / restart());
+			if (!completed || weight <= 1 || bound <= 1 || System.nanoTime() >= deadline) {
+				return best;
+			}
+			weight = Math.max(1, Math.min(weight - weightStep, bound));
+			rebuildOpenList();
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see co.aurasphere.reply.challenge.training.PathFinder#getStatistics()
+	 */
+	@Override
+	public SearchStatistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * Runs the search with the current {@link #weight} until no node in the
+	 * open list can lead to a better path to the goal. The time budget is
+	 * only checked once a path to the goal is known.
+	 * 
+	 * @param goalId
+	 *            the id of the goal in the pool
+	 * @return true if the search has completed, false if the time budget ran
+	 *         out
+	 */
+	private boolean improvePath(int goalId) {
+		int expansions = 0;
+		while (!openList.isEmpty()) {
+			int q = openList.poll();
+			if (pool.getG(goalId) <= f(q)) {
+				// Puts the node back for the next search.
+				openList.add(q, f(q));
+				return true;
+			}
+			if (++expansions % CLOCK_CHECK_INTERVAL == 0 && pool.getG(goalId) != Float.POSITIVE_INFINITY
+					&& System.nanoTime() >= deadline) {
+				openList.add(q, f(q));
+				return false;
+			}
+			pool.setClosed(q);
+			statistics.expanded++;
+
+			int qx = pool.getX(q);
+			int qy = pool.getY(q);
+			for (int direction = 0; direction < NodePool.DIRECTIONS; direction++) {
+				int x = qx + NodePool.dx(direction);
+				int y = qy + NodePool.dy(direction);
+				statistics.obstacleTests++;
+				if (!scene.isValid(x, y)) {
+					continue;
+				}
+				int successor = pool.findOrAdd(x, y);
+				float tentativeGScore = pool.getG(q)
+						+ (NodePool.isDiagonal(direction) ? (float) AStarAlgorithm.DIAGONAL_COST : 1);
+				if (tentativeGScore >= pool.getG(successor)) {
+					continue;
+				}
+				pool.setPath(successor, tentativeGScore, direction);
+
+				if (pool.isClosed(successor)) {
+					// Already expanded in this search: deferred to the next.
+					statistics.reopened++;
+					addInconsistent(successor);
+				} else if (pool.isOpen(successor)) {
+					statistics.improved++;
+					openList.update(successor, f(successor));
+				} else {
+					pool.setOpen(successor);
+					openList.add(successor, f(successor));
+					statistics.generated++;
+					statistics.updateOpenListPeak(openList.size());
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Computes the lowest unweighted fitness among the nodes in the open and
+	 * inconsistent lists, which is a lower bound for the length of the
+	 * shortest path.
+	 * 
+	 * @return the lower bound for the length of the shortest path
+	 */
+	private double restart() {
+		// The open list has no peek, so all its nodes are drained and put
+		// back later by rebuildOpenList().
+		double lowerBound = Double.POSITIVE_INFINITY;
+		while (!openList.isEmpty()) {
+			int n = openList.poll();
+			pool.setClosed(n);
+			addInconsistent(n);
+			lowerBound = Math.min(lowerBound, pool.getG(n) + h(n));
+		}
+		for (int i = 0; i < inconsistentSize; i++) {
+			int n = inconsistent[i];
+			lowerBound = Math.min(lowerBound, pool.getG(n) + h(n));
+		}
+		return lowerBound;
+	}
+
+	/**
+	 * Builds the open list for the next search from the nodes left by
+	 * {@link #restart()}, with the fitness computed using the new weight.
+	 * All these nodes are closed, so the closed flag is used to skip the
+	 * duplicates.
+	 */
+	private void rebuildOpenList() {
+		for (int i = 0; i < inconsistentSize; i++) {
+			int n = inconsistent[i];
+			if (pool.isClosed(n)) {
+				pool.setOpen(n);
+				openList.add(n, f(n));
+			}
+		}
+		inconsistentSize = 0;
+		pool.clearClosed();
+	}
+
+	/**
+	 * Adds a node to the {@link #inconsistent} list.
+	 * 
+	 * @param id
+	 *            the id of the node
+	 */
+	private void addInconsistent(int id) {
+		if (inconsistentSize == inconsistent.length) {
+			inconsistent = Arrays.copyOf(inconsistent, inconsistentSize * 2);
+		}
+		inconsistent[inconsistentSize++] = id;
+	}
+
+	/**
+	 * Converts the path to the goal into a chain of nodes by following back
+	 * the direction of each node.
+	 * 
+	 * @param goalId
+	 *            the id of the goal in the pool
+	 * @return the goal node, connected to the starting one through its
+	 *         parents
+	 */
+	private Node buildPath(int goalId) {
+		Node goal = new Node(pool.getX(goalId), pool.getY(goalId));
+		goal.setG(pool.getG(goalId));
+
+		Node child = goal;
+		int current = goalId;
+		while (true) {
+			int direction = pool.getDirection(current);
+			if (direction == NodePool.NO_DIRECTION) {
+				return goal;
+			}
+			current = pool.find(child.x - NodePool.dx(direction), child.y - NodePool.dy(direction));
+			Node node = new Node(pool.getX(current), pool.getY(current));
+			node.setG(pool.getG(current));
+			child.setParent(node);
+			child = node;
+		}
+	}
+
+	/**
+	 * Returns the fitness for a node n with the current weight. The lowest
+	 * the fitness, the best is the node.
+	 * 
+	 * @param n
+	 *            the id of the node whose fitness value needs to be computed
+	 * @return the fitness score for the node n
+	 */
+	private double f(int n) {
+		return pool.getG(n) + weight * h(n);
+	}
+
+	/**
+	 * Returns the estimated cost to reach the goal from the node n. The octile
+	 * distance is used, which is consistent on the grid.
+	 * 
+	 * @param n
+	 *            the id of the node whose cost to reach the end needs to be
+	 *            estimated
+	 * @return the estimated cost to reach the end from the node n
+	 */
+	private double h(int n) {
+		return JumpPointSearch.octile(Math.abs(pool.getX(n) - target.x), Math.abs(pool.getY(n) - target.y));
+	}
+
+}
@@ -0,0 +1,296 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.reply.challenge.training;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import co.aurasphere.reply.challenge.training.model.Node;
+import co.aurasphere.reply.challenge.training.model.Scene;
+import co.aurasphere.reply.challenge.training.model.SceneFile;
+
+/**
+ * Solves all the input files of a directory concurrently, writing the
+ * solution of each "input_N" file to "output_N.txt". Input files can be
+ * either text files or scene files; when both exist for the same problem, the
+ * scene file is used.
+ * <p>
+ * The problems are solved by a fixed pool of threads, each one with its own
+ * {@link PathFinder}. Before loading a problem, a thread reserves an estimate
+ * of the heap it needs from a budget shared by all the threads, and waits if
+ * the budget is exhausted. This way small problems are solved concurrently,
+ * while large ones are solved one at a time instead of running out of
+ * memory.
+ * 
+ * @author Donato Rimenti
+ *
+ */
+public class BatchSolver {
+
+	/**
+	 * Prefix of the names of the input files.
+	 */
+	public static final String INPUT_PREFIX = "input_";
+
+	/**
+	 * Prefix of the names of the output files.
+	 */
+	public static final String OUTPUT_PREFIX = "output_";
+
+	/**
+	 * Estimated heap needed to solve a problem, in bytes for each byte of its
+	 * text input file.
+	 */
+	private static final int HEAP_PER_INPUT_BYTE = 512;
+
+	/**
+	 * Estimated heap needed to solve a problem, in bytes for each byte of its
+	 * scene file. Scene files are much larger, but their grid is not loaded
+	 * on the heap.
+	 */
+	private static final int HEAP_PER_SCENE_BYTE = 4;
+
+	/**
+	 * Minimum heap reserved for a problem, in megabytes.
+	 */
+	private static final int MIN_HEAP_MEGABYTES = 64;
+
+	/**
+	 * Whether the {@link RunMetrics} of each problem are printed along with
+	 * its time. Can be enabled with the "metrics" system property.
+	 */
+	private static final boolean PRINT_METRICS = Boolean.getBoolean("metrics");
+
+	/**
+	 * Name of the algorithm used, see {@link Solution#createPathFinder(String)}.
+	 */
+	private final String solver;
+
+	/**
+	 * Number of threads solving the problems.
+	 */
+	private final int threads;
+
+	/**
+	 * The heap which can be reserved by the problems being solved, in
+	 * megabytes.
+	 */
+	private final int heapBudget;
+
+	/**
+	 * The heap still available, one permit for each megabyte.
+	 */
+	private final Semaphore availableHeap;
+
+	/**
+	 * Instantiates a new BatchSolver.
+	 * 
+	 * @param solver
+	 *            the name of the algorithm used, see
+	 *            {@link Solution#createPathFinder(String)}
+	 * @param threads
+	 *            the number of threads solving the problems
+	 * @param heapBudget
+	 *            the heap which can be used by the problems being solved, in
+	 *            megabytes
+	 */
+	public BatchSolver(String solver, int threads, int heapBudget) {
+		if (threads < 1 || heapBudget < 1) {
+			throw new IllegalArgumentException("Threads and heap budget must be positive");
+		}
+		this.solver = solver;
+		this.threads = threads;
+		this.heapBudget = heapBudget;
+		this.availableHeap = new Semaphore(heapBudget, true);
+	}
+
+	/**
+	 * Solves all the input files of a directory. The algorithm is selected
+	 * with the "solver" system property as in {@link Solution}, while the
+	 * heap budget in megabytes can be set with the "heap.budget" system
+	 * property and defaults to three quarters of the maximum heap. The
+	 * "metrics" system property prints the {@link RunMetrics} of each
+	 * problem.
+	 * 
+	 * @param args
+	 *            the directory of the input files, optionally followed by the
+	 *            directory of the output files (the same of the inputs by
+	 *            default) and by the number of threads
+	 * @throws Exception
+	 */
+	public static void main(String[] args) throws Exception {
+		Path inputDirectory = Paths.get(args[0]);
+		Path outputDirectory = args.length > 1 ? Paths.get(args[1]) : inputDirectory;
+		int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+		int defaultBudget = (int) (Runtime.getRuntime().maxMemory() / 4 * 3 >> 20);
+		BatchSolver batch = new BatchSolver(System.getProperty("solver", "astar"), threads,
+				Integer.getInteger("heap.budget", defaultBudget));
+		batch.solveAll(inputDirectory, outputDirectory);
+	}
+
+	/**
+	 * Solves all the input files of a directory, waiting for all of them.
+	 * The failure of a problem doesn't stop the others.
+	 * 
+	 * @param inputDirectory
+	 *            the directory of the input files
+	 * @param outputDirectory
+	 *            the directory where the output files are written, created if
+	 *            needed
+	 * @return the output files written
+	 * @throws IOException
+	 *             if the directories can't be accessed or any problem fails
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for the problems
+	 */
+	public List<Path> solveAll(Path inputDirectory, Path outputDirectory) throws IOException, InterruptedException {
+		Files.createDirectories(outputDirectory);
+		Map<String, Path> inputs = findInputs(inputDirectory);
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, Math.max(1, inputs.size())));
+		try {
+			List<Future<Path>> results = new ArrayList<Future<Path>>(inputs.size());
+			for (Map.Entry<String, Path> input : inputs.entrySet()) {
+				Path output = outputDirectory.resolve(OUTPUT_PREFIX + input.getKey() + ".txt");
+				results.add(executor.submit(() -> solve(input.getValue(), output)));
+			}
+
+			// Collects the outputs, reporting all the failures together.
+			List<Path> outputs = new ArrayList<Path>(results.size());
+			IOException failure = null;
+			for (Future<Path> result : results) {
+				try {
+					outputs.add(result.get());
+				} catch (ExecutionException e) {
+					if (failure == null) {
+						failure = new IOException("Some problems could not be solved");
+					}
+					failure.addSuppressed(e.getCause());
+				}
+			}
+			if (failure != null) {
+				throw failure;
+			}
+			return outputs;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Finds the input files of a directory.
+	 * 
+	 * @param directory
+	 *            the directory of the input files
+	 * @return the input files by the name of their problem (the part of the
+	 *         name between the {@link #INPUT_PREFIX} and the extension)
+	 * @throws IOException
+	 *             if the directory can't be read
+	 */
+	private static Map<String, Path> findInputs(Path directory) throws IOException {
+		Map<String, Path> inputs = new TreeMap<String, Path>();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+				INPUT_PREFIX + "*{.txt," + SceneFile.EXTENSION + "}")) {
+			for (Path file : files) {
+				String name = file.getFileName().toString();
+				boolean scene = name.endsWith(SceneFile.EXTENSION);
+				String problem = name.substring(INPUT_PREFIX.length(), name.lastIndexOf('.'));
+				if (scene || !inputs.containsKey(problem)) {
+					inputs.put(problem, file);
+				}
+			}
+		}
+		return inputs;
+	}
+
+	/**
+	 * Solves a single problem within the heap budget.
+	 * 
+	 * @param input
+	 *            the input file
+	 * @param output
+	 *            the output file
+	 * @return the output file
+	 * @throws Exception
+	 *             if the problem can't be read or solved
+	 */
+	private Path solve(Path input, Path output) throws Exception {
+		int reserved = estimateHeap(input);
+		availableHeap.acquire(reserved);
+		try {
+			long start = System.nanoTime();
+			RunMetrics metrics = PRINT_METRICS ? new RunMetrics() : RunMetrics.DISABLED;
+			Scene scene = Solution.parseFile(input.toString(), metrics);
+			Node target;
+			try (PathFinder finder = Solution.createPathFinder(solver, (s, n) -> {
+			})) {
+				target = Solution.solve(scene, finder, metrics);
+			}
+			try (PrintStream out = new PrintStream(new BufferedOutputStream(Files.newOutputStream(output)), false,
+					StandardCharsets.UTF_8.name())) {
+				Solution.writeSolution(scene, target, out, metrics);
+			}
+
+			// Printed at once, since the problems are solved concurrently.
+			System.out.print(input.getFileName() + " -> " + output.getFileName() + " in "
+					+ (System.nanoTime() - start) / 1_000_000 + " ms\n" + (PRINT_METRICS ? metrics : ""));
+			return output;
+		} finally {
+			availableHeap.release(reserved);
+		}
+	}
+
+	/**
+	 * Estimates the heap needed to solve a problem from the size and the
+	 * format of its input file. Problems larger than the whole budget reserve all of it,
+	 * so they're solved alone.
+	 * 
+	 * @param input
+	 *            the input file
+	 * @return the estimated heap, in megabytes
+	 * @throws IOException
+	 *             if the size of the file can't be read
+	 */
+	private int estimateHeap(Path input) throws IOException {
+		int heapPerByte = input.toString().endsWith(SceneFile.EXTENSION) ? HEAP_PER_SCENE_BYTE
+				: HEAP_PER_INPUT_BYTE;
+		long estimate = Files.size(input) * heapPerByte >> 20;
+		return (int) Math.min(heapBudget, Math.max(MIN_HEAP_MEGABYTES, estimate));
+	}
+
+}
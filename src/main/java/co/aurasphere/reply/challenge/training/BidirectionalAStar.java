@@ -0,0 +1,474 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.reply.challenge.training;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import co.aurasphere.reply.challenge.training.model.Node;
+import co.aurasphere.reply.challenge.training.model.NodePool;
+import co.aurasphere.reply.challenge.training.model.Scene;
+
+/**
+ * Bidirectional A* implementation. Two searches are run at the same time, one
+ * from the start towards the goal and one from the goal towards the start.
+ * Each time a node is reached by both, the path through it is recorded if
+ * it's the shortest found until now. The search ends when one of the two
+ * frontiers can't contain any node leading to a shorter path, which is when
+ * its lowest fitness is not lower than the best path length.
+ * <p>
+ * The two searches can either be alternated on a single thread, expanding
+ * the smaller frontier first, or run on two threads.
+ * 
+ * @author Donato Rimenti
+ *
+ */
+public class BidirectionalAStar implements PathFinder {
+
+	/**
+	 * Static weight of the heuristic function. With 1, the paths found are
+	 * the shortest ones on the grid.
+	 */
+	private final double staticWeight;
+
+	/**
+	 * Whether the two searches run on two threads.
+	 */
+	private final boolean parallel;
+
+	/**
+	 * Length of the shortest path found until now.
+	 */
+	private volatile double bestCost;
+
+	/**
+	 * X coordinate of the node where the two searches met on the shortest
+	 * path found until now.
+	 */
+	private int meetingX;
+
+	/**
+	 * Y coordinate of the node where the two searches met on the shortest
+	 * path found until now.
+	 */
+	private int meetingY;
+
+	/**
+	 * Set when one of the two searches proves that the best path can't be
+	 * improved anymore.
+	 */
+	private volatile boolean finished;
+
+	/**
+	 * Counters of the work done by the last search, by both the searches.
+	 */
+	private final SearchStatistics statistics = new SearchStatistics();
+
+	/**
+	 * Instantiates a new BidirectionalAStar which finds the shortest paths on
+	 * a single thread.
+	 */
+	public BidirectionalAStar() {
+		this(1, false);
+	}
+
+	/**
+	 * Instantiates a new BidirectionalAStar. On two threads the searches stop
+	 * as soon as one of them can't improve the best path, which is only
+	 * correct with a consistent heuristic, so the weight must be 1.
+	 * 
+	 * @param staticWeight
+	 *            the weight of the heuristic function
+	 * @param parallel
+	 *            true to run each search on its own thread, false to alternate
+	 *            them on the calling thread
+	 */
+	public BidirectionalAStar(double staticWeight, boolean parallel) {
+		if (parallel && staticWeight != 1) {
+			throw new IllegalArgumentException("The parallel search needs a static weight of 1: " + staticWeight);
+		}
+		this.staticWeight = staticWeight;
+		this.parallel = parallel;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * co.aurasphere.reply.challenge.training.PathFinder#calculateShortestPath(
+	 * co.aurasphere.reply.challenge.training.model.Scene,
+	 * co.aurasphere.reply.challenge.training.model.Node,
+	 * co.aurasphere.reply.challenge.training.model.Node)
+	 */
+	@Override
+	public Node calculateShortestPath(Scene scene, Node start, Node goal) {
+		bestCost = Double.POSITIVE_INFINITY;
+		finished = false;
+		statistics.reset();
+		Frontier forward = new Frontier(scene, start, goal);
+		Frontier backward = new Frontier(scene, goal, start);
+		forward.opposite = backward;
+		backward.opposite = forward;
+
+		if (parallel) {
+			FutureTask<Void> backwardSearch = new FutureTask<Void>(() -> {
+				while (backward.expand()) {
+				}
+				return null;
+			});
+			new Thread(backwardSearch, "bidirectional-astar-backward").start();
+			try {
+				while (forward.expand()) {
+				}
+			} finally {
+				// Stops the backward search if the forward one failed.
+				finished = true;
+				awaitBackwardSearch(backwardSearch);
+			}
+		} else {
+			// The smaller frontier is expanded first, so that a search closed
+			// in a small area ends the whole search quickly.
+			while (forward.openList.size() <= backward.openList.size() ? forward.expand() : backward.expand()) {
+			}
+		}
+		statistics.add(forward.statistics);
+		statistics.add(backward.statistics);
+
+		// No path has been found.
+		if (bestCost == Double.POSITIVE_INFINITY) {
+			return null;
+		}
+		return buildPath(forward, backward);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see co.aurasphere.reply.challenge.training.PathFinder#getStatistics()
+	 */
+	@Override
+	public SearchStatistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * Waits for the search from the goal to end, rethrowing its failure if
+	 * any.
+	 * 
+	 * @param backwardSearch
+	 *            the search from the goal, running on its own thread
+	 */
+	private static void awaitBackwardSearch(FutureTask<Void> backwardSearch) {
+		try {
+			backwardSearch.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for the backward search", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException("The backward search failed", cause);
+		}
+	}
+
+	/**
+	 * Records a path through a node reached by both searches if it's the
+	 * shortest found until now.
+	 * 
+	 * @param x
+	 *            the x coordinate of the node
+	 * @param y
+	 *            the y coordinate of the node
+	 * @param cost
+	 *            the length of the path through the node
+	 */
+	private synchronized void meet(int x, int y, double cost) {
+		if (cost < bestCost) {
+			meetingX = x;
+			meetingY = y;
+			bestCost = cost;
+		}
+	}
+
+	/**
+	 * Joins the paths from the meeting node to the start and to the goal into
+	 * a chain of nodes.
+	 * 
+	 * @param forward
+	 *            the search from the start
+	 * @param backward
+	 *            the search from the goal
+	 * @return the goal node, connected to the starting one through its
+	 *         parents
+	 */
+	private Node buildPath(Frontier forward, Frontier backward) {
+		// From the meeting node back to the start, then reversed.
+		List<Node> path = forward.walkBack(meetingX, meetingY);
+		List<Node> toStart = new ArrayList<Node>(path.size());
+		for (int i = path.size() - 1; i >= 0; i--) {
+			toStart.add(path.get(i));
+		}
+
+		// From the meeting node to the goal, skipping the meeting node.
+		List<Node> toGoal = backward.walkBack(meetingX, meetingY);
+		toStart.addAll(toGoal.subList(1, toGoal.size()));
+
+		Node previous = null;
+		for (Node n : toStart) {
+			n.setParent(previous);
+			previous = n;
+		}
+		return previous;
+	}
+
+	/**
+	 * One of the two searches, from a root node towards a target one.
+	 * 
+	 * @author Donato Rimenti
+	 *
+	 */
+	private class Frontier {
+
+		/**
+		 * Scene of the search.
+		 */
+		private final Scene scene;
+
+		/**
+		 * Node where this search ends.
+		 */
+		private final Node target;
+
+		/**
+		 * Unexplored nodes, ordered by fitness.
+		 */
+		private final OpenList openList = new IndexedHeapOpenList();
+
+		/**
+		 * Counters of the work done by this search.
+		 */
+		private final SearchStatistics statistics = new SearchStatistics();
+
+		/**
+		 * State of the nodes discovered by this search.
+		 */
+		private final NodePool pool = new NodePool();
+
+		/**
+		 * Guards the structure of the {@link #pool} when the searches run on
+		 * two threads. Only the owner thread changes it, so it needs the lock
+		 * only to add nodes, while the other search needs it to read.
+		 */
+		private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+		/**
+		 * The search coming from the other direction.
+		 */
+		private Frontier opposite;
+
+		/**
+		 * Instantiates a new Frontier.
+		 * 
+		 * @param scene
+		 *            the scene of the search
+		 * @param root
+		 *            the node where this search starts
+		 * @param target
+		 *            the node where this search ends
+		 */
+		private Frontier(Scene scene, Node root, Node target) {
+			this.scene = scene;
+			this.target = target;
+			int rootId = pool.findOrAdd(root.x, root.y);
+			pool.setPath(rootId, 0, NodePool.NO_DIRECTION);
+			pool.setOpen(rootId);
+			openList.add(rootId, f(rootId));
+		}
+
+		/**
+		 * Expands the best node of this search.
+		 * 
+		 * @return true if the search needs to go on, false otherwise
+		 */
+		private boolean expand() {
+			if (finished) {
+				return false;
+			}
+			if (openList.isEmpty()) {
+				// Every node reachable from the root has been explored, so the
+				// best path can't be improved.
+				finished = true;
+				return false;
+			}
+
+			int q = openList.poll();
+
+			// With a consistent heuristic, the fitness of the expanded nodes
+			// never decreases, so no node left can lead to a better path.
+			if (f(q) >= bestCost) {
+				finished = true;
+				return false;
+			}
+			statistics.expanded++;
+
+			int qx = pool.getX(q);
+			int qy = pool.getY(q);
+			for (int direction = 0; direction < NodePool.DIRECTIONS; direction++) {
+				int x = qx + NodePool.dx(direction);
+				int y = qy + NodePool.dy(direction);
+				statistics.obstacleTests++;
+				if (!scene.isValid(x, y)) {
+					continue;
+				}
+
+				int successor = findOrAdd(x, y);
+				if (pool.isClosed(successor)) {
+					continue;
+				}
+
+				float tentativeGScore = pool.getG(q)
+						+ (NodePool.isDiagonal(direction) ? (float) AStarAlgorithm.DIAGONAL_COST : 1);
+				if (pool.isOpen(successor) && tentativeGScore >= pool.getG(successor)) {
+					continue;
+				}
+				pool.setPath(successor, tentativeGScore, direction);
+				if (pool.isOpen(successor)) {
+					statistics.improved++;
+					openList.update(successor, f(successor));
+				} else {
+					pool.setOpen(successor);
+					openList.add(successor, f(successor));
+					statistics.generated++;
+					statistics.updateOpenListPeak(openList.size());
+				}
+
+				// Checks if the other search already reached this node.
+				double otherGScore = opposite.getG(x, y);
+				if (tentativeGScore + otherGScore < bestCost) {
+					meet(x, y, tentativeGScore + otherGScore);
+				}
+			}
+
+			// This node has been fully explored.
+			pool.setClosed(q);
+			return true;
+		}
+
+		/**
+		 * Adds a node to the {@link #pool} if not already there.
+		 * 
+		 * @param x
+		 *            the x coordinate of the node
+		 * @param y
+		 *            the y coordinate of the node
+		 * @return the id of the node
+		 */
+		private int findOrAdd(int x, int y) {
+			if (!parallel) {
+				return pool.findOrAdd(x, y);
+			}
+			lock.writeLock().lock();
+			try {
+				return pool.findOrAdd(x, y);
+			} finally {
+				lock.writeLock().unlock();
+			}
+		}
+
+		/**
+		 * Returns the cost from the root of this search to a node. When the
+		 * searches run on two threads the value may be outdated, but it's
+		 * always the length of an actual path.
+		 * 
+		 * @param x
+		 *            the x coordinate of the node
+		 * @param y
+		 *            the y coordinate of the node
+		 * @return the cost to the node, or infinity if the node has not been
+		 *         reached yet
+		 */
+		private double getG(int x, int y) {
+			if (!parallel) {
+				int id = pool.find(x, y);
+				return id < 0 ? Double.POSITIVE_INFINITY : pool.getG(id);
+			}
+			lock.readLock().lock();
+			try {
+				int id = pool.find(x, y);
+				return id < 0 ? Double.POSITIVE_INFINITY : pool.getG(id);
+			} finally {
+				lock.readLock().unlock();
+			}
+		}
+
+		/**
+		 * Follows back the direction of each node from a node to the root of
+		 * this search.
+		 * 
+		 * @param x
+		 *            the x coordinate of the first node
+		 * @param y
+		 *            the y coordinate of the first node
+		 * @return the nodes from the first one to the root
+		 */
+		private List<Node> walkBack(int x, int y) {
+			List<Node> path = new ArrayList<Node>();
+			int current = pool.find(x, y);
+			while (true) {
+				Node node = new Node(pool.getX(current), pool.getY(current));
+				path.add(node);
+				int direction = pool.getDirection(current);
+				if (direction == NodePool.NO_DIRECTION) {
+					return path;
+				}
+				current = pool.find(node.x - NodePool.dx(direction), node.y - NodePool.dy(direction));
+			}
+		}
+
+		/**
+		 * Returns the fitness for a node n. The lowest the fitness, the best is
+		 * the node.
+		 * 
+		 * @param n
+		 *            the id of the node whose fitness value needs to be
+		 *            computed
+		 * @return the fitness score for the node n
+		 */
+		private double f(int n) {
+			return pool.getG(n) + staticWeight * JumpPointSearch.octile(Math.abs(pool.getX(n) - target.x),
+					Math.abs(pool.getY(n) - target.y));
+		}
+
+	}
+
+}
@@ -0,0 +1,245 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.reply.challenge.training;
+
+import java.util.Arrays;
+
+/**
+ * {@link OpenList} implemented as a bucket queue over fixed-point fitness
+ * values. Each fitness is scaled by {@link #SCALE} and truncated, so that
+ * nodes with the same integer key share the same bucket. Buckets are stored
+ * in a circular array which covers the range of keys in the list and grows
+ * as needed. Updates don't remove a node from its old bucket: the node is
+ * just added to the new one and the stale entry is skipped when polled, by
+ * checking it against the current key of the node.
+ * 
+ * @author Donato Rimenti
+ *
+ */
+public class BucketOpenList implements OpenList {
+
+	/**
+	 * Scale factor of the fixed-point keys. With 100, straight and diagonal
+	 * steps cost 100 and 141 units respectively.
+	 */
+	public static final int SCALE = 100;
+
+	/**
+	 * Initial number of buckets. Must be a power of two.
+	 */
+	private static final int INITIAL_CAPACITY = 1 << 12;
+
+	/**
+	 * Initial capacity of each bucket.
+	 */
+	private static final int INITIAL_BUCKET_CAPACITY = 4;
+
+	/**
+	 * The buckets, indexed by key modulo their number.
+	 */
+	private int[][] buckets = new int[INITIAL_CAPACITY][];
+
+	/**
+	 * The number of entries in each bucket, stale ones included.
+	 */
+	private int[] bucketSizes = new int[INITIAL_CAPACITY];
+
+	/**
+	 * The current key of each node, by id, or -1 if the node is not in this
+	 * list.
+	 */
+	private int[] nodeKeys = new int[0];
+
+	/**
+	 * The lowest key which may have a non empty bucket.
+	 */
+	private int minKey;
+
+	/**
+	 * The highest key added since the list was last empty.
+	 */
+	private int maxKey;
+
+	/**
+	 * The number of entries in the buckets, stale ones included.
+	 */
+	private int entries;
+
+	/**
+	 * The number of nodes in this list.
+	 */
+	private int size;
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see co.aurasphere.reply.challenge.training.OpenList#add(int, double)
+	 */
+	@Override
+	public void add(int id, double f) {
+		if (id >= nodeKeys.length) {
+			int oldLength = nodeKeys.length;
+			nodeKeys = Arrays.copyOf(nodeKeys, Math.max(id + 1, oldLength * 2));
+			Arrays.fill(nodeKeys, oldLength, nodeKeys.length, -1);
+		}
+		push(id, toKey(f));
+		size++;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see co.aurasphere.reply.challenge.training.OpenList#update(int, double)
+	 */
+	@Override
+	public void update(int id, double f) {
+		int key = toKey(f);
+		// The node is already in the right bucket.
+		if (key != nodeKeys[id]) {
+			push(id, key);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see co.aurasphere.reply.challenge.training.OpenList#poll()
+	 */
+	@Override
+	public int poll() {
+		while (entries > 0) {
+			int index = minKey & (buckets.length - 1);
+			if (bucketSizes[index] == 0) {
+				minKey++;
+				continue;
+			}
+
+			// Takes the last entry of the bucket, skipping the stale ones.
+			int id = buckets[index][--bucketSizes[index]];
+			entries--;
+			if (nodeKeys[id] == minKey) {
+				nodeKeys[id] = -1;
+				size--;
+				return id;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Adds an entry for a node in the bucket of a key, growing the buckets if
+	 * the key is out of their range.
+	 * 
+	 * @param id
+	 *            the id of the node to add
+	 * @param key
+	 *            the key of the node
+	 */
+	private void push(int id, int key) {
+		if (entries == 0) {
+			minKey = key;
+			maxKey = key;
+		}
+		int newMin = Math.min(minKey, key);
+		int newMax = Math.max(maxKey, key);
+		if (newMax - newMin >= buckets.length) {
+			grow(newMax - newMin + 1);
+		}
+		minKey = newMin;
+		maxKey = newMax;
+
+		int index = key & (buckets.length - 1);
+		int[] bucket = buckets[index];
+		if (bucket == null) {
+			bucket = new int[INITIAL_BUCKET_CAPACITY];
+			buckets[index] = bucket;
+		} else if (bucketSizes[index] == bucket.length) {
+			bucket = Arrays.copyOf(bucket, bucket.length * 2);
+			buckets[index] = bucket;
+		}
+		bucket[bucketSizes[index]++] = id;
+		nodeKeys[id] = key;
+		entries++;
+	}
+
+	/**
+	 * Grows the buckets array to cover at least a given range of keys,
+	 * moving each bucket to its new position.
+	 * 
+	 * @param range
+	 *            the number of keys to cover
+	 */
+	private void grow(int range) {
+		int capacity = Integer.highestOneBit(range - 1) << 1;
+		int[][] newBuckets = new int[capacity][];
+		int[] newSizes = new int[capacity];
+		for (int key = minKey; key <= maxKey; key++) {
+			int oldIndex = key & (buckets.length - 1);
+			int newIndex = key & (capacity - 1);
+			newBuckets[newIndex] = buckets[oldIndex];
+			newSizes[newIndex] = bucketSizes[oldIndex];
+		}
+		buckets = newBuckets;
+		bucketSizes = newSizes;
+	}
+
+	/**
+	 * Converts a fitness value to a fixed-point key.
+	 * 
+	 * @param f
+	 *            the fitness value to convert
+	 * @return the key of the fitness value
+	 */
+	private static int toKey(double f) {
+		double key = f * SCALE;
+		if (key >= Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Fitness value too high for a bucket queue: " + f);
+		}
+		return (int) key;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see co.aurasphere.reply.challenge.training.OpenList#size()
+	 */
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see co.aurasphere.reply.challenge.training.OpenList#clear()
+	 */
+	@Override
+	public void clear() {
+		while (entries > 0) {
+			poll();
+		}
+		size = 0;
+	}
+
+}
@@ -0,0 +1,1088 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.reply.challenge.training;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.IntStream;
+
+import co.aurasphere.reply.challenge.training.model.Node;
+import co.aurasphere.reply.challenge.training.model.NodePool;
+import co.aurasphere.reply.challenge.training.model.ObstacleIndex;
+import co.aurasphere.reply.challenge.training.model.Scene;
+
+/**
+ * Abstract graph used by {@link HierarchicalPathFinder}. The area around the
+ * obstacles is split into square clusters and the free nodes along the
+ * border between two clusters are grouped into entrances. Each entrance is
+ * crossed by one transition if it's short or by two, one at each end, if
+ * it's long. Borders which can only be crossed diagonally get a diagonal
+ * transition. The two nodes of a transition are the nodes of this graph,
+ * connected by an edge to each other and to all the nodes of the same
+ * cluster reachable within it.
+ * <p>
+ * The graph only depends on the obstacles, so it's built once and can be
+ * used by any number of searches, even concurrently and on scenes which only
+ * differ from its own around the terminal points. The distances within
+ * each cluster are computed for all the clusters in parallel by
+ * {@link #precompute()}, or else the first time the cluster is explored.
+ * Clusters without obstacles don't need any search, since all their nodes
+ * are connected by a straight and a diagonal line. In the other clusters,
+ * nodes in different connected components are never searched for, and
+ * nodes connected by a straight and a diagonal line don't need any search
+ * either, so a single Dijkstra search from each node finds all the remaining
+ * distances.
+ * 
+ * @author Donato Rimenti
+ *
+ */
+public class ClusterGraph {
+
+	/**
+	 * Entrances at least this long are crossed by two transitions.
+	 */
+	private static final int LONG_ENTRANCE = 6;
+
+	/**
+	 * The scene the graph is built for.
+	 */
+	private final Scene scene;
+
+	/**
+	 * Length of the side of a cluster.
+	 */
+	private final int clusterSize;
+
+	/**
+	 * Lowest x coordinate of the area covered by the clusters.
+	 */
+	private final int minX;
+
+	/**
+	 * Lowest y coordinate of the area covered by the clusters.
+	 */
+	private final int minY;
+
+	/**
+	 * Highest x coordinate of the area covered by the clusters.
+	 */
+	private final int maxX;
+
+	/**
+	 * Highest y coordinate of the area covered by the clusters.
+	 */
+	private final int maxY;
+
+	/**
+	 * Number of clusters along the x axis.
+	 */
+	private final int columns;
+
+	/**
+	 * Number of clusters along the y axis.
+	 */
+	private final int rows;
+
+	/**
+	 * X coordinate of each node.
+	 */
+	private int[] nodeX = new int[1024];
+
+	/**
+	 * Y coordinate of each node.
+	 */
+	private int[] nodeY = new int[1024];
+
+	/**
+	 * The other node of the transition of each node.
+	 */
+	private int[] partners = new int[1024];
+
+	/**
+	 * Number of nodes.
+	 */
+	private int nodeCount;
+
+	/**
+	 * The nodes of each cluster.
+	 */
+	private final int[][] clusterNodes;
+
+	/**
+	 * The cluster of each node.
+	 */
+	private final int[] nodeClusters;
+
+	/**
+	 * The position of each node in the {@link #clusterNodes} of its cluster.
+	 */
+	private final int[] nodePositions;
+
+	/**
+	 * Distances between the nodes of each cluster, as a square matrix indexed
+	 * by the position of the nodes in {@link #clusterNodes}. Nodes not
+	 * connected within the cluster have an infinite distance.
+	 */
+	private final AtomicReferenceArray<float[]> distances;
+
+	/**
+	 * Builds the graph for the obstacles of a scene.
+	 * 
+	 * @param scene
+	 *            the scene of the obstacles
+	 * @param clusterSize
+	 *            the length of the side of a cluster
+	 */
+	public ClusterGraph(Scene scene, int clusterSize) {
+		this.scene = scene;
+		this.clusterSize = clusterSize;
+		ObstacleIndex index = scene.getObstacleIndex();
+
+		// The area around the obstacles with a free border, so that paths can
+		// go around them.
+		this.minX = index.getMinX() - 1;
+		this.minY = index.getMinY() - 1;
+		this.maxX = index.getMaxX() + 1;
+		this.maxY = index.getMaxY() + 1;
+		this.columns = (maxX - minX) / clusterSize + 1;
+		this.rows = (maxY - minY) / clusterSize + 1;
+
+		// Finds the transitions on the borders between clusters.
+		List<List<Integer>> nodesByCluster = new ArrayList<List<Integer>>(columns * rows);
+		for (int i = 0; i < columns * rows; i++) {
+			nodesByCluster.add(new ArrayList<Integer>());
+		}
+		for (int row = 0; row < rows; row++) {
+			for (int column = 0; column < columns; column++) {
+				if (column + 1 < columns) {
+					int x = clusterMaxX(column);
+					addTransitions(nodesByCluster, row * columns + column, row * columns + column + 1, x,
+							clusterMinY(row), x + 1, clusterMinY(row), 0, 1, clusterMaxY(row) - clusterMinY(row) + 1);
+				}
+				if (row + 1 < rows) {
+					int y = clusterMaxY(row);
+					addTransitions(nodesByCluster, row * columns + column, (row + 1) * columns + column,
+							clusterMinX(column), y, clusterMinX(column), y + 1, 1, 0,
+							clusterMaxX(column) - clusterMinX(column) + 1);
+				}
+				if (column + 1 < columns && row + 1 < rows) {
+					int x = clusterMaxX(column);
+					int y = clusterMaxY(row);
+					addCornerTransition(nodesByCluster, row * columns + column, (row + 1) * columns + column + 1, x,
+							y, x + 1, y + 1);
+					addCornerTransition(nodesByCluster, row * columns + column + 1, (row + 1) * columns + column,
+							x + 1, y, x, y + 1);
+				}
+			}
+		}
+		this.clusterNodes = new int[columns * rows][];
+		this.nodeClusters = new int[nodeCount];
+		this.nodePositions = new int[nodeCount];
+		for (int i = 0; i < clusterNodes.length; i++) {
+			clusterNodes[i] = nodesByCluster.get(i).stream().mapToInt(Integer::intValue).toArray();
+			for (int j = 0; j < clusterNodes[i].length; j++) {
+				nodeClusters[clusterNodes[i][j]] = i;
+				nodePositions[clusterNodes[i][j]] = j;
+			}
+		}
+
+		this.distances = new AtomicReferenceArray<float[]>(columns * rows);
+	}
+
+	/**
+	 * Computes the distances within all the clusters in parallel, so that
+	 * the searches don't need to. Only the clusters with obstacles need a
+	 * search.
+	 */
+	public void precompute() {
+		IntStream.range(0, columns * rows).parallel().forEach(this::getDistances);
+	}
+
+	/**
+	 * Returns the distances between the nodes of a cluster, computing them if
+	 * needed. Concurrent calls may compute the same distances twice, but they
+	 * all return the same values.
+	 * 
+	 * @param cluster
+	 *            the index of the cluster
+	 * @return the distances between the nodes of the cluster
+	 */
+	private float[] getDistances(int cluster) {
+		float[] clusterDistances = distances.get(cluster);
+		if (clusterDistances != null) {
+			return clusterDistances;
+		}
+		int[] nodes = clusterNodes[cluster];
+		clusterDistances = new float[nodes.length * nodes.length];
+		int column = cluster % columns;
+		int row = cluster / columns;
+		if (!scene.hasObstaclePoints(clusterMinX(column), clusterMinY(row), clusterMaxX(column), clusterMaxY(row))) {
+			for (int i = 0; i < nodes.length; i++) {
+				for (int j = i + 1; j < nodes.length; j++) {
+					float octile = (float) JumpPointSearch.octile(Math.abs(nodeX[nodes[j]] - nodeX[nodes[i]]),
+							Math.abs(nodeY[nodes[j]] - nodeY[nodes[i]]));
+					clusterDistances[i * nodes.length + j] = octile;
+					clusterDistances[j * nodes.length + i] = octile;
+				}
+			}
+			distances.set(cluster, clusterDistances);
+			return clusterDistances;
+		}
+		LocalSearch search = new LocalSearch(scene);
+		float[] nodeDistances = new float[nodes.length];
+		for (int i = 0; i < nodes.length; i++) {
+			search.distances(cluster, nodeX[nodes[i]], nodeY[nodes[i]], nodes, i + 1, nodeDistances);
+			for (int j = i + 1; j < nodes.length; j++) {
+				clusterDistances[i * nodes.length + j] = nodeDistances[j];
+				clusterDistances[j * nodes.length + i] = nodeDistances[j];
+			}
+		}
+		distances.set(cluster, clusterDistances);
+		return clusterDistances;
+	}
+
+	/**
+	 * Finds the entrances along the border between two clusters and adds
+	 * their transitions to the graph.
+	 * 
+	 * @param nodesByCluster
+	 *            the nodes of each cluster
+	 * @param firstCluster
+	 *            the cluster on the first side of the border
+	 * @param secondCluster
+	 *            the cluster on the second side of the border
+	 * @param firstX
+	 *            the x coordinate of the first node of the border on the
+	 *            first side
+	 * @param firstY
+	 *            the y coordinate of the first node of the border on the
+	 *            first side
+	 * @param secondX
+	 *            the x coordinate of the first node of the border on the
+	 *            second side
+	 * @param secondY
+	 *            the y coordinate of the first node of the border on the
+	 *            second side
+	 * @param dx
+	 *            the horizontal direction of the border
+	 * @param dy
+	 *            the vertical direction of the border
+	 * @param length
+	 *            the length of the border
+	 */
+	private void addTransitions(List<List<Integer>> nodesByCluster, int firstCluster, int secondCluster, int firstX,
+			int firstY, int secondX, int secondY, int dx, int dy, int length) {
+		int entranceStart = -1;
+		for (int i = 0; i <= length; i++) {
+			boolean free = i < length && scene.isValid(firstX + i * dx, firstY + i * dy)
+					&& scene.isValid(secondX + i * dx, secondY + i * dy);
+			if (free && entranceStart < 0) {
+				entranceStart = i;
+			} else if (!free && entranceStart >= 0) {
+				int entranceEnd = i - 1;
+				if (entranceEnd - entranceStart + 1 < LONG_ENTRANCE) {
+					int middle = (entranceStart + entranceEnd) / 2;
+					addTransition(nodesByCluster, firstCluster, secondCluster, firstX + middle * dx,
+							firstY + middle * dy, secondX + middle * dx, secondY + middle * dy);
+				} else {
+					addTransition(nodesByCluster, firstCluster, secondCluster, firstX + entranceStart * dx,
+							firstY + entranceStart * dy, secondX + entranceStart * dx, secondY + entranceStart * dy);
+					addTransition(nodesByCluster, firstCluster, secondCluster, firstX + entranceEnd * dx,
+							firstY + entranceEnd * dy, secondX + entranceEnd * dx, secondY + entranceEnd * dy);
+				}
+				entranceStart = -1;
+			}
+		}
+
+		// Where the border can't be crossed straight, it may still be crossed
+		// diagonally.
+		for (int i = 0; i + 1 < length; i++) {
+			if (isCrossable(firstX + i * dx, firstY + i * dy, secondX + i * dx, secondY + i * dy)
+					|| isCrossable(firstX + (i + 1) * dx, firstY + (i + 1) * dy, secondX + (i + 1) * dx,
+							secondY + (i + 1) * dy)) {
+				continue;
+			}
+			if (isCrossable(firstX + i * dx, firstY + i * dy, secondX + (i + 1) * dx, secondY + (i + 1) * dy)) {
+				addTransition(nodesByCluster, firstCluster, secondCluster, firstX + i * dx, firstY + i * dy,
+						secondX + (i + 1) * dx, secondY + (i + 1) * dy);
+			} else if (isCrossable(firstX + (i + 1) * dx, firstY + (i + 1) * dy, secondX + i * dx,
+					secondY + i * dy)) {
+				addTransition(nodesByCluster, firstCluster, secondCluster, firstX + (i + 1) * dx,
+						firstY + (i + 1) * dy, secondX + i * dx, secondY + i * dy);
+			}
+		}
+	}
+
+	/**
+	 * Adds a transition across the corner where four clusters meet, if the
+	 * corner can only be crossed diagonally between the first and the second
+	 * cluster.
+	 *
+	 * @param nodesByCluster
+	 *            the nodes of each cluster
+	 * @param firstCluster
+	 *            the cluster of the first node
+	 * @param secondCluster
+	 *            the cluster of the second node
+	 * @param firstX
+	 *            the x coordinate of the first node
+	 * @param firstY
+	 *            the y coordinate of the first node
+	 * @param secondX
+	 *            the x coordinate of the second node, diagonally adjacent to
+	 *            the first one
+	 * @param secondY
+	 *            the y coordinate of the second node, diagonally adjacent to
+	 *            the first one
+	 */
+	private void addCornerTransition(List<List<Integer>> nodesByCluster, int firstCluster, int secondCluster,
+			int firstX, int firstY, int secondX, int secondY) {
+		if (isCrossable(firstX, firstY, secondX, secondY) && !scene.isValid(firstX, secondY)
+				&& !scene.isValid(secondX, firstY)) {
+			addTransition(nodesByCluster, firstCluster, secondCluster, firstX, firstY, secondX, secondY);
+		}
+	}
+
+	/**
+	 * Checks if a move between two adjacent nodes is possible.
+	 *
+	 * @param firstX
+	 *            the x coordinate of the first node
+	 * @param firstY
+	 *            the y coordinate of the first node
+	 * @param secondX
+	 *            the x coordinate of the second node
+	 * @param secondY
+	 *            the y coordinate of the second node
+	 * @return true if both the nodes are free, false otherwise
+	 */
+	private boolean isCrossable(int firstX, int firstY, int secondX, int secondY) {
+		return scene.isValid(firstX, firstY) && scene.isValid(secondX, secondY);
+	}
+
+	/**
+	 * Adds the two nodes of a transition to the graph.
+	 * 
+	 * @param nodesByCluster
+	 *            the nodes of each cluster
+	 * @param firstCluster
+	 *            the cluster of the first node
+	 * @param secondCluster
+	 *            the cluster of the second node
+	 * @param firstX
+	 *            the x coordinate of the first node
+	 * @param firstY
+	 *            the y coordinate of the first node
+	 * @param secondX
+	 *            the x coordinate of the second node
+	 * @param secondY
+	 *            the y coordinate of the second node
+	 */
+	private void addTransition(List<List<Integer>> nodesByCluster, int firstCluster, int secondCluster, int firstX,
+			int firstY, int secondX, int secondY) {
+		if (nodeCount + 2 > nodeX.length) {
+			nodeX = Arrays.copyOf(nodeX, nodeX.length * 2);
+			nodeY = Arrays.copyOf(nodeY, nodeY.length * 2);
+			partners = Arrays.copyOf(partners, partners.length * 2);
+		}
+		int first = nodeCount++;
+		int second = nodeCount++;
+		nodeX[first] = firstX;
+		nodeY[first] = firstY;
+		nodeX[second] = secondX;
+		nodeY[second] = secondY;
+		partners[first] = second;
+		partners[second] = first;
+		nodesByCluster.get(firstCluster).add(first);
+		nodesByCluster.get(secondCluster).add(second);
+	}
+
+	/**
+	 * Returns the cluster containing a node.
+	 * 
+	 * @param x
+	 *            the x coordinate of the node
+	 * @param y
+	 *            the y coordinate of the node
+	 * @return the index of the cluster, or -1 if the node is outside the
+	 *         clusters
+	 */
+	public int getCluster(int x, int y) {
+		if (x < minX || x > maxX || y < minY || y > maxY) {
+			return -1;
+		}
+		return (y - minY) / clusterSize * columns + (x - minX) / clusterSize;
+	}
+
+	/**
+	 * Returns the nodes of a cluster. The returned array must not be
+	 * modified.
+	 * 
+	 * @param cluster
+	 *            the index of the cluster
+	 * @return the ids of the nodes of the cluster
+	 */
+	public int[] getClusterNodes(int cluster) {
+		return clusterNodes[cluster];
+	}
+
+	/**
+	 * Returns the distance within their cluster between two nodes of the same
+	 * cluster.
+	 * 
+	 * @param cluster
+	 *            the index of the cluster
+	 * @param from
+	 *            the position of the first node in the cluster
+	 * @param to
+	 *            the position of the second node in the cluster
+	 * @return the distance between the nodes, or infinity if they're not
+	 *         connected within the cluster
+	 */
+	public float getDistance(int cluster, int from, int to) {
+		return getDistances(cluster)[from * clusterNodes[cluster].length + to];
+	}
+
+	/**
+	 * Returns the cluster of a node.
+	 * 
+	 * @param node
+	 *            the id of the node
+	 * @return the index of the cluster of the node
+	 */
+	public int getNodeCluster(int node) {
+		return nodeClusters[node];
+	}
+
+	/**
+	 * Returns the position of a node among the nodes of its cluster.
+	 * 
+	 * @param node
+	 *            the id of the node
+	 * @return the position of the node in its cluster
+	 * @see #getClusterNodes(int)
+	 */
+	public int getNodePosition(int node) {
+		return nodePositions[node];
+	}
+
+	/**
+	 * Returns the number of nodes.
+	 * 
+	 * @return the number of nodes
+	 */
+	public int getNodeCount() {
+		return nodeCount;
+	}
+
+	/**
+	 * Returns the x coordinate of a node.
+	 * 
+	 * @param node
+	 *            the id of the node
+	 * @return the x coordinate of the node
+	 */
+	public int getX(int node) {
+		return nodeX[node];
+	}
+
+	/**
+	 * Returns the y coordinate of a node.
+	 * 
+	 * @param node
+	 *            the id of the node
+	 * @return the y coordinate of the node
+	 */
+	public int getY(int node) {
+		return nodeY[node];
+	}
+
+	/**
+	 * Returns the other node of the transition of a node, which is adjacent
+	 * to it, possibly diagonally, in the neighbouring cluster.
+	 * 
+	 * @param node
+	 *            the id of the node
+	 * @return the id of the other node
+	 */
+	public int getPartner(int node) {
+		return partners[node];
+	}
+
+	/**
+	 * Returns the cost of crossing the transition of a node, which depends on
+	 * whether its nodes are diagonally adjacent.
+	 * 
+	 * @param node
+	 *            the id of the node
+	 * @return the distance between the node and its partner
+	 */
+	public float getPartnerDistance(int node) {
+		int partner = partners[node];
+		return (float) JumpPointSearch.octile(Math.abs(nodeX[partner] - nodeX[node]),
+				Math.abs(nodeY[partner] - nodeY[node]));
+	}
+
+	/**
+	 * Returns the number of clusters.
+	 * 
+	 * @return the number of clusters
+	 */
+	public int getClusterCount() {
+		return columns * rows;
+	}
+
+	/**
+	 * Returns the point of the area covered by the clusters closest to a
+	 * node. Outside of this area there are no obstacles.
+	 * 
+	 * @param x
+	 *            the x coordinate of the node
+	 * @param y
+	 *            the y coordinate of the node
+	 * @return the closest point within the clusters
+	 */
+	public Node clamp(int x, int y) {
+		return new Node(Math.max(minX, Math.min(maxX, x)), Math.max(minY, Math.min(maxY, y)));
+	}
+
+	/**
+	 * Returns the lowest x coordinate of a cluster column.
+	 * 
+	 * @param column
+	 *            the column of the cluster
+	 * @return the lowest x coordinate of the column
+	 */
+	private int clusterMinX(int column) {
+		return minX + column * clusterSize;
+	}
+
+	/**
+	 * Returns the highest x coordinate of a cluster column.
+	 * 
+	 * @param column
+	 *            the column of the cluster
+	 * @return the highest x coordinate of the column
+	 */
+	private int clusterMaxX(int column) {
+		return Math.min(maxX, clusterMinX(column) + clusterSize - 1);
+	}
+
+	/**
+	 * Returns the lowest y coordinate of a cluster row.
+	 * 
+	 * @param row
+	 *            the row of the cluster
+	 * @return the lowest y coordinate of the row
+	 */
+	private int clusterMinY(int row) {
+		return minY + row * clusterSize;
+	}
+
+	/**
+	 * Returns the highest y coordinate of a cluster row.
+	 * 
+	 * @param row
+	 *            the row of the cluster
+	 * @return the highest y coordinate of the row
+	 */
+	private int clusterMaxY(int row) {
+		return Math.min(maxY, clusterMinY(row) + clusterSize - 1);
+	}
+
+	/**
+	 * Searches for paths between nodes without leaving a cluster. The free
+	 * nodes of the last cluster searched and their connected components are
+	 * cached, so that nodes in different components are known to be
+	 * unreachable without any search. Each instance keeps its own buffers, so
+	 * it must be used by a single thread.
+	 * 
+	 * @author Donato Rimenti
+	 * 
+	 */
+	public class LocalSearch {
+
+		/**
+		 * Scene of the searches, which may differ from the one of the graph
+		 * only around the terminal points.
+		 */
+		private final Scene scene;
+
+		/**
+		 * Unexplored nodes, ordered by fitness.
+		 */
+		private final OpenList openList = new IndexedHeapOpenList();
+
+		/**
+		 * Counters of the work done by all the searches of this instance.
+		 */
+		private final SearchStatistics statistics = new SearchStatistics();
+
+		/**
+		 * Whether each node of the prepared cluster is free, by position
+		 * within the cluster.
+		 */
+		private final boolean[] free = new boolean[clusterSize * clusterSize];
+
+		/**
+		 * Connected component of each free node of the prepared cluster,
+		 * starting from 1. Nodes not free belong to the component 0.
+		 */
+		private final int[] components = new int[clusterSize * clusterSize];
+
+		/**
+		 * Nodes to be labelled while finding the {@link #components}.
+		 */
+		private final int[] stack = new int[clusterSize * clusterSize];
+
+		/**
+		 * Cost from the first node to each node of the cluster.
+		 */
+		private final float[] g = new float[clusterSize * clusterSize];
+
+		/**
+		 * Direction each node of the cluster has been reached from.
+		 */
+		private final byte[] directions = new byte[clusterSize * clusterSize];
+
+		/**
+		 * Search each node of the cluster has been reached by: nodes with an
+		 * older value are not discovered yet.
+		 */
+		private final int[] visited = new int[clusterSize * clusterSize];
+
+		/**
+		 * Search each node of the cluster has been explored by, with the same
+		 * convention of {@link #visited}.
+		 */
+		private final int[] explored = new int[clusterSize * clusterSize];
+
+		/**
+		 * Search each node of the cluster is a target of, with the same
+		 * convention of {@link #visited}.
+		 */
+		private final int[] targets = new int[clusterSize * clusterSize];
+
+		/**
+		 * Marks the nodes reached by the current search.
+		 */
+		private int currentSearch;
+
+		/**
+		 * The cluster whose nodes are in {@link #free} and
+		 * {@link #components}, or -1 if none.
+		 */
+		private int preparedCluster = -1;
+
+		/**
+		 * Lowest x coordinate of the prepared cluster.
+		 */
+		private int originX;
+
+		/**
+		 * Lowest y coordinate of the prepared cluster.
+		 */
+		private int originY;
+
+		/**
+		 * Highest x coordinate of the prepared cluster.
+		 */
+		private int limitX;
+
+		/**
+		 * Highest y coordinate of the prepared cluster.
+		 */
+		private int limitY;
+
+		/**
+		 * Instantiates a new LocalSearch.
+		 * 
+		 * @param scene
+		 *            the scene of the searches
+		 */
+		public LocalSearch(Scene scene) {
+			this.scene = scene;
+		}
+
+		/**
+		 * Returns the counters of the work done by all the searches of this
+		 * instance.
+		 * 
+		 * @return the counters of the searches
+		 */
+		public SearchStatistics getStatistics() {
+			return statistics;
+		}
+
+		/**
+		 * Returns the distance between two nodes of a cluster, moving only
+		 * within it. If a path is straight or diagonal for its whole length
+		 * but one turn, the distance is known and the path is only checked.
+		 * Otherwise, an A* search is run within the cluster.
+		 * 
+		 * @param cluster
+		 *            the index of the cluster
+		 * @param x0
+		 *            the x coordinate of the first node
+		 * @param y0
+		 *            the y coordinate of the first node
+		 * @param x1
+		 *            the x coordinate of the second node
+		 * @param y1
+		 *            the y coordinate of the second node
+		 * @param path
+		 *            if not null, the nodes of the path between the first and
+		 *            the second one (both excluded) are added to this list
+		 * @return the distance between the nodes, or infinity if they're not
+		 *         connected within the cluster
+		 */
+		public float distance(int cluster, int x0, int y0, int x1, int y1, List<Node> path) {
+			float octile = (float) JumpPointSearch.octile(Math.abs(x1 - x0), Math.abs(y1 - y0));
+			if (addFreePath(x0, y0, x1, y1, path)) {
+				return octile;
+			}
+			prepare(cluster);
+			int source = position(x0, y0);
+			int target = position(x1, y1);
+			if (components[source] == 0 || components[source] != components[target]) {
+				return Float.POSITIVE_INFINITY;
+			}
+			currentSearch++;
+			search(source, target, 0);
+			if (path != null) {
+				addPath(target, path);
+			}
+			return g[target];
+		}
+
+		/**
+		 * Computes the distances from a node to some nodes of the graph in the
+		 * same cluster, moving only within it. A single Dijkstra search finds
+		 * all the distances not given by a straight or diagonal path.
+		 * 
+		 * @param cluster
+		 *            the index of the cluster
+		 * @param x0
+		 *            the x coordinate of the node
+		 * @param y0
+		 *            the y coordinate of the node
+		 * @param nodes
+		 *            the ids of the nodes of the graph
+		 * @param first
+		 *            the index of the first node to consider, the ones before
+		 *            are skipped
+		 * @param result
+		 *            the array where the distance to each node is written, at
+		 *            the same index of the node, or infinity if the node is not
+		 *            connected within the cluster
+		 */
+		public void distances(int cluster, int x0, int y0, int[] nodes, int first, float[] result) {
+			prepare(cluster);
+			currentSearch++;
+			int source = position(x0, y0);
+			int pending = 0;
+			for (int i = first; i < nodes.length; i++) {
+				int x1 = nodeX[nodes[i]];
+				int y1 = nodeY[nodes[i]];
+				int target = position(x1, y1);
+				if (components[source] == 0 || components[source] != components[target]) {
+					result[i] = Float.POSITIVE_INFINITY;
+				} else if (addFreePath(x0, y0, x1, y1, null)) {
+					result[i] = (float) JumpPointSearch.octile(Math.abs(x1 - x0), Math.abs(y1 - y0));
+				} else {
+					// Found by the search below.
+					result[i] = Float.NaN;
+					if (targets[target] != currentSearch) {
+						targets[target] = currentSearch;
+						pending++;
+					}
+				}
+			}
+			if (pending == 0) {
+				return;
+			}
+			search(source, -1, pending);
+			for (int i = first; i < nodes.length; i++) {
+				if (Float.isNaN(result[i])) {
+					result[i] = g[position(nodeX[nodes[i]], nodeY[nodes[i]])];
+				}
+			}
+		}
+
+		/**
+		 * Adds to a list the nodes of a path between two nodes made of a
+		 * diagonal and a straight line, if free.
+		 * 
+		 * @param x0
+		 *            the x coordinate of the first node
+		 * @param y0
+		 *            the y coordinate of the first node
+		 * @param x1
+		 *            the x coordinate of the second node
+		 * @param y1
+		 *            the y coordinate of the second node
+		 * @param path
+		 *            the list where the nodes of the path between the first
+		 *            and the second one (both excluded) are added
+		 * @return true if a free path has been found, false otherwise
+		 */
+		public boolean addFreePath(int x0, int y0, int x1, int y1, List<Node> path) {
+			return isFree(x0, y0, x1, y1, true, path) || isFree(x0, y0, x1, y1, false, path);
+		}
+
+		/**
+		 * Checks if a path made of a diagonal and a straight line is free. All
+		 * its nodes lie within the box of its ends, so the path doesn't leave
+		 * the cluster.
+		 * 
+		 * @param x0
+		 *            the x coordinate of the first node
+		 * @param y0
+		 *            the y coordinate of the first node
+		 * @param x1
+		 *            the x coordinate of the second node
+		 * @param y1
+		 *            the y coordinate of the second node
+		 * @param diagonalFirst
+		 *            true if the diagonal line comes first, false otherwise
+		 * @param path
+		 *            if not null and the path is free, its nodes between the
+		 *            first and the second one (both excluded) are added to this
+		 *            list
+		 * @return true if the path is free, false otherwise
+		 */
+		private boolean isFree(int x0, int y0, int x1, int y1, boolean diagonalFirst, List<Node> path) {
+			int dx = Integer.signum(x1 - x0);
+			int dy = Integer.signum(y1 - y0);
+			int diagonalSteps = Math.min(Math.abs(x1 - x0), Math.abs(y1 - y0));
+			int straightSteps = Math.max(Math.abs(x1 - x0), Math.abs(y1 - y0)) - diagonalSteps;
+			int straightX = Math.abs(x1 - x0) > Math.abs(y1 - y0) ? dx : 0;
+			int straightY = straightX == 0 ? dy : 0;
+
+			// First pass checks, second one adds the nodes.
+			for (int pass = 0; pass < (path == null ? 1 : 2); pass++) {
+				int x = x0;
+				int y = y0;
+				for (int step = 0; step < diagonalSteps + straightSteps; step++) {
+					boolean diagonal = diagonalFirst ? step < diagonalSteps : step >= straightSteps;
+					x += diagonal ? dx : straightX;
+					y += diagonal ? dy : straightY;
+					if (pass == 0) {
+						statistics.obstacleTests++;
+						if (!scene.isValid(x, y)) {
+							return false;
+						}
+					}
+					if (pass == 1 && (x != x1 || y != y1)) {
+						path.add(new Node(x, y));
+					}
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Loads the free nodes of a cluster and labels their connected
+		 * components, unless the cluster is already loaded.
+		 * 
+		 * @param cluster
+		 *            the index of the cluster
+		 */
+		private void prepare(int cluster) {
+			if (cluster == preparedCluster) {
+				return;
+			}
+			preparedCluster = cluster;
+			originX = clusterMinX(cluster % columns);
+			originY = clusterMinY(cluster / columns);
+			limitX = clusterMaxX(cluster % columns);
+			limitY = clusterMaxY(cluster / columns);
+			statistics.obstacleTests += free.length;
+			for (int position = 0; position < free.length; position++) {
+				int x = originX + position % clusterSize;
+				int y = originY + position / clusterSize;
+				free[position] = x <= limitX && y <= limitY && scene.isValid(x, y);
+				components[position] = 0;
+			}
+
+			// Flood fills each component not labelled yet.
+			int component = 0;
+			for (int position = 0; position < free.length; position++) {
+				if (!free[position] || components[position] != 0) {
+					continue;
+				}
+				component++;
+				components[position] = component;
+				int size = 0;
+				stack[size++] = position;
+				while (size > 0) {
+					int current = stack[--size];
+					for (int direction = 0; direction < NodePool.DIRECTIONS; direction++) {
+						int neighbour = neighbour(current, direction);
+						if (neighbour >= 0 && components[neighbour] == 0) {
+							components[neighbour] = component;
+							stack[size++] = neighbour;
+						}
+					}
+				}
+			}
+		}
+
+		/**
+		 * Returns the position within the prepared cluster of a node.
+		 * 
+		 * @param x
+		 *            the x coordinate of the node
+		 * @param y
+		 *            the y coordinate of the node
+		 * @return the position of the node
+		 */
+		private int position(int x, int y) {
+			return (y - originY) * clusterSize + (x - originX);
+		}
+
+		/**
+		 * Returns the free neighbour of a node of the prepared cluster in a
+		 * direction.
+		 * 
+		 * @param position
+		 *            the position of the node
+		 * @param direction
+		 *            the direction of the neighbour
+		 * @return the position of the neighbour, or -1 if it's outside the
+		 *         cluster or not free
+		 */
+		private int neighbour(int position, int direction) {
+			int x = position % clusterSize + NodePool.dx(direction);
+			int y = position / clusterSize + NodePool.dy(direction);
+			if (x < 0 || x >= clusterSize || y < 0 || y >= clusterSize) {
+				return -1;
+			}
+			int neighbour = y * clusterSize + x;
+			return free[neighbour] ? neighbour : -1;
+		}
+
+		/**
+		 * Runs a search within the prepared cluster. With a target, it's an A*
+		 * search which stops when the target is explored. Otherwise it's a
+		 * Dijkstra search which stops when all the nodes marked in
+		 * {@link #targets} by the {@link #currentSearch} are explored.
+		 * 
+		 * @param source
+		 *            the position of the first node
+		 * @param target
+		 *            the position of the target node, or -1 if none
+		 * @param pending
+		 *            the number of nodes marked in {@link #targets}, if
+		 *            there's no target
+		 */
+		private void search(int source, int target, int pending) {
+			int targetX = target % clusterSize;
+			int targetY = target / clusterSize;
+			openList.clear();
+			visit(source, 0, NodePool.NO_DIRECTION);
+			openList.add(source, 0);
+			while (!openList.isEmpty()) {
+				int q = openList.poll();
+				statistics.expanded++;
+				explored[q] = currentSearch;
+				if (q == target || (target < 0 && targets[q] == currentSearch && --pending == 0)) {
+					return;
+				}
+				for (int direction = 0; direction < NodePool.DIRECTIONS; direction++) {
+					int successor = neighbour(q, direction);
+					if (successor < 0 || explored[successor] == currentSearch) {
+						continue;
+					}
+					float tentativeGScore = g[q]
+							+ (NodePool.isDiagonal(direction) ? (float) AStarAlgorithm.DIAGONAL_COST : 1);
+					boolean open = visited[successor] == currentSearch;
+					if (open && tentativeGScore >= g[successor]) {
+						continue;
+					}
+					visit(successor, tentativeGScore, direction);
+					double f = tentativeGScore;
+					if (target >= 0) {
+						f += JumpPointSearch.octile(Math.abs(targetX - successor % clusterSize),
+								Math.abs(targetY - successor / clusterSize));
+					}
+					if (open) {
+						statistics.improved++;
+						openList.update(successor, f);
+					} else {
+						openList.add(successor, f);
+						statistics.generated++;
+						statistics.updateOpenListPeak(openList.size());
+					}
+				}
+			}
+		}
+
+		/**
+		 * Updates the path to a node of the cluster.
+		 * 
+		 * @param node
+		 *            the position of the node in the cluster
+		 * @param cost
+		 *            the cost from the first node
+		 * @param direction
+		 *            the direction the node has been reached from
+		 */
+		private void visit(int node, float cost, int direction) {
+			visited[node] = currentSearch;
+			g[node] = cost;
+			directions[node] = (byte) direction;
+		}
+
+		/**
+		 * Adds the path found by the last search to a list, following back
+		 * the direction of each node.
+		 * 
+		 * @param last
+		 *            the position in the cluster of the last node
+		 * @param path
+		 *            the list where the nodes between the first and the last
+		 *            one (both excluded) are added
+		 */
+		private void addPath(int last, List<Node> path) {
+			List<Node> reversed = new ArrayList<Node>();
+			int current = last;
+			while (directions[current] != NodePool.NO_DIRECTION) {
+				int x = originX + current % clusterSize - NodePool.dx(directions[current]);
+				int y = originY + current / clusterSize - NodePool.dy(directions[current]);
+				current = position(x, y);
+				if (directions[current] != NodePool.NO_DIRECTION) {
+					reversed.add(new Node(x, y));
+				}
+			}
+			for (int i = reversed.size() - 1; i >= 0; i--) {
+				path.add(reversed.get(i));
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,342 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.reply.challenge.training;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import co.aurasphere.reply.challenge.training.model.Node;
+import co.aurasphere.reply.challenge.training.model.ObstacleIndex;
+import co.aurasphere.reply.challenge.training.model.Scene;
+
+/**
+ * Hierarchical pathfinding (HPA*) implementation. The search runs on a
+ * {@link ClusterGraph}, which is built once for each set of obstacles and
+ * reused by all the following searches. The start and the goal are connected
+ * to the nodes of their clusters, then the path found on the graph is
+ * refined into a grid path with local searches within each cluster.
+ * <p>
+ * The paths found are not always the shortest ones, since they must cross
+ * the clusters through their transitions. Terminal points outside of the
+ * clusters are connected to the closest point within them.
+ * <p>
+ * A single instance can be shared by many threads, which share the graph.
+ * The counters of the work done are kept for each thread, and include both
+ * the search on the graph and the local searches within the clusters.
+ * 
+ * @author Donato Rimenti
+ *
+ */
+public class HierarchicalPathFinder implements PathFinder {
+
+	/**
+	 * Default length of the side of a cluster.
+	 */
+	public static final int DEFAULT_CLUSTER_SIZE = 32;
+
+	/**
+	 * Length of the side of a cluster.
+	 */
+	private final int clusterSize;
+
+	/**
+	 * The index the {@link #graph} has been built for.
+	 */
+	private ObstacleIndex index;
+
+	/**
+	 * The graph of the clusters.
+	 */
+	private ClusterGraph graph;
+
+	/**
+	 * Counters of the work done by the last search of each thread.
+	 */
+	private final ThreadLocal<SearchStatistics> statistics = ThreadLocal.withInitial(SearchStatistics::new);
+
+	/**
+	 * Instantiates a new HierarchicalPathFinder with clusters of
+	 * {@link #DEFAULT_CLUSTER_SIZE}.
+	 */
+	public HierarchicalPathFinder() {
+		this(DEFAULT_CLUSTER_SIZE);
+	}
+
+	/**
+	 * Instantiates a new HierarchicalPathFinder.
+	 * 
+	 * @param clusterSize
+	 *            the length of the side of a cluster
+	 */
+	public HierarchicalPathFinder(int clusterSize) {
+		this.clusterSize = clusterSize;
+	}
+
+	/**
+	 * Returns the graph of the clusters for the obstacles of a scene,
+	 * building it and computing all its distances if needed. Scenes sharing
+	 * the same obstacles share the same graph, so only the first search pays
+	 * for it and the following ones only search the graph.
+	 * 
+	 * @param scene
+	 *            the scene of the obstacles
+	 * @return the graph of the clusters
+	 */
+	public synchronized ClusterGraph getGraph(Scene scene) {
+		if (index != scene.getObstacleIndex()) {
+			graph = new ClusterGraph(scene, clusterSize);
+			graph.precompute();
+			index = scene.getObstacleIndex();
+		}
+		return graph;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * co.aurasphere.reply.challenge.training.PathFinder#calculateShortestPath(
+	 * co.aurasphere.reply.challenge.training.model.Scene,
+	 * co.aurasphere.reply.challenge.training.model.Node,
+	 * co.aurasphere.reply.challenge.training.model.Node)
+	 */
+	@Override
+	public Node calculateShortestPath(Scene scene, Node start, Node goal) {
+		ClusterGraph graph = getGraph(scene);
+		ClusterGraph.LocalSearch search = graph.new LocalSearch(scene);
+		SearchStatistics statistics = this.statistics.get();
+		statistics.reset();
+
+		// Terminals outside the clusters are moved within them. The moves are
+		// free since there are no obstacles outside the clusters.
+		Node from = graph.clamp(start.x, start.y);
+		Node to = graph.clamp(goal.x, goal.y);
+		int startCluster = graph.getCluster(from.x, from.y);
+		int goalCluster = graph.getCluster(to.x, to.y);
+
+		// Connects the terminals to the nodes of their clusters.
+		int[] startNodes = graph.getClusterNodes(startCluster);
+		float[] startDistances = new float[startNodes.length];
+		search.distances(startCluster, from.x, from.y, startNodes, 0, startDistances);
+		int[] goalNodes = graph.getClusterNodes(goalCluster);
+		float[] goalDistances = new float[goalNodes.length];
+		search.distances(goalCluster, to.x, to.y, goalNodes, 0, goalDistances);
+		float directDistance = startCluster == goalCluster
+				? search.distance(startCluster, from.x, from.y, to.x, to.y, null)
+				: Float.POSITIVE_INFINITY;
+
+		// A* on the graph, with the terminals as two extra nodes.
+		int startId = graph.getNodeCount();
+		int goalId = startId + 1;
+		double[] g = new double[goalId + 1];
+		Arrays.fill(g, Double.POSITIVE_INFINITY);
+		int[] parents = new int[goalId + 1];
+		boolean[] closed = new boolean[goalId + 1];
+		OpenList openList = new IndexedHeapOpenList();
+		g[startId] = 0;
+		parents[startId] = -1;
+		openList.add(startId, h(from.x, from.y, to));
+		while (!openList.isEmpty()) {
+			int q = openList.poll();
+			statistics.expanded++;
+			if (q == goalId) {
+				Node path = buildPath(graph, search, parents, goalId, start, from, to, goal);
+				statistics.add(search.getStatistics());
+				return path;
+			}
+			closed[q] = true;
+
+			if (q == startId) {
+				for (int i = 0; i < startNodes.length; i++) {
+					relax(graph, openList, statistics, g, parents, closed, q, startNodes[i], startDistances[i], to);
+				}
+				relax(graph, openList, statistics, g, parents, closed, q, goalId, directDistance, to);
+				continue;
+			}
+
+			// Crosses the transition.
+			relax(graph, openList, statistics, g, parents, closed, q, graph.getPartner(q),
+					graph.getPartnerDistance(q), to);
+
+			// Moves within the cluster.
+			int cluster = graph.getNodeCluster(q);
+			int position = graph.getNodePosition(q);
+			int[] nodes = graph.getClusterNodes(cluster);
+			for (int i = 0; i < nodes.length; i++) {
+				if (i != position) {
+					relax(graph, openList, statistics, g, parents, closed, q, nodes[i],
+							graph.getDistance(cluster, position, i), to);
+				}
+			}
+			if (cluster == goalCluster) {
+				relax(graph, openList, statistics, g, parents, closed, q, goalId, goalDistances[position], to);
+			}
+		}
+
+		// No path has been found.
+		statistics.add(search.getStatistics());
+		return null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see co.aurasphere.reply.challenge.training.PathFinder#getStatistics()
+	 */
+	@Override
+	public SearchStatistics getStatistics() {
+		return statistics.get();
+	}
+
+	/**
+	 * Updates the path to a node of the graph if the one through another node
+	 * is shorter.
+	 * 
+	 * @param graph
+	 *            the graph of the clusters
+	 * @param openList
+	 *            the unexplored nodes
+	 * @param statistics
+	 *            the counters of the search
+	 * @param g
+	 *            the cost from the start to each node
+	 * @param parents
+	 *            the parent of each node
+	 * @param closed
+	 *            whether each node has been explored
+	 * @param from
+	 *            the id of the node being explored
+	 * @param to
+	 *            the id of the node to update
+	 * @param distance
+	 *            the distance between the two nodes
+	 * @param goal
+	 *            the goal, within the clusters
+	 */
+	private static void relax(ClusterGraph graph, OpenList openList, SearchStatistics statistics, double[] g,
+			int[] parents, boolean[] closed, int from, int to, float distance, Node goal) {
+		double tentativeGScore = g[from] + distance;
+		if (closed[to] || tentativeGScore >= g[to]) {
+			return;
+		}
+		boolean open = g[to] != Double.POSITIVE_INFINITY;
+		g[to] = tentativeGScore;
+		parents[to] = from;
+
+		// The goal is always the last node, so the heuristic is 0.
+		double f = tentativeGScore + (to < graph.getNodeCount() ? h(graph.getX(to), graph.getY(to), goal) : 0);
+		if (open) {
+			statistics.improved++;
+			openList.update(to, f);
+		} else {
+			openList.add(to, f);
+			statistics.generated++;
+			statistics.updateOpenListPeak(openList.size());
+		}
+	}
+
+	/**
+	 * Converts a path found on the graph into a chain of adjacent nodes,
+	 * refining each move within a cluster with a local search.
+	 * 
+	 * @param graph
+	 *            the graph of the clusters
+	 * @param search
+	 *            the search used to refine the moves
+	 * @param parents
+	 *            the parent of each node of the graph
+	 * @param goalId
+	 *            the id of the goal in the graph
+	 * @param start
+	 *            the starting node
+	 * @param from
+	 *            the starting node moved within the clusters
+	 * @param to
+	 *            the goal moved within the clusters
+	 * @param goal
+	 *            the goal
+	 * @return the goal node, connected to the starting one through its
+	 *         parents
+	 */
+	private static Node buildPath(ClusterGraph graph, ClusterGraph.LocalSearch search, int[] parents, int goalId,
+			Node start, Node from, Node to, Node goal) {
+		// The nodes of the path on the graph, from the start.
+		List<Node> waypoints = new ArrayList<Node>();
+		for (int current = parents[goalId]; parents[current] >= 0; current = parents[current]) {
+			waypoints.add(new Node(graph.getX(current), graph.getY(current)));
+		}
+		waypoints.add(from);
+		Collections.reverse(waypoints);
+		waypoints.add(to);
+
+		List<Node> path = new ArrayList<Node>();
+		path.add(new Node(start.x, start.y));
+		if (!start.equals(from)) {
+			search.addFreePath(start.x, start.y, from.x, from.y, path);
+			path.add(from);
+		}
+		for (int i = 1; i < waypoints.size(); i++) {
+			Node previous = waypoints.get(i - 1);
+			Node next = waypoints.get(i);
+			if (previous.equals(next)) {
+				continue;
+			}
+			int cluster = graph.getCluster(previous.x, previous.y);
+			if (cluster == graph.getCluster(next.x, next.y)) {
+				search.distance(cluster, previous.x, previous.y, next.x, next.y, path);
+			}
+			path.add(next);
+		}
+		if (!goal.equals(to)) {
+			search.addFreePath(to.x, to.y, goal.x, goal.y, path);
+			path.add(new Node(goal.x, goal.y));
+		}
+
+		Node previous = null;
+		for (Node n : path) {
+			n.setParent(previous);
+			previous = n;
+		}
+		return previous;
+	}
+
+	/**
+	 * Returns the estimated cost to reach the goal from a node, which is the
+	 * octile distance.
+	 * 
+	 * @param x
+	 *            the x coordinate of the node
+	 * @param y
+	 *            the y coordinate of the node
+	 * @param goal
+	 *            the goal
+	 * @return the estimated cost to reach the goal
+	 */
+	private static double h(int x, int y, Node goal) {
+		return JumpPointSearch.octile(Math.abs(goal.x - x), Math.abs(goal.y - y));
+	}
+
+}
@@ -0,0 +1,222 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.reply.challenge.training;
+
+import java.util.Arrays;
+
+/**
+ * {@link OpenList} implemented as an indexed d-ary heap. The fitness values
+ * are cached alongside the nodes so that they are computed only once and the
+ * position of each node in the heap is tracked by id, which makes updates
+ * logarithmic.
+ * 
+ * @author Donato Rimenti
+ *
+ */
+public class IndexedHeapOpenList implements OpenList {
+
+	/**
+	 * Number of children of each heap node. A 4-ary heap is shallower than a
+	 * binary one and its children share the same cache lines.
+	 */
+	private static final int ARITY = 4;
+
+	/**
+	 * Initial capacity of the heap.
+	 */
+	private static final int INITIAL_CAPACITY = 1024;
+
+	/**
+	 * The ids of the nodes in the heap.
+	 */
+	private int[] heap = new int[INITIAL_CAPACITY];
+
+	/**
+	 * The fitness value of each node in {@link #heap}, by position.
+	 */
+	private double[] keys = new double[INITIAL_CAPACITY];
+
+	/**
+	 * The position in {@link #heap} of each node, by id, or -1 if the node is
+	 * not in the heap.
+	 */
+	private int[] positions = new int[0];
+
+	/**
+	 * The number of nodes in the heap.
+	 */
+	private int size;
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see co.aurasphere.reply.challenge.training.OpenList#add(int, double)
+	 */
+	@Override
+	public void add(int id, double f) {
+		if (size == heap.length) {
+			heap = Arrays.copyOf(heap, size * 2);
+			keys = Arrays.copyOf(keys, size * 2);
+		}
+		if (id >= positions.length) {
+			int oldLength = positions.length;
+			positions = Arrays.copyOf(positions, Math.max(id + 1, oldLength * 2));
+			Arrays.fill(positions, oldLength, positions.length, -1);
+		}
+		siftUp(size++, id, f);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see co.aurasphere.reply.challenge.training.OpenList#update(int, double)
+	 */
+	@Override
+	public void update(int id, double f) {
+		int index = positions[id];
+		if (f < keys[index]) {
+			siftUp(index, id, f);
+		} else {
+			siftDown(index, id, f);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see co.aurasphere.reply.challenge.training.OpenList#poll()
+	 */
+	@Override
+	public int poll() {
+		if (size == 0) {
+			return -1;
+		}
+		int top = heap[0];
+		positions[top] = -1;
+
+		// Moves the last node on top and restores the heap.
+		size--;
+		if (size > 0) {
+			siftDown(0, heap[size], keys[size]);
+		}
+		return top;
+	}
+
+	/**
+	 * Moves a node up the heap until its parent has a lower fitness.
+	 * 
+	 * @param index
+	 *            the position to start from
+	 * @param id
+	 *            the id of the node to place
+	 * @param f
+	 *            the fitness of the node
+	 */
+	private void siftUp(int index, int id, double f) {
+		while (index > 0) {
+			int parent = (index - 1) / ARITY;
+			if (keys[parent] <= f) {
+				break;
+			}
+			place(index, heap[parent], keys[parent]);
+			index = parent;
+		}
+		place(index, id, f);
+	}
+
+	/**
+	 * Moves a node down the heap until all its children have a higher
+	 * fitness.
+	 * 
+	 * @param index
+	 *            the position to start from
+	 * @param id
+	 *            the id of the node to place
+	 * @param f
+	 *            the fitness of the node
+	 */
+	private void siftDown(int index, int id, double f) {
+		while (true) {
+			int firstChild = index * ARITY + 1;
+			if (firstChild >= size) {
+				break;
+			}
+
+			// Finds the best child.
+			int best = firstChild;
+			int lastChild = Math.min(firstChild + ARITY, size);
+			for (int child = firstChild + 1; child < lastChild; child++) {
+				if (keys[child] < keys[best]) {
+					best = child;
+				}
+			}
+			if (keys[best] >= f) {
+				break;
+			}
+			place(index, heap[best], keys[best]);
+			index = best;
+		}
+		place(index, id, f);
+	}
+
+	/**
+	 * Stores a node in a position of the heap.
+	 * 
+	 * @param index
+	 *            the position of the node
+	 * @param id
+	 *            the id of the node to store
+	 * @param f
+	 *            the fitness of the node
+	 */
+	private void place(int index, int id, double f) {
+		heap[index] = id;
+		keys[index] = f;
+		positions[id] = index;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see co.aurasphere.reply.challenge.training.OpenList#size()
+	 */
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see co.aurasphere.reply.challenge.training.OpenList#clear()
+	 */
+	@Override
+	public void clear() {
+		for (int i = 0; i < size; i++) {
+			positions[heap[i]] = -1;
+		}
+		size = 0;
+	}
+
+}
@@ -0,0 +1,210 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.reply.challenge.training;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.NoSuchElementException;
+
+/**
+ * Streaming parser of the integers in an input file. The file is memory
+ * mapped and the integers are parsed straight from its ASCII bytes, so no
+ * string or other object is created while parsing. Any character other than
+ * digits and minus signs separates two integers.
+ * 
+ * @author Donato Rimenti
+ *
+ */
+public class InputParser {
+
+	/**
+	 * The content of the file.
+	 */
+	private final ByteBuffer buffer;
+
+	/**
+	 * Index of the next byte to parse in the {@link #buffer}.
+	 */
+	private int position;
+
+	/**
+	 * Index of the end of the {@link #buffer}.
+	 */
+	private final int limit;
+
+	/**
+	 * Instantiates a new InputParser.
+	 * 
+	 * @param buffer
+	 *            the content of the file
+	 */
+	public InputParser(ByteBuffer buffer) {
+		this.buffer = buffer;
+		this.position = buffer.position();
+		this.limit = buffer.limit();
+	}
+
+	/**
+	 * Opens an input file. The name is looked up first on the filesystem,
+	 * then on the classpath.
+	 * 
+	 * @param fileName
+	 *            the path of the file or its resource name
+	 * @return a parser of the file
+	 * @throws IOException
+	 *             if the file can't be read or doesn't exist
+	 */
+	public static InputParser open(String fileName) throws IOException {
+		Path path = Paths.get(fileName);
+		if (Files.isRegularFile(path)) {
+			return open(path);
+		}
+		URL resource = InputParser.class.getClassLoader().getResource(fileName);
+		if (resource == null) {
+			throw new IOException("Input file not found: " + fileName);
+		}
+
+		// Resources in a directory are mapped, the ones in a jar are read.
+		if ("file".equals(resource.getProtocol())) {
+			try {
+				return open(Paths.get(resource.toURI()));
+			} catch (URISyntaxException e) {
+				throw new IOException(e);
+			}
+		}
+		try (InputStream in = resource.openStream()) {
+			ByteArrayOutputStream content = new ByteArrayOutputStream();
+			byte[] chunk = new byte[1 << 16];
+			int read;
+			while ((read = in.read(chunk)) > 0) {
+				content.write(chunk, 0, read);
+			}
+			return new InputParser(ByteBuffer.wrap(content.toByteArray()));
+		}
+	}
+
+	/**
+	 * Opens an input file on the filesystem, mapping it in memory.
+	 * 
+	 * @param path
+	 *            the path of the file
+	 * @return a parser of the file
+	 * @throws IOException
+	 *             if the file can't be read
+	 */
+	public static InputParser open(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			// The mapping stays valid after the channel is closed.
+			return new InputParser(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	/**
+	 * Checks if there are more integers to parse.
+	 * 
+	 * @return true if there's another integer, false otherwise
+	 */
+	public boolean hasNext() {
+		position = skipSeparators(position);
+		return position < limit;
+	}
+
+	/**
+	 * Parses the next integer.
+	 * 
+	 * @return the next integer
+	 * @throws NoSuchElementException
+	 *             if there are no more integers
+	 * @throws NumberFormatException
+	 *             if the integer is malformed or too large
+	 */
+	public int nextInt() {
+		int start = skipSeparators(position);
+		if (start == limit) {
+			position = limit;
+			throw new NoSuchElementException("End of input reached");
+		}
+		int i = start;
+		boolean negative = buffer.get(i) == '-';
+		if (negative) {
+			i++;
+		}
+
+		// Accumulates as a negative number, which also fits
+		// Integer.MIN_VALUE.
+		long value = 0;
+		int digitsStart = i;
+		for (; i < limit; i++) {
+			int digit = buffer.get(i) - '0';
+			if (digit < 0 || digit > 9) {
+				break;
+			}
+			value = value * 10 - digit;
+			if (value < Integer.MIN_VALUE) {
+				throw new NumberFormatException("Integer too large at byte " + start);
+			}
+		}
+		position = i;
+		if (i == digitsStart) {
+			throw new NumberFormatException("Malformed integer at byte " + start);
+		}
+		if (negative) {
+			return (int) value;
+		}
+		if (value == Integer.MIN_VALUE) {
+			throw new NumberFormatException("Integer too large at byte " + start);
+		}
+		return (int) -value;
+	}
+
+	/**
+	 * Finds the next digit or minus sign.
+	 * 
+	 * @param from
+	 *            the index of the {@link #buffer} where the search starts
+	 * @return the index of the next digit or minus sign, or {@link #limit} if
+	 *         there are none
+	 */
+	private int skipSeparators(int from) {
+		int i = from;
+		while (i < limit) {
+			byte b = buffer.get(i);
+			if (b == '-' || (b >= '0' && b <= '9')) {
+				break;
+			}
+			i++;
+		}
+		return i;
+	}
+
+}
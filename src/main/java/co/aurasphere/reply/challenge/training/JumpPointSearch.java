@@ -0,0 +1,506 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.reply.challenge.training;
+
+import java.util.Arrays;
+
+import co.aurasphere.reply.challenge.training.model.Node;
+import co.aurasphere.reply.challenge.training.model.NodePool;
+import co.aurasphere.reply.challenge.training.model.ObstacleIndex;
+import co.aurasphere.reply.challenge.training.model.Scene;
+
+/**
+ * Jump Point Search implementation. Since the grid has uniform costs, most of
+ * the paths found by {@link AStarAlgorithm} in open areas are symmetric: this
+ * algorithm prunes them by jumping straight or diagonally until a node with a
+ * forced neighbour (an obstacle corner) is found, and only adds those nodes
+ * to the open list. Diagonal moves follow the same rules of
+ * {@link AStarAlgorithm}: they are allowed as long as the destination node is
+ * valid.
+ * <p>
+ * Jumps are bounded to the box around the obstacles, the start and the goal.
+ * Outside of it there are no obstacles, so clamping any path into the box
+ * never makes it longer and the shortest paths are not affected.
+ * 
+ * @author Donato Rimenti
+ *
+ */
+public class JumpPointSearch implements PathFinder {
+
+	/**
+	 * Scene of the current search.
+	 */
+	private Scene scene;
+
+	/**
+	 * Final destination to reach with this algorithm.
+	 */
+	private Node target;
+
+	/**
+	 * Static weight of the heuristic function. With 1, the paths found are
+	 * the shortest on the grid.
+	 */
+	private final double staticWeight;
+
+	/**
+	 * Unexplored jump points, ordered by fitness.
+	 */
+	private final OpenList openList = new IndexedHeapOpenList();
+
+	/**
+	 * Counters of the work done by the last search.
+	 */
+	private final SearchStatistics statistics = new SearchStatistics();
+
+	/**
+	 * State of the jump points discovered by the current search.
+	 */
+	private final NodePool pool = new NodePool();
+
+	/**
+	 * Id of the parent of each jump point, by id, or -1 for the start.
+	 */
+	private int[] parents = new int[1024];
+
+	/**
+	 * Lowest x coordinate a jump can reach.
+	 */
+	private int minX;
+
+	/**
+	 * Lowest y coordinate a jump can reach.
+	 */
+	private int minY;
+
+	/**
+	 * Highest x coordinate a jump can reach.
+	 */
+	private int maxX;
+
+	/**
+	 * Highest y coordinate a jump can reach.
+	 */
+	private int maxY;
+
+	/**
+	 * X coordinate of the last jump point found.
+	 */
+	private int jumpX;
+
+	/**
+	 * Y coordinate of the last jump point found.
+	 */
+	private int jumpY;
+
+	/**
+	 * Instantiates a new JumpPointSearch which finds the shortest paths.
+	 */
+	public JumpPointSearch() {
+		this(1);
+	}
+
+	/**
+	 * Instantiates a new JumpPointSearch.
+	 * 
+	 * @param staticWeight
+	 *            the weight of the heuristic function
+	 */
+	public JumpPointSearch(double staticWeight) {
+		this.staticWeight = staticWeight;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * co.aurasphere.reply.challenge.training.PathFinder#calculateShortestPath(
+	 * co.aurasphere.reply.challenge.training.model.Scene,
+	 * co.aurasphere.reply.challenge.training.model.Node,
+	 * co.aurasphere.reply.challenge.training.model.Node)
+	 */
+	@Override
+	public Node calculateShortestPath(Scene scene, Node start, Node goal) {
+		this.scene = scene;
+		this.target = goal;
+		statistics.reset();
+		initBounds(start, goal);
+		openList.clear();
+		pool.clear();
+
+		int startId = pool.findOrAdd(start.x, start.y);
+		pool.setPath(startId, 0, NodePool.NO_DIRECTION);
+		setParent(startId, -1);
+		pool.setOpen(startId);
+		openList.add(startId, f(startId));
+
+		while (!openList.isEmpty()) {
+			int q = openList.poll();
+			statistics.expanded++;
+			int qx = pool.getX(q);
+			int qy = pool.getY(q);
+			pool.setClosed(q);
+
+			// Since jump points are only reached by straight lines, the goal
+			// is checked when expanded to get the shortest path.
+			if (qx == goal.x && qy == goal.y) {
+				return buildPath(q);
+			}
+
+			int parent = parents[q];
+			if (parent < 0) {
+				// The starting node has no pruning.
+				for (int direction = 0; direction < NodePool.DIRECTIONS; direction++) {
+					jumpAndAdd(q, NodePool.dx(direction), NodePool.dy(direction));
+				}
+				continue;
+			}
+
+			// Direction of the move from the parent.
+			int dx = Integer.signum(qx - pool.getX(parent));
+			int dy = Integer.signum(qy - pool.getY(parent));
+			if (dx != 0 && dy != 0) {
+				// Diagonal move: natural neighbours plus the forced ones.
+				jumpAndAdd(q, 0, dy);
+				jumpAndAdd(q, dx, 0);
+				jumpAndAdd(q, dx, dy);
+				if (!isWalkable(qx - dx, qy)) {
+					jumpAndAdd(q, -dx, dy);
+				}
+				if (!isWalkable(qx, qy - dy)) {
+					jumpAndAdd(q, dx, -dy);
+				}
+			} else if (dx == 0) {
+				// Vertical move.
+				jumpAndAdd(q, 0, dy);
+				if (!isWalkable(qx + 1, qy)) {
+					jumpAndAdd(q, 1, dy);
+				}
+				if (!isWalkable(qx - 1, qy)) {
+					jumpAndAdd(q, -1, dy);
+				}
+			} else {
+				// Horizontal move.
+				jumpAndAdd(q, dx, 0);
+				if (!isWalkable(qx, qy + 1)) {
+					jumpAndAdd(q, dx, 1);
+				}
+				if (!isWalkable(qx, qy - 1)) {
+					jumpAndAdd(q, dx, -1);
+				}
+			}
+		}
+
+		// No path has been found.
+		return null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see co.aurasphere.reply.challenge.training.PathFinder#getStatistics()
+	 */
+	@Override
+	public SearchStatistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * Jumps from a node in a direction and adds the jump point found, if any,
+	 * to the open list.
+	 * 
+	 * @param from
+	 *            the id of the node to jump from
+	 * @param dx
+	 *            the horizontal direction of the jump
+	 * @param dy
+	 *            the vertical direction of the jump
+	 */
+	private void jumpAndAdd(int from, int dx, int dy) {
+		int fromX = pool.getX(from);
+		int fromY = pool.getY(from);
+		boolean found = dx != 0 && dy != 0 ? jumpDiagonal(fromX + dx, fromY + dy, dx, dy)
+				: jumpStraight(fromX + dx, fromY + dy, dx, dy);
+		if (!found) {
+			return;
+		}
+
+		int successor = pool.findOrAdd(jumpX, jumpY);
+		if (pool.isClosed(successor)) {
+			return;
+		}
+		float tentativeGScore = pool.getG(from) + distance(fromX, fromY, jumpX, jumpY);
+		if (tentativeGScore >= pool.getG(successor)) {
+			return;
+		}
+		pool.setPath(successor, tentativeGScore, NodePool.NO_DIRECTION);
+		setParent(successor, from);
+		if (pool.isOpen(successor)) {
+			statistics.improved++;
+			openList.update(successor, f(successor));
+		} else {
+			pool.setOpen(successor);
+			openList.add(successor, f(successor));
+			statistics.generated++;
+			statistics.updateOpenListPeak(openList.size());
+		}
+	}
+
+	/**
+	 * Moves horizontally or vertically until a jump point or an invalid node
+	 * is found. A node is a jump point if it's the goal or if it has a forced
+	 * neighbour, which is a node reachable only through it because of an
+	 * adjacent obstacle.
+	 * 
+	 * @param x
+	 *            the x coordinate of the first node to check
+	 * @param y
+	 *            the y coordinate of the first node to check
+	 * @param dx
+	 *            the horizontal direction of the jump
+	 * @param dy
+	 *            the vertical direction of the jump
+	 * @return true if a jump point has been found, whose coordinates are
+	 *         stored in {@link #jumpX} and {@link #jumpY}, false otherwise
+	 */
+	private boolean jumpStraight(int x, int y, int dx, int dy) {
+		int firstX = x;
+		int firstY = y;
+		boolean found = false;
+		while (isWalkable(x, y)) {
+			if (x == target.x && y == target.y) {
+				found = foundAt(x, y);
+				break;
+			}
+			if (dx != 0) {
+				if ((isWalkable(x + dx, y + 1) && !isWalkable(x, y + 1))
+						|| (isWalkable(x + dx, y - 1) && !isWalkable(x, y - 1))) {
+					found = foundAt(x, y);
+					break;
+				}
+			} else if ((isWalkable(x + 1, y + dy) && !isWalkable(x + 1, y))
+					|| (isWalkable(x - 1, y + dy) && !isWalkable(x - 1, y))) {
+				found = foundAt(x, y);
+				break;
+			}
+			x += dx;
+			y += dy;
+		}
+
+		// Counted once per jump to keep the loop free of the statistics.
+		statistics.obstacleTests += Math.abs(x - firstX) + Math.abs(y - firstY) + 1;
+		return found;
+	}
+
+	/**
+	 * Moves diagonally until a jump point or an invalid node is found. Other
+	 * than the conditions of {@link #jumpStraight(int, int, int, int)}, a node
+	 * is also a jump point if a straight jump along one of the two components
+	 * of the direction finds one.
+	 * 
+	 * @param x
+	 *            the x coordinate of the first node to check
+	 * @param y
+	 *            the y coordinate of the first node to check
+	 * @param dx
+	 *            the horizontal direction of the jump
+	 * @param dy
+	 *            the vertical direction of the jump
+	 * @return true if a jump point has been found, whose coordinates are
+	 *         stored in {@link #jumpX} and {@link #jumpY}, false otherwise
+	 */
+	private boolean jumpDiagonal(int x, int y, int dx, int dy) {
+		int firstX = x;
+		boolean found = false;
+		while (isWalkable(x, y)) {
+			if (x == target.x && y == target.y) {
+				found = foundAt(x, y);
+				break;
+			}
+			if ((isWalkable(x - dx, y + dy) && !isWalkable(x - dx, y))
+					|| (isWalkable(x + dx, y - dy) && !isWalkable(x, y - dy))) {
+				found = foundAt(x, y);
+				break;
+			}
+			if (jumpStraight(x + dx, y, dx, 0) || jumpStraight(x, y + dy, 0, dy)) {
+				found = foundAt(x, y);
+				break;
+			}
+			x += dx;
+			y += dy;
+		}
+		statistics.obstacleTests += Math.abs(x - firstX) + 1;
+		return found;
+	}
+
+	/**
+	 * Stores the coordinates of a jump point.
+	 * 
+	 * @param x
+	 *            the x coordinate of the jump point
+	 * @param y
+	 *            the y coordinate of the jump point
+	 * @return always true
+	 */
+	private boolean foundAt(int x, int y) {
+		jumpX = x;
+		jumpY = y;
+		return true;
+	}
+
+	/**
+	 * Checks that a node is valid and within the bounds of the jumps.
+	 * 
+	 * @param x
+	 *            the x coordinate of the node
+	 * @param y
+	 *            the y coordinate of the node
+	 * @return true if the node can be walked on, false otherwise
+	 */
+	private boolean isWalkable(int x, int y) {
+		return x >= minX && x <= maxX && y >= minY && y <= maxY && scene.isValid(x, y);
+	}
+
+	/**
+	 * Computes the bounds of the jumps as the box around the obstacles, the
+	 * start and the goal, plus a free border of one node.
+	 * 
+	 * @param start
+	 *            the starting node
+	 * @param goal
+	 *            the ending node
+	 */
+	private void initBounds(Node start, Node goal) {
+		ObstacleIndex index = scene.getObstacleIndex();
+		minX = Math.min(Math.min(start.x, goal.x), index.getMinX()) - 1;
+		minY = Math.min(Math.min(start.y, goal.y), index.getMinY()) - 1;
+		maxX = Math.max(Math.max(start.x, goal.x), index.getMaxX()) + 1;
+		maxY = Math.max(Math.max(start.y, goal.y), index.getMaxY()) + 1;
+	}
+
+	/**
+	 * Sets the parent of a jump point.
+	 * 
+	 * @param id
+	 *            the id of the jump point
+	 * @param parent
+	 *            the id of the parent
+	 */
+	private void setParent(int id, int parent) {
+		if (id >= parents.length) {
+			parents = Arrays.copyOf(parents, Math.max(id + 1, parents.length * 2));
+		}
+		parents[id] = parent;
+	}
+
+	/**
+	 * Converts a path of jump points into a chain of adjacent nodes, filling
+	 * the straight lines between each jump point and its parent.
+	 * 
+	 * @param last
+	 *            the id of the goal in the pool
+	 * @return the goal node, connected to the starting one through its
+	 *         parents
+	 */
+	private Node buildPath(int last) {
+		Node goal = new Node(pool.getX(last), pool.getY(last));
+		goal.setG(pool.getG(last));
+
+		Node child = goal;
+		for (int current = last; parents[current] >= 0; current = parents[current]) {
+			int parent = parents[current];
+			int parentX = pool.getX(parent);
+			int parentY = pool.getY(parent);
+			int dx = Integer.signum(parentX - child.x);
+			int dy = Integer.signum(parentY - child.y);
+
+			// Walks back to the parent one node at a time.
+			while (child.x != parentX || child.y != parentY) {
+				Node node = new Node(child.x + dx, child.y + dy);
+				node.setG(child.getG() - (dx != 0 && dy != 0 ? AStarAlgorithm.DIAGONAL_COST : 1));
+				child.setParent(node);
+				child = node;
+			}
+		}
+		return goal;
+	}
+
+	/**
+	 * Returns the length of a straight or diagonal line between two nodes.
+	 * 
+	 * @param x0
+	 *            the x coordinate of the first node
+	 * @param y0
+	 *            the y coordinate of the first node
+	 * @param x1
+	 *            the x coordinate of the second node
+	 * @param y1
+	 *            the y coordinate of the second node
+	 * @return the length of the line between the nodes
+	 */
+	private static float distance(int x0, int y0, int x1, int y1) {
+		return (float) octile(Math.abs(x1 - x0), Math.abs(y1 - y0));
+	}
+
+	/**
+	 * Returns the octile distance for a displacement, which is the length of
+	 * the shortest path on a grid where diagonal moves cost
+	 * {@link AStarAlgorithm#DIAGONAL_COST}.
+	 * 
+	 * @param dx
+	 *            the absolute horizontal displacement
+	 * @param dy
+	 *            the absolute vertical displacement
+	 * @return the octile distance
+	 */
+	static double octile(int dx, int dy) {
+		return Math.max(dx, dy) + (AStarAlgorithm.DIAGONAL_COST - 1) * Math.min(dx, dy);
+	}
+
+	/**
+	 * Returns the fitness for a node n. The lowest the fitness, the best is the
+	 * node.
+	 * 
+	 * @param n
+	 *            the id of the node whose fitness value needs to be computed
+	 * @return the fitness score for the node n
+	 */
+	private double f(int n) {
+		return pool.getG(n) + staticWeight * h(n);
+	}
+
+	/**
+	 * Returns the estimated cost to reach the ending node from the node n. The
+	 * octile distance is used, which is exact on a grid without obstacles.
+	 * 
+	 * @param n
+	 *            the id of the node whose cost to reach the end needs to be
+	 *            estimated
+	 * @return the estimated cost to reach the end from the node n
+	 */
+	private double h(int n) {
+		return octile(Math.abs(pool.getX(n) - target.x), Math.abs(pool.getY(n) - target.y));
+	}
+
+}
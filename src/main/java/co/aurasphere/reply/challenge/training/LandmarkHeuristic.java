@@ -0,0 +1,693 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.reply.challenge.training;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import co.aurasphere.reply.challenge.training.model.Obstacle;
+import co.aurasphere.reply.challenge.training.model.ObstacleIndex;
+import co.aurasphere.reply.challenge.training.model.Scene;
+
+/**
+ * Lower bound of the distance between two grid points based on landmarks
+ * (ALT): by the triangle inequality, the distance between two points is at
+ * least the difference of their distances from any other point. The
+ * landmarks are spread along the border of the area around the obstacles and
+ * their distances are computed in parallel, once for each set of obstacles,
+ * on a coarse grid whose cells are only blocked if they lie deep inside an
+ * obstacle.
+ * <p>
+ * The distance of a grid point from a landmark is interpolated from the
+ * corners of its cell, each cell being split in two triangles along the
+ * diagonal which fits the distances best. The coarse distances are not exact,
+ * so the interpolated ones could change faster than a path can move. To keep
+ * the bound admissible and consistent, the steepest slope of the
+ * interpolated distances over the cells a path can cross is measured for
+ * each landmark and their differences are divided by it. Paths can't cross
+ * the blocked cells, so the distances may change arbitrarily across them,
+ * which is what makes this bound higher than the octile distance.
+ * 
+ * @author Donato Rimenti
+ *
+ */
+public class LandmarkHeuristic {
+
+	/**
+	 * Default number of landmarks.
+	 */
+	public static final int DEFAULT_LANDMARKS = 8;
+
+	/**
+	 * Default length of the side of a cell.
+	 */
+	public static final int DEFAULT_CELL_SIZE = 16;
+
+	/**
+	 * Returned by {@link #span(int[], int, long)} for the rows which don't
+	 * cross an obstacle.
+	 */
+	private static final long EMPTY_SPAN = Long.MIN_VALUE;
+
+	/**
+	 * Directions in which the landmarks of a component are searched, in
+	 * opposite pairs.
+	 */
+	private static final int[][] EXTREMES = { { 1, 1 }, { -1, -1 }, { 1, -1 }, { -1, 1 }, { 1, 0 }, { -1, 0 },
+			{ 0, 1 }, { 0, -1 } };
+
+	/**
+	 * Number of landmarks placed in each component, if there are enough
+	 * components.
+	 */
+	private static final int EXTREMES_PER_COMPONENT = 4;
+
+	/**
+	 * Components smaller than this fraction of the free cells get no
+	 * landmarks.
+	 */
+	private static final int MIN_COMPONENT_SHARE = 256;
+
+	/**
+	 * Steps between the corners in each direction, along the x axis.
+	 */
+	private static final int[] DX = { -1, 0, 1, -1, 1, -1, 0, 1 };
+
+	/**
+	 * Steps between the corners in each direction, along the y axis.
+	 */
+	private static final int[] DY = { -1, -1, -1, 0, 0, 1, 1, 1 };
+
+	/**
+	 * Length of a diagonal step, in cells.
+	 */
+	private static final float DIAGONAL_STEP = (float) Math.sqrt(2);
+
+	/**
+	 * Length of the side of a cell.
+	 */
+	private final int cellSize;
+
+	/**
+	 * X coordinate of the first corner of the grid.
+	 */
+	private final int minX;
+
+	/**
+	 * Y coordinate of the first corner of the grid.
+	 */
+	private final int minY;
+
+	/**
+	 * Number of cells along the x axis.
+	 */
+	private final int columns;
+
+	/**
+	 * Number of cells along the y axis.
+	 */
+	private final int rows;
+
+	/**
+	 * Whether each cell lies deep inside an obstacle, so that no path can
+	 * cross it.
+	 */
+	private final boolean[] blocked;
+
+	/**
+	 * Distances of the corners of the cells from each landmark, infinite for
+	 * the corners not connected to it.
+	 */
+	private final float[][] distances;
+
+	/**
+	 * Whether each cell is split along its anti-diagonal, for each landmark.
+	 */
+	private final boolean[][] antiDiagonals;
+
+	/**
+	 * The inverse of the steepest slope of the interpolated distances from
+	 * each landmark, which makes them change no faster than a path.
+	 */
+	private final double[] factors;
+
+	/**
+	 * Computes the distances from {@link #DEFAULT_LANDMARKS} landmarks on
+	 * cells of {@link #DEFAULT_CELL_SIZE}.
+	 * 
+	 * @param scene
+	 *            the scene of the obstacles
+	 */
+	public LandmarkHeuristic(Scene scene) {
+		this(scene, DEFAULT_LANDMARKS, DEFAULT_CELL_SIZE);
+	}
+
+	/**
+	 * Computes the distances from the landmarks in parallel.
+	 * 
+	 * @param scene
+	 *            the scene of the obstacles
+	 * @param landmarks
+	 *            the number of landmarks
+	 * @param cellSize
+	 *            the length of the side of a cell
+	 */
+	public LandmarkHeuristic(Scene scene, int landmarks, int cellSize) {
+		if (landmarks < 1 || cellSize < 1) {
+			throw new IllegalArgumentException("Invalid landmarks: " + landmarks + ", cell size " + cellSize);
+		}
+		this.cellSize = cellSize;
+		ObstacleIndex index = scene.getObstacleIndex();
+
+		// A ring of free cells around the obstacles keeps the landmarks
+		// connected to each other.
+		this.minX = index.getMinX() - cellSize;
+		this.minY = index.getMinY() - cellSize;
+		this.columns = (index.getMaxX() + cellSize - minX) / cellSize + 1;
+		this.rows = (index.getMaxY() + cellSize - minY) / cellSize + 1;
+		this.blocked = new boolean[columns * rows];
+		markBlocked(scene.getObstacles());
+
+		int[] sources = chooseLandmarks(landmarks);
+		byte[] freeEdges = findFreeEdges();
+		this.distances = new float[landmarks][];
+		this.antiDiagonals = new boolean[landmarks][];
+		this.factors = new double[landmarks];
+		IntStream.range(0, landmarks).parallel().forEach(l -> computeDistances(l, sources[l], freeEdges));
+	}
+
+	/**
+	 * Marks the cells whose points, including the ones on their border, are
+	 * all inside the obstacles. The grid is swept row by row, merging the
+	 * spans of the obstacles crossing each row, so that cells covered by
+	 * overlapping obstacles are blocked as well.
+	 * 
+	 * @param obstacles
+	 *            the obstacles
+	 */
+	private void markBlocked(List<Obstacle> obstacles) {
+		// The vertices of the obstacles sorted by their lowest y, in
+		// counterclockwise order so that the inside is on the left of the
+		// edges. Degenerate obstacles are left out, which can only block less.
+		Obstacle[] sorted = obstacles.toArray(new Obstacle[0]);
+		Arrays.sort(sorted, (a, b) -> Integer.compare(a.getMinY(), b.getMinY()));
+		int[] triangles = new int[sorted.length * 6];
+		int[] lastRows = new int[sorted.length];
+		int triangleCount = 0;
+		for (Obstacle obstacle : sorted) {
+			int[] vertices = obstacle.getVertices();
+			long area = (long) (vertices[2] - vertices[0]) * (vertices[5] - vertices[1])
+					- (long) (vertices[3] - vertices[1]) * (vertices[4] - vertices[0]);
+			if (area == 0) {
+				continue;
+			}
+			int offset = triangleCount * 6;
+			System.arraycopy(vertices, 0, triangles, offset, 6);
+			if (area < 0) {
+				triangles[offset + 2] = vertices[4];
+				triangles[offset + 3] = vertices[5];
+				triangles[offset + 4] = vertices[2];
+				triangles[offset + 5] = vertices[3];
+			}
+			lastRows[triangleCount++] = obstacle.getMaxY();
+		}
+
+		Arrays.fill(blocked, true);
+		boolean[] covered = new boolean[columns];
+		int[] crossing = new int[triangleCount];
+		int crossingCount = 0;
+		int next = 0;
+		long[] spans = new long[16];
+		for (int y = minY; y <= minY + rows * cellSize; y++) {
+			// Updates the obstacles crossing the row.
+			int kept = 0;
+			for (int i = 0; i < crossingCount; i++) {
+				if (lastRows[crossing[i]] >= y) {
+					crossing[kept++] = crossing[i];
+				}
+			}
+			crossingCount = kept;
+			while (next < triangleCount && Math.min(triangles[next * 6 + 1],
+					Math.min(triangles[next * 6 + 3], triangles[next * 6 + 5])) <= y) {
+				crossing[crossingCount++] = next++;
+			}
+
+			// Merges the spans, sorted by their start.
+			int spanCount = 0;
+			for (int i = 0; i < crossingCount; i++) {
+				long span = span(triangles, crossing[i] * 6, y);
+				if (span != EMPTY_SPAN) {
+					if (spanCount == spans.length) {
+						spans = Arrays.copyOf(spans, spanCount * 2);
+					}
+					spans[spanCount++] = span;
+				}
+			}
+			Arrays.sort(spans, 0, spanCount);
+			Arrays.fill(covered, false);
+			int column = 0;
+			long mergedStart = 0;
+			long mergedEnd = Long.MIN_VALUE;
+			for (int i = 0; i <= spanCount && column < columns; i++) {
+				long start = i < spanCount ? (spans[i] >> 32) : Long.MAX_VALUE;
+				if (start <= mergedEnd + 1) {
+					mergedEnd = Math.max(mergedEnd, (int) spans[i]);
+					continue;
+				}
+				// A merged span is complete: marks the cells within it.
+				if (mergedEnd != Long.MIN_VALUE) {
+					while (column < columns && (long) minX + column * cellSize < mergedStart) {
+						column++;
+					}
+					while (column < columns && (long) minX + (column + 1) * cellSize <= mergedEnd) {
+						covered[column++] = true;
+					}
+				}
+				if (i < spanCount) {
+					mergedStart = start;
+					mergedEnd = (int) spans[i];
+				}
+			}
+
+			// The first row of a cell is also the last one of the previous.
+			int row = (y - minY) / cellSize;
+			for (int r = (y - minY) % cellSize == 0 ? row - 1 : row; r <= Math.min(row, rows - 1); r++) {
+				if (r < 0) {
+					continue;
+				}
+				for (column = 0; column < columns; column++) {
+					blocked[r * columns + column] &= covered[column];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the span of the points of a row inside a triangle.
+	 * 
+	 * @param triangles
+	 *            the vertices of the triangles, in counterclockwise order
+	 * @param offset
+	 *            the position of the first vertex of the triangle
+	 * @param y
+	 *            the y coordinate of the row
+	 * @return the first x coordinate in the upper half and the last one in
+	 *         the lower half, or {@link #EMPTY_SPAN} if no point of the row is
+	 *         inside the triangle
+	 */
+	private static long span(int[] triangles, int offset, long y) {
+		long first = Integer.MIN_VALUE;
+		long last = Integer.MAX_VALUE;
+		for (int vertex = 0; vertex < 6; vertex += 2) {
+			long x0 = triangles[offset + vertex];
+			long y0 = triangles[offset + vertex + 1];
+			long dx = triangles[offset + (vertex + 2) % 6] - x0;
+			long dy = triangles[offset + (vertex + 3) % 6] - y0;
+
+			// The point is on the left of the edge if dy * x <= bound.
+			long bound = dx * (y - y0) + dy * x0;
+			if (dy > 0) {
+				last = Math.min(last, Math.floorDiv(bound, dy));
+			} else if (dy < 0) {
+				first = Math.max(first, -Math.floorDiv(bound, -dy));
+			} else if (bound < 0) {
+				return EMPTY_SPAN;
+			}
+		}
+		return first > last ? EMPTY_SPAN : first << 32 | (last & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Finds the edges between the corners which a path can follow, shared by
+	 * the searches from all the landmarks.
+	 * 
+	 * @return for each corner, a bit for each direction in {@link #DX} and
+	 *         {@link #DY} set if the edge in that direction is free
+	 */
+	private byte[] findFreeEdges() {
+		int width = columns + 1;
+		byte[] freeEdges = new byte[width * (rows + 1)];
+		for (int row = 0; row <= rows; row++) {
+			for (int column = 0; column <= columns; column++) {
+				int edges = 0;
+				for (int direction = 0; direction < 8; direction++) {
+					if (isEdgeFree(column, row, DX[direction], DY[direction])) {
+						edges |= 1 << direction;
+					}
+				}
+				freeEdges[row * width + column] = (byte) edges;
+			}
+		}
+		return freeEdges;
+	}
+
+	/**
+	 * Computes the distances of the corners from a landmark with a Dijkstra
+	 * search, then chooses how to split each cell and measures the steepest
+	 * slope of the interpolated distances.
+	 * 
+	 * @param landmark
+	 *            the index of the landmark
+	 * @param source
+	 *            the index of the corner of the landmark
+	 * @param freeEdges
+	 *            the free edges of each corner, see {@link #findFreeEdges()}
+	 */
+	private void computeDistances(int landmark, int source, byte[] freeEdges) {
+		int width = columns + 1;
+		float[] corners = new float[width * (rows + 1)];
+		Arrays.fill(corners, Float.POSITIVE_INFINITY);
+		OpenList openList = new IndexedHeapOpenList();
+		corners[source] = 0;
+		openList.add(source, 0);
+		while (!openList.isEmpty()) {
+			int corner = openList.poll();
+			int edges = freeEdges[corner];
+			for (int direction = 0; direction < 8; direction++) {
+				if ((edges & 1 << direction) == 0) {
+					continue;
+				}
+				int dx = DX[direction];
+				int dy = DY[direction];
+				int next = corner + dy * width + dx;
+				float distance = corners[corner] + (dx != 0 && dy != 0 ? DIAGONAL_STEP : 1) * cellSize;
+				if (distance < corners[next]) {
+					if (corners[next] == Float.POSITIVE_INFINITY) {
+						openList.add(next, distance);
+					} else {
+						openList.update(next, distance);
+					}
+					corners[next] = distance;
+				}
+			}
+		}
+
+		boolean[] antiDiagonal = new boolean[columns * rows];
+		double steepest = 1;
+		for (int row = 0; row < rows; row++) {
+			for (int column = 0; column < columns; column++) {
+				int corner = row * width + column;
+				if (blocked[row * columns + column] || corners[corner] == Float.POSITIVE_INFINITY) {
+					continue;
+				}
+				double d00 = corners[corner];
+				double d10 = corners[corner + 1];
+				double d01 = corners[corner + width];
+				double d11 = corners[corner + width + 1];
+				double diagonal = Math.max(slope(d10 - d00, d11 - d10), slope(d11 - d01, d01 - d00));
+				double anti = Math.max(slope(d10 - d00, d01 - d00), slope(d11 - d01, d11 - d10));
+				antiDiagonal[row * columns + column] = anti < diagonal;
+				steepest = Math.max(steepest, Math.min(diagonal, anti) / cellSize);
+				}
+		}
+		distances[landmark] = corners;
+		antiDiagonals[landmark] = antiDiagonal;
+		factors[landmark] = 1 / steepest;
+	}
+
+	/**
+	 * Returns the slope of a linear function with the given increments along
+	 * the axes, measured against the octile distance.
+	 * 
+	 * @param dx
+	 *            the increment along the x axis
+	 * @param dy
+	 *            the increment along the y axis
+	 * @return the highest ratio between the change of the function and the
+	 *         octile length of a move
+	 */
+	private static double slope(double dx, double dy) {
+		dx = Math.abs(dx);
+		dy = Math.abs(dy);
+		return Math.max(Math.max(dx, dy), (dx + dy) / DIAGONAL_STEP);
+	}
+
+	/**
+	 * Checks if the edge between two neighbour corners runs along or across
+	 * a cell which is not blocked.
+	 * 
+	 * @param column
+	 *            the column of the first corner
+	 * @param row
+	 *            the row of the first corner
+	 * @param dx
+	 *            the step to the second corner along the x axis
+	 * @param dy
+	 *            the step to the second corner along the y axis
+	 * @return true if the edge is free, false otherwise
+	 */
+	private boolean isEdgeFree(int column, int row, int dx, int dy) {
+		int nextColumn = column + dx;
+		int nextRow = row + dy;
+		if (nextColumn < 0 || nextColumn > columns || nextRow < 0 || nextRow > rows) {
+			return false;
+		}
+		int cellColumn = Math.min(column, nextColumn);
+		int cellRow = Math.min(row, nextRow);
+		if (dx != 0 && dy != 0) {
+			return isCellFree(cellColumn, cellRow);
+		}
+		// Straight edges lie between two cells.
+		return dx != 0 ? isCellFree(cellColumn, row - 1) || isCellFree(cellColumn, row)
+				: isCellFree(column - 1, cellRow) || isCellFree(column, cellRow);
+	}
+
+	/**
+	 * Checks if a cell exists and is not blocked.
+	 * 
+	 * @param column
+	 *            the column of the cell
+	 * @param row
+	 *            the row of the cell
+	 * @return true if the cell is free, false otherwise
+	 */
+	private boolean isCellFree(int column, int row) {
+		return column >= 0 && column < columns && row >= 0 && row < rows && !blocked[row * columns + column];
+	}
+
+	/**
+	 * Chooses the landmarks among the free cells. Landmarks far from each
+	 * other and at the border of the free space give the best bounds, so
+	 * they're placed in the cells which are the farthest in opposite
+	 * directions. Paths can't leave the component of free cells they start
+	 * from, so the largest components share the landmarks.
+	 * 
+	 * @param landmarks
+	 *            the number of landmarks
+	 * @return the index of the first corner of the cell of each landmark
+	 */
+	private int[] chooseLandmarks(int landmarks) {
+		// Labels the connected components of free cells.
+		int[] components = new int[blocked.length];
+		Arrays.fill(components, -1);
+		int[] queue = new int[blocked.length];
+		int[] sizes = new int[16];
+		int componentCount = 0;
+		int freeCells = 0;
+		for (int cell = 0; cell < blocked.length; cell++) {
+			if (blocked[cell] || components[cell] >= 0) {
+				continue;
+			}
+			int head = 0;
+			int tail = 0;
+			queue[tail++] = cell;
+			components[cell] = componentCount;
+			while (head < tail) {
+				int current = queue[head++];
+				int column = current % columns;
+				int row = current / columns;
+				for (int direction = 0; direction < 8; direction++) {
+					int next = current + DY[direction] * columns + DX[direction];
+					if (isCellFree(column + DX[direction], row + DY[direction]) && components[next] < 0) {
+						components[next] = componentCount;
+						queue[tail++] = next;
+					}
+				}
+			}
+			if (componentCount == sizes.length) {
+				sizes = Arrays.copyOf(sizes, componentCount * 2);
+			}
+			sizes[componentCount++] = tail;
+			freeCells += tail;
+		}
+
+		// The largest components, up to one every four landmarks, sorted by
+		// size.
+		int[] chosen = new int[Math.max(1, landmarks / EXTREMES_PER_COMPONENT)];
+		int chosenCount = 0;
+		for (int i = 0; i < chosen.length; i++) {
+			int largest = -1;
+			for (int component = 0; component < componentCount; component++) {
+				if ((largest < 0 || sizes[component] > sizes[largest])
+						&& (long) sizes[component] * MIN_COMPONENT_SHARE >= freeCells) {
+					largest = component;
+				}
+			}
+			if (largest < 0) {
+				break;
+			}
+			chosen[chosenCount++] = largest;
+			sizes[largest] = -sizes[largest];
+		}
+
+		// Each landmark is the farthest cell of its component in a direction,
+		// with the directions of each component taken in opposite pairs.
+		int[] sources = new int[landmarks];
+		long[] best = new long[landmarks];
+		Arrays.fill(best, Long.MIN_VALUE);
+		for (int cell = 0; cell < blocked.length; cell++) {
+			if (blocked[cell]) {
+				continue;
+			}
+			int column = cell % columns;
+			int row = cell / columns;
+			for (int landmark = 0; landmark < landmarks; landmark++) {
+				int[] extreme = EXTREMES[landmark / chosenCount % EXTREMES.length];
+				// Ties are broken by the distance from the center line.
+				long across = Math.abs(2L * (extreme[0] * row - extreme[1] * column) - extreme[0] * rows
+						+ extreme[1] * columns);
+				long score = (extreme[0] * column + extreme[1] * row) * 4L * (columns + rows) - across;
+				if (components[cell] == chosen[landmark % chosenCount] && score > best[landmark]) {
+					best[landmark] = score;
+					sources[landmark] = row * (columns + 1) + column;
+				}
+			}
+		}
+		return sources;
+	}
+
+	/**
+	 * Returns the interpolated distances of a point from the landmarks, to be
+	 * used as the target of {@link #estimate(int, int, double[])}.
+	 * 
+	 * @param x
+	 *            the x coordinate of the point
+	 * @param y
+	 *            the y coordinate of the point
+	 * @return the distances of the point from each landmark, NaN for the
+	 *         landmarks which can't be used, or null if the point lies in a
+	 *         blocked cell
+	 */
+	public double[] distances(int x, int y) {
+		int column = clamp((x - minX) / cellSize, columns);
+		int row = clamp((y - minY) / cellSize, rows);
+		if (x >= minX && y >= minY && blocked[row * columns + column]) {
+			return null;
+		}
+		double[] result = new double[distances.length];
+		for (int landmark = 0; landmark < distances.length; landmark++) {
+			result[landmark] = distance(landmark, x, y);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the lower bound of the distance between a point and a target.
+	 * 
+	 * @param x
+	 *            the x coordinate of the point
+	 * @param y
+	 *            the y coordinate of the point
+	 * @param target
+	 *            the distances of the target from the landmarks, from
+	 *            {@link #distances(int, int)}
+	 * @return the lower bound of the distance between the point and the
+	 *         target
+	 */
+	public double estimate(int x, int y, double[] target) {
+		double estimate = 0;
+		for (int landmark = 0; landmark < target.length; landmark++) {
+			double bound = Math.abs(distance(landmark, x, y) - target[landmark]) * factors[landmark];
+			// NaN for landmarks not connected to either point.
+			if (bound > estimate) {
+				estimate = bound;
+			}
+		}
+		return estimate;
+	}
+
+	/**
+	 * Interpolates the distance of a point from a landmark. Points outside of
+	 * the grid are moved to its border, which keeps the slope unchanged.
+	 * 
+	 * @param landmark
+	 *            the index of the landmark
+	 * @param x
+	 *            the x coordinate of the point
+	 * @param y
+	 *            the y coordinate of the point
+	 * @return the distance of the point from the landmark, or NaN if the
+	 *         point is not connected to the landmark
+	 */
+	private double distance(int landmark, int x, int y) {
+		double u = Math.min(Math.max(x - minX, 0), columns * cellSize);
+		double v = Math.min(Math.max(y - minY, 0), rows * cellSize);
+		int column = clamp((int) u / cellSize, columns);
+		int row = clamp((int) v / cellSize, rows);
+		u = u / cellSize - column;
+		v = v / cellSize - row;
+
+		float[] corners = distances[landmark];
+		int corner = row * (columns + 1) + column;
+		double d00 = corners[corner];
+		if (d00 == Float.POSITIVE_INFINITY) {
+			return Double.NaN;
+		}
+		double d10 = corners[corner + 1];
+		double d01 = corners[corner + columns + 1];
+		double d11 = corners[corner + columns + 2];
+		if (antiDiagonals[landmark][row * columns + column]) {
+			return u + v <= 1 ? d00 + u * (d10 - d00) + v * (d01 - d00)
+					: d11 + (1 - u) * (d01 - d11) + (1 - v) * (d10 - d11);
+		}
+		return u >= v ? d00 + u * (d10 - d00) + v * (d11 - d10) : d00 + v * (d01 - d00) + u * (d11 - d01);
+	}
+
+	/**
+	 * Clamps a cell coordinate within the grid.
+	 * 
+	 * @param value
+	 *            the coordinate
+	 * @param size
+	 *            the number of cells along the axis
+	 * @return the coordinate within the grid
+	 */
+	private static int clamp(int value, int size) {
+		return Math.min(Math.max(value, 0), size - 1);
+	}
+
+	/**
+	 * Returns the steepest slope of the interpolated distances from a
+	 * landmark, used by the benchmarks to assess the quality of the bound.
+	 * 
+	 * @param landmark
+	 *            the index of the landmark
+	 * @return the steepest slope, at least 1
+	 */
+	double getSteepestSlope(int landmark) {
+		return 1 / factors[landmark];
+	}
+
+}
@@ -0,0 +1,177 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.reply.challenge.training;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import co.aurasphere.reply.challenge.training.model.OccupancyGrid;
+
+/**
+ * Draws the perimeter of the obstacles on an {@link OccupancyGrid}. The
+ * obstacles are split among the threads of the common fork-join pool, each
+ * one drawing on its own grid, and the grids are merged as the tasks join.
+ * No object is created for the single cells.
+ * 
+ * @author Donato Rimenti
+ *
+ */
+public class ObstacleRasterizer {
+
+	/**
+	 * Minimum number of obstacles drawn by a single task. Smaller tasks
+	 * would spend more time merging their grids than drawing.
+	 */
+	private static final int MIN_TASK_SIZE = 1024;
+
+	/**
+	 * Private constructor for utility class.
+	 */
+	private ObstacleRasterizer() {
+	}
+
+	/**
+	 * Draws the perimeter of the obstacles on a grid.
+	 * 
+	 * @param coordinates
+	 *            the coordinates of the vertices of the obstacles, six for
+	 *            each one in the order "x1 y1 x2 y2 x3 y3"
+	 * @param grid
+	 *            the grid to draw on
+	 */
+	public static void rasterize(int[] coordinates, OccupancyGrid grid) {
+		int count = coordinates.length / 6;
+		int parallelism = ForkJoinPool.getCommonPoolParallelism();
+		int taskSize = Math.max(MIN_TASK_SIZE, (count + parallelism * 4 - 1) / (parallelism * 4));
+
+		// Not worth splitting, draws straight on the grid.
+		if (parallelism == 1 || count <= taskSize) {
+			draw(coordinates, 0, count, grid);
+			return;
+		}
+		grid.addAll(ForkJoinPool.commonPool().invoke(new RasterTask(coordinates, 0, count, taskSize)));
+	}
+
+	/**
+	 * Draws the perimeter of some obstacles on a grid.
+	 * 
+	 * @param coordinates
+	 *            the coordinates of the vertices of the obstacles
+	 * @param from
+	 *            the index of the first obstacle to draw
+	 * @param to
+	 *            the index after the last obstacle to draw
+	 * @param grid
+	 *            the grid to draw on
+	 */
+	private static void draw(int[] coordinates, int from, int to, OccupancyGrid grid) {
+		for (int i = from * 6; i < to * 6; i += 6) {
+			int x1 = coordinates[i];
+			int y1 = coordinates[i + 1];
+			int x2 = coordinates[i + 2];
+			int y2 = coordinates[i + 3];
+			int x3 = coordinates[i + 4];
+			int y3 = coordinates[i + 5];
+			grid.addLine(x1, y1, x2, y2);
+			grid.addLine(x2, y2, x3, y3);
+			grid.addLine(x3, y3, x1, y1);
+		}
+	}
+
+	/**
+	 * Task which draws a range of obstacles on its own grid.
+	 * 
+	 * @author Donato Rimenti
+	 *
+	 */
+	private static class RasterTask extends RecursiveTask<OccupancyGrid> {
+
+		/**
+		 * Serial version UID.
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * The coordinates of the vertices of the obstacles.
+		 */
+		private final int[] coordinates;
+
+		/**
+		 * The index of the first obstacle to draw.
+		 */
+		private final int from;
+
+		/**
+		 * The index after the last obstacle to draw.
+		 */
+		private final int to;
+
+		/**
+		 * Maximum number of obstacles drawn without splitting the task.
+		 */
+		private final int taskSize;
+
+		/**
+		 * Instantiates a new RasterTask.
+		 * 
+		 * @param coordinates
+		 *            the coordinates of the vertices of the obstacles
+		 * @param from
+		 *            the index of the first obstacle to draw
+		 * @param to
+		 *            the index after the last obstacle to draw
+		 * @param taskSize
+		 *            maximum number of obstacles drawn without splitting the
+		 *            task
+		 */
+		private RasterTask(int[] coordinates, int from, int to, int taskSize) {
+			this.coordinates = coordinates;
+			this.from = from;
+			this.to = to;
+			this.taskSize = taskSize;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.util.concurrent.RecursiveTask#compute()
+		 */
+		@Override
+		protected OccupancyGrid compute() {
+			if (to - from <= taskSize) {
+				OccupancyGrid grid = new OccupancyGrid();
+				draw(coordinates, from, to, grid);
+				return grid;
+			}
+			int middle = (from + to) >>> 1;
+			RasterTask second = new RasterTask(coordinates, middle, to, taskSize);
+			second.fork();
+			OccupancyGrid grid = new RasterTask(coordinates, from, middle, taskSize).compute();
+			grid.addAll(second.join());
+			return grid;
+		}
+
+	}
+
+}
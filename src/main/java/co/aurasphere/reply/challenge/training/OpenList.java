@@ -0,0 +1,90 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.reply.challenge.training;
+
+import co.aurasphere.reply.challenge.training.model.NodePool;
+
+/**
+ * Priority queue of the nodes still to explore, ordered by their fitness
+ * value (the lowest first). Nodes are identified by their id in a
+ * {@link NodePool} and implementations keep track of the position of each
+ * node by id, so that updating the fitness of a node doesn't require a scan
+ * of the whole list.
+ * 
+ * @author Donato Rimenti
+ *
+ */
+public interface OpenList {
+
+	/**
+	 * Adds a node to this list.
+	 * 
+	 * @param id
+	 *            the id of the node to add, which must not be already in this
+	 *            list
+	 * @param f
+	 *            the fitness value of the node
+	 */
+	void add(int id, double f);
+
+	/**
+	 * Changes the fitness value of a node already in this list.
+	 * 
+	 * @param id
+	 *            the id of the node to update
+	 * @param f
+	 *            the new fitness value of the node
+	 */
+	void update(int id, double f);
+
+	/**
+	 * Retrieves and removes the node with the lowest fitness value.
+	 * 
+	 * @return the id of the node with the lowest fitness value or -1 if this
+	 *         list is empty
+	 */
+	int poll();
+
+	/**
+	 * Returns the number of nodes in this list.
+	 * 
+	 * @return the number of nodes in this list
+	 */
+	int size();
+
+	/**
+	 * Checks if this list is empty.
+	 * 
+	 * @return true if this list is empty, false otherwise
+	 */
+	default boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * Removes all the nodes from this list.
+	 */
+	void clear();
+
+}
@@ -0,0 +1,516 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.reply.challenge.training;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import co.aurasphere.reply.challenge.training.model.Node;
+import co.aurasphere.reply.challenge.training.model.NodePool;
+import co.aurasphere.reply.challenge.training.model.Scene;
+
+/**
+ * Hash distributed parallel A* (HDA*). Each node of the grid is owned by one
+ * worker thread, chosen by hashing the 8x8 tile containing it, so that most
+ * successors stay local. Each worker has its own open list and
+ * {@link NodePool} and only expands the nodes it owns: successors owned by
+ * other workers are sent to them in batches through lock-free queues.
+ * <p>
+ * A node is reopened when a shorter path to it arrives, so when the search
+ * ends the path found is at most {@link #staticWeight} times longer than the
+ * shortest one, as with {@link AStarAlgorithm}. The search ends when no
+ * worker has nodes left with a fitness lower than the best path found and no
+ * batch is in flight.
+ * 
+ * @author Donato Rimenti
+ *
+ */
+public class ParallelAStar implements PathFinder {
+
+	/**
+	 * Maximum number of nodes sent to another worker in a single batch.
+	 */
+	private static final int BATCH_SIZE = 128;
+
+	/**
+	 * Number of expansions after which a worker sends its batches even if not
+	 * full, so that the other workers don't starve.
+	 */
+	private static final int FLUSH_INTERVAL = 64;
+
+	/**
+	 * Bits of the coordinates ignored when assigning a node to a worker: all
+	 * the nodes in a tile of 2^TILE_BITS nodes per side share the same owner.
+	 */
+	private static final int TILE_BITS = 3;
+
+	/**
+	 * Static weight of the heuristic function.
+	 */
+	private final double staticWeight;
+
+	/**
+	 * Number of worker threads.
+	 */
+	private final int threads;
+
+	/**
+	 * Scene of the current search.
+	 */
+	private Scene scene;
+
+	/**
+	 * Final destination to reach with this algorithm.
+	 */
+	private Node target;
+
+	/**
+	 * The workers of the current search.
+	 */
+	private Worker[] workers;
+
+	/**
+	 * Length of the best path found until now, as raw double bits.
+	 */
+	private final AtomicLong bestCost = new AtomicLong();
+
+	/**
+	 * Number of workers with nodes to expand plus the number of batches sent
+	 * but not yet received. When this reaches 0, the search is over.
+	 */
+	private final AtomicInteger busy = new AtomicInteger();
+
+	/**
+	 * First error thrown by a worker, which stops the search.
+	 */
+	private volatile Throwable error;
+
+	/**
+	 * Counters of the work done by the last search, by all the workers.
+	 */
+	private final SearchStatistics statistics = new SearchStatistics();
+
+	/**
+	 * Instantiates a new ParallelAStar with a worker for each available
+	 * processor and the same heuristic weight as {@link AStarAlgorithm}.
+	 */
+	public ParallelAStar() {
+		this(Runtime.getRuntime().availableProcessors(), 1.5);
+	}
+
+	/**
+	 * Instantiates a new ParallelAStar.
+	 * 
+	 * @param threads
+	 *            the number of worker threads
+	 * @param staticWeight
+	 *            the weight of the heuristic function
+	 */
+	public ParallelAStar(int threads, double staticWeight) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("At least one thread is needed: " + threads);
+		}
+		this.threads = threads;
+		this.staticWeight = staticWeight;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * co.aurasphere.reply.challenge.training.PathFinder#calculateShortestPath(
+	 * co.aurasphere.reply.challenge.training.model.Scene,
+	 * co.aurasphere.reply.challenge.training.model.Node,
+	 * co.aurasphere.reply.challenge.training.model.Node)
+	 */
+	@Override
+	public Node calculateShortestPath(Scene scene, Node start, Node goal) {
+		this.scene = scene;
+		this.target = goal;
+		this.error = null;
+		statistics.reset();
+		bestCost.set(Double.doubleToLongBits(Double.POSITIVE_INFINITY));
+		busy.set(threads);
+		workers = new Worker[threads];
+		for (int i = 0; i < threads; i++) {
+			workers[i] = new Worker();
+		}
+		workers[owner(start.x, start.y)].receive(start.x, start.y, 0, NodePool.NO_DIRECTION);
+
+		// Runs the workers and waits for the search to end.
+		Thread[] workerThreads = new Thread[threads];
+		for (int i = 0; i < threads; i++) {
+			workerThreads[i] = new Thread(workers[i], "parallel-astar-" + i);
+			workerThreads[i].start();
+		}
+		try {
+			for (Thread t : workerThreads) {
+				t.join();
+			}
+		} catch (InterruptedException e) {
+			error = e;
+			Thread.currentThread().interrupt();
+		}
+		for (Worker worker : workers) {
+			statistics.add(worker.statistics);
+		}
+		if (error != null) {
+			throw new IllegalStateException("Parallel search failed", error);
+		}
+
+		// No path has been found.
+		if (getBestCost() == Double.POSITIVE_INFINITY) {
+			return null;
+		}
+		return buildPath();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see co.aurasphere.reply.challenge.training.PathFinder#getStatistics()
+	 */
+	@Override
+	public SearchStatistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * Converts the path found into a chain of nodes by following back the
+	 * direction of each node in the pool of its owner.
+	 * 
+	 * @return the goal node, connected to the starting one through its
+	 *         parents
+	 */
+	private Node buildPath() {
+		Node goal = new Node(target.x, target.y);
+		goal.setG(getBestCost());
+
+		Node child = goal;
+		while (true) {
+			NodePool pool = workers[owner(child.x, child.y)].pool;
+			int direction = pool.getDirection(pool.find(child.x, child.y));
+			if (direction == NodePool.NO_DIRECTION) {
+				return goal;
+			}
+			Node node = new Node(child.x - NodePool.dx(direction), child.y - NodePool.dy(direction));
+			NodePool parentPool = workers[owner(node.x, node.y)].pool;
+			node.setG(parentPool.getG(parentPool.find(node.x, node.y)));
+			child.setParent(node);
+			child = node;
+		}
+	}
+
+	/**
+	 * Returns the index of the worker which owns a node.
+	 * 
+	 * @param x
+	 *            the x coordinate of the node
+	 * @param y
+	 *            the y coordinate of the node
+	 * @return the index of the owner of the node
+	 */
+	private int owner(int x, int y) {
+		long key = NodePool.pack(x >> TILE_BITS, y >> TILE_BITS) * 0x9E3779B97F4A7C15L;
+		return (int) ((key >>> 32) % threads);
+	}
+
+	/**
+	 * Returns the length of the best path found until now.
+	 * 
+	 * @return the length of the best path found until now
+	 */
+	private double getBestCost() {
+		return Double.longBitsToDouble(bestCost.get());
+	}
+
+	/**
+	 * Records a path to the goal if it's the best found until now.
+	 * 
+	 * @param cost
+	 *            the length of the path
+	 */
+	private void offerBestCost(double cost) {
+		long current = bestCost.get();
+		while (cost < Double.longBitsToDouble(current)
+				&& !bestCost.compareAndSet(current, Double.doubleToLongBits(cost))) {
+			current = bestCost.get();
+		}
+	}
+
+	/**
+	 * A worker thread, which expands the nodes it owns.
+	 * 
+	 * @author Donato Rimenti
+	 *
+	 */
+	private class Worker implements Runnable {
+
+		/**
+		 * Unexplored nodes, ordered by fitness.
+		 */
+		private final OpenList openList = new IndexedHeapOpenList();
+
+		/**
+		 * State of the nodes owned by this worker.
+		 */
+		private final NodePool pool = new NodePool();
+
+		/**
+		 * Counters of the work done by this worker, merged into the ones of
+		 * the search once all the workers are done.
+		 */
+		private final SearchStatistics statistics = new SearchStatistics();
+
+		/**
+		 * Batches of nodes sent to this worker by the others. Each node takes
+		 * two values: its packed coordinates and its cost, as float bits in
+		 * the high half, with the direction it has been reached from in the
+		 * low half.
+		 */
+		private final Queue<long[]> inbox = new ConcurrentLinkedQueue<long[]>();
+
+		/**
+		 * Batches being filled for each other worker, in the same format of
+		 * {@link #inbox}.
+		 */
+		private final long[][] outbox = new long[threads][BATCH_SIZE * 2];
+
+		/**
+		 * Number of values in each batch of {@link #outbox}.
+		 */
+		private final int[] outboxSizes = new int[threads];
+
+		/**
+		 * Whether this worker is counted in {@link ParallelAStar#busy}.
+		 */
+		private boolean active = true;
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.lang.Runnable#run()
+		 */
+		@Override
+		public void run() {
+			try {
+				int expansions = 0;
+				while (error == null) {
+					receiveBatches();
+					if (!openList.isEmpty()) {
+						expand(openList.poll());
+						if (++expansions % FLUSH_INTERVAL == 0) {
+							flush();
+						}
+						continue;
+					}
+
+					// Nothing left to do until other nodes arrive.
+					flush();
+					if (active) {
+						active = false;
+						busy.decrementAndGet();
+					}
+					if (busy.get() == 0) {
+						return;
+					}
+					LockSupport.parkNanos(10_000);
+				}
+			} catch (Throwable t) {
+				error = t;
+			}
+		}
+
+		/**
+		 * Adds the nodes sent by other workers to the open list.
+		 */
+		private void receiveBatches() {
+			long[] batch;
+			while ((batch = inbox.poll()) != null) {
+				for (int i = 0; i < batch.length; i += 2) {
+					long coordinates = batch[i];
+					long path = batch[i + 1];
+					receive((int) (coordinates >> 32), (int) coordinates, Float.intBitsToFloat((int) (path >>> 32)),
+							(int) path);
+				}
+
+				// The batch is no longer in flight. If this worker was idle,
+				// it takes over its place in the busy count.
+				if (active) {
+					busy.decrementAndGet();
+				} else {
+					active = true;
+				}
+			}
+		}
+
+		/**
+		 * Adds a node to the open list if the path to it is the best found
+		 * until now. Closed nodes are reopened.
+		 * 
+		 * @param x
+		 *            the x coordinate of the node
+		 * @param y
+		 *            the y coordinate of the node
+		 * @param g
+		 *            the cost from the starting node to the node
+		 * @param direction
+		 *            the direction the node has been reached from
+		 */
+		private void receive(int x, int y, float g, int direction) {
+			int id = pool.findOrAdd(x, y);
+			if (g >= pool.getG(id)) {
+				return;
+			}
+			pool.setPath(id, g, direction);
+			double f = f(id);
+			if (f >= getBestCost()) {
+				return;
+			}
+			if (pool.isOpen(id)) {
+				statistics.improved++;
+				openList.update(id, f);
+			} else {
+				if (pool.isClosed(id)) {
+					statistics.reopened++;
+				} else {
+					statistics.generated++;
+				}
+				pool.setOpen(id);
+				openList.add(id, f);
+				statistics.updateOpenListPeak(openList.size());
+			}
+		}
+
+		/**
+		 * Expands a node, generating its successors.
+		 * 
+		 * @param q
+		 *            the id of the node to expand
+		 */
+		private void expand(int q) {
+			pool.setClosed(q);
+
+			// Nodes which can't lead to a better path are skipped.
+			float g = pool.getG(q);
+			if (f(q) >= getBestCost()) {
+				return;
+			}
+			statistics.expanded++;
+			int qx = pool.getX(q);
+			int qy = pool.getY(q);
+			if (qx == target.x && qy == target.y) {
+				offerBestCost(g);
+				return;
+			}
+
+			for (int direction = 0; direction < NodePool.DIRECTIONS; direction++) {
+				int x = qx + NodePool.dx(direction);
+				int y = qy + NodePool.dy(direction);
+				statistics.obstacleTests++;
+				if (!scene.isValid(x, y)) {
+					continue;
+				}
+				float tentativeGScore = g
+						+ (NodePool.isDiagonal(direction) ? (float) AStarAlgorithm.DIAGONAL_COST : 1);
+				int owner = owner(x, y);
+				if (workers[owner] == this) {
+					receive(x, y, tentativeGScore, direction);
+				} else {
+					send(owner, x, y, tentativeGScore, direction);
+				}
+			}
+		}
+
+		/**
+		 * Adds a node to the batch for another worker, sending it if full.
+		 * 
+		 * @param owner
+		 *            the index of the worker which owns the node
+		 * @param x
+		 *            the x coordinate of the node
+		 * @param y
+		 *            the y coordinate of the node
+		 * @param g
+		 *            the cost from the starting node to the node
+		 * @param direction
+		 *            the direction the node has been reached from
+		 */
+		private void send(int owner, int x, int y, float g, int direction) {
+			long[] batch = outbox[owner];
+			int size = outboxSizes[owner];
+			batch[size] = NodePool.pack(x, y);
+			batch[size + 1] = (long) Float.floatToRawIntBits(g) << 32 | direction;
+			outboxSizes[owner] = size + 2;
+			if (size + 2 == batch.length) {
+				flush(owner);
+			}
+		}
+
+		/**
+		 * Sends all the batches not empty.
+		 */
+		private void flush() {
+			for (int i = 0; i < threads; i++) {
+				if (outboxSizes[i] > 0) {
+					flush(i);
+				}
+			}
+		}
+
+		/**
+		 * Sends the batch for a worker.
+		 * 
+		 * @param owner
+		 *            the index of the worker
+		 */
+		private void flush(int owner) {
+			// Counted before being visible, so that the search can't end
+			// while the batch is in flight.
+			busy.incrementAndGet();
+			workers[owner].inbox.offer(Arrays.copyOf(outbox[owner], outboxSizes[owner]));
+			outboxSizes[owner] = 0;
+		}
+
+		/**
+		 * Returns the fitness for a node n. The lowest the fitness, the best is
+		 * the node.
+		 * 
+		 * @param n
+		 *            the id of the node whose fitness value needs to be
+		 *            computed
+		 * @return the fitness score for the node n
+		 */
+		private double f(int n) {
+			return pool.getG(n) + staticWeight * JumpPointSearch.octile(Math.abs(pool.getX(n) - target.x),
+					Math.abs(pool.getY(n) - target.y));
+		}
+
+	}
+
+}
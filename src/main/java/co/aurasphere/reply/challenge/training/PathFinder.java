@@ -0,0 +1,80 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.reply.challenge.training;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import co.aurasphere.reply.challenge.training.model.Node;
+import co.aurasphere.reply.challenge.training.model.Scene;
+
+/**
+ * Algorithm which finds a path between two nodes of the grid. It must be
+ * closed once it's no longer used, since some algorithms keep resources
+ * outside of the heap across searches.
+ * 
+ * @author Donato Rimenti
+ *
+ */
+public interface PathFinder extends Closeable {
+
+	/**
+	 * Finds the shortest path from start to end. If a path has been found, the
+	 * end node is returned. You can get the path between the two nodes by
+	 * traversing them back using the {@link Node#getParent()} method. Each
+	 * node of the path is connected to its parent by a straight line, which
+	 * may be longer than a single step.
+	 * 
+	 * @param scene
+	 *            the scene to search, which can't be modified
+	 * @param start
+	 *            the starting node
+	 * @param goal
+	 *            the ending node
+	 * @return the end node if a path has been found, null otherwise
+	 */
+	Node calculateShortestPath(Scene scene, Node start, Node goal);
+
+	/**
+	 * Returns the counters of the work done by the last search. The same
+	 * object is updated by each search, so it must be copied to be kept.
+	 * 
+	 * @return the counters of the last search, or null if this algorithm
+	 *         doesn't collect them
+	 */
+	default SearchStatistics getStatistics() {
+		return null;
+	}
+
+	/**
+	 * Releases the resources kept across searches. Does nothing by default.
+	 * 
+	 * @throws IOException
+	 *             if the resources can't be released
+	 */
+	@Override
+	default void close() throws IOException {
+	}
+
+}
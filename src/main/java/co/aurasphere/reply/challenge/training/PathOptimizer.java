@@ -32,8 +32,9 @@ import java.util.List;
 import java.util.Set;
 
 import co.aurasphere.reply.challenge.training.model.Node;
-import co.aurasphere.reply.challenge.training.model.Obstacle;
-import co.aurasphere.reply.challenge.training.model.ProblemStatement;
+import co.aurasphere.reply.challenge.training.model.ObstacleIndex;
+import co.aurasphere.reply.challenge.training.model.OccupancyGrid;
+import co.aurasphere.reply.challenge.training.model.Scene;
 
 /**
  * Class for specific optimizations on a path.
@@ -51,7 +52,9 @@ public class PathOptimizer {
 
 	/**
 	 * Reduces a path to the minimum number of points needed. Each of this
-	 * points represents an extrema of a segment on the path.
+	 * points represents an extrema of a segment on the path. Consecutive
+	 * points are merged only when they are collinear and go in the same
+	 * direction, so the path doesn't need to be made of adjacent nodes.
 	 * 
 	 * @param points
 	 *            the path to compress
@@ -62,18 +65,20 @@ public class PathOptimizer {
 
 		Iterator<Node> pointIterator = points.iterator();
 		Node previous = pointIterator.next();
-		int currentXDirection = 0;
-		int currentYDirection = 0;
+		long currentXDirection = 0;
+		long currentYDirection = 0;
 		while (pointIterator.hasNext()) {
 			Node current = pointIterator.next();
 			// Checks for any direction changes by looking at the coordinates of
 			// the current and previous node.
-			int tmpXDirection = Double.compare(previous.x, current.x);
-			int tmpYDirection = Double.compare(previous.y, current.y);
+			long tmpXDirection = current.x - previous.x;
+			long tmpYDirection = current.y - previous.y;
+			boolean sameDirection = currentXDirection * tmpYDirection == currentYDirection * tmpXDirection
+					&& currentXDirection * tmpXDirection + currentYDirection * tmpYDirection > 0;
 
 			// If the direction changes, the previous is a new point of the
 			// compression.
-			if (tmpXDirection != currentXDirection || tmpYDirection != currentYDirection) {
+			if (!sameDirection) {
 				compressedPath.add(previous);
 				currentXDirection = tmpXDirection;
 				currentYDirection = tmpYDirection;
@@ -90,60 +95,158 @@ public class PathOptimizer {
 	 * Reduces a path length by removing unnecessary nodes. A node is defined
 	 * unnecessary if there is a non obstructed path between a previous node and
 	 * a successor node.
+	 * <p>
+	 * The path is pulled like a string: from each kept node, the farthest
+	 * visible node is searched by doubling the distance along the path until
+	 * the sight is blocked and then by bisecting the last interval, so each
+	 * jump takes a logarithmic number of line of sight checks instead of one
+	 * for each node after it. Since the visibility along the path is not
+	 * monotonic, the kept nodes are then moved along the path and shortcut
+	 * again until the path can't get any shorter, reusing the checks already
+	 * done. Each node is kept only once.
 	 * 
+	 * @param scene
+	 *            the scene of the path
 	 * @param points
 	 *            the path to reduce
 	 * @return a reduced path
 	 */
-	public static List<Node> reduce(List<Node> points) {
-		List<Node> reducedPath = new ArrayList<Node>();
-
-		// Iterates all the points from the first.
-		for (int i = 0; i < points.size(); i++) {
-			Node fromStart = points.get(i);
-
-			// Iterates all the points from the last.
-			middle: for (int j = points.size() - 1; j > i; j--) {
-				Node fromEnd = points.get(j);
-
-				// If there's an obstacle between the two points, there's no
-				// path between the points. Let's consider the next one from the
-				// end.
-				for (Obstacle o : ProblemStatement.obstacles) {
-					if (o.isPathObstructed(fromStart, fromEnd)) {
-						continue middle;
-					}
-				}
-				// No obstacles if here.
-				reducedPath.add(fromStart);
-				reducedPath.add(fromEnd);
-				// Let's jump to the next point. At the next iteration i will
-				// increase again so we go to the previous point.
-				i = j - 1;
+	public static List<Node> reduce(Scene scene, List<Node> points) {
+		LineOfSight sight = new LineOfSight(scene.getObstacleIndex(), points);
+		int last = points.size() - 1;
+		int[] kept = new int[points.size()];
+		int size = 0;
+		kept[size++] = 0;
+		int current = 0;
+		while (current < last) {
+			current = farthestVisible(sight, current, last);
+			kept[size++] = current;
+		}
 
+		// Tightens the string until neither moving nor dropping a kept node
+		// makes the path shorter.
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (int i = 1; i < size - 1; i++) {
+				int moved = closestCorner(sight, points, kept[i - 1], kept[i], kept[i + 1]);
+				changed |= moved != kept[i];
+				kept[i] = moved;
+			}
+			int reducedSize = 1;
+			for (int i = 0; i < size - 1;) {
+				int j = size - 1;
+				while (j > i + 1 && !sight.isClear(kept[i], kept[j])) {
+					j--;
+				}
+				kept[reducedSize++] = kept[j];
+				i = j;
 			}
+			changed |= reducedSize != size;
+			size = reducedSize;
+		}
+
+		List<Node> reducedPath = new ArrayList<Node>(size);
+		for (int i = 0; i < size; i++) {
+			reducedPath.add(points.get(kept[i]));
 		}
 		return reducedPath;
 	}
 
+	/**
+	 * Finds a node of the path visible from another one, as far as possible
+	 * along the path. The next node is always considered visible, since the
+	 * path goes there.
+	 * 
+	 * @param sight
+	 *            the line of sight checks between the nodes of the path
+	 * @param from
+	 *            the index of the node to look from
+	 * @param last
+	 *            the index of the last node of the path
+	 * @return the index of the farthest visible node found
+	 */
+	private static int farthestVisible(LineOfSight sight, int from, int last) {
+		if (sight.isClear(from, last)) {
+			return last;
+		}
+
+		// Probes the nodes at a doubling distance, then bisects between the
+		// farthest visible one and the next probe.
+		int visible = from + 1;
+		int blocked = last;
+		for (int step = 2; step > 0 && from + step < last; step *= 2) {
+			if (sight.isClear(from, from + step)) {
+				visible = from + step;
+				blocked = Math.min(last, from + step * 2);
+			}
+		}
+		while (blocked - visible > 1) {
+			int middle = (visible + blocked) >>> 1;
+			if (sight.isClear(from, middle)) {
+				visible = middle;
+			} else {
+				blocked = middle;
+			}
+		}
+		return visible;
+	}
+
+	/**
+	 * Finds the node of the path between two kept nodes which, used as a
+	 * corner between them, makes the path the shortest. Only the nodes which
+	 * would make the path shorter than the current corner are checked
+	 * against the obstacles.
+	 * 
+	 * @param sight
+	 *            the line of sight checks between the nodes of the path
+	 * @param points
+	 *            the nodes of the path
+	 * @param previous
+	 *            the index of the kept node before the corner
+	 * @param corner
+	 *            the index of the current corner
+	 * @param next
+	 *            the index of the kept node after the corner
+	 * @return the index of the best corner
+	 */
+	private static int closestCorner(LineOfSight sight, List<Node> points, int previous, int corner, int next) {
+		Node from = points.get(previous);
+		Node to = points.get(next);
+		int best = corner;
+		double bestLength = points.get(corner).distance(from) + points.get(corner).distance(to);
+		for (int i = previous + 1; i < next; i++) {
+			Node candidate = points.get(i);
+			double length = candidate.distance(from) + candidate.distance(to);
+			if (length < bestLength && sight.isClear(previous, i) && sight.isClear(i, next)) {
+				best = i;
+				bestLength = length;
+			}
+		}
+		return best;
+	}
+
 	/**
 	 * Checks if there's a clear path available to a node. If not, tries to make
-	 * one by converting a node representation from 4C to 8C.
+	 * one by converting a node representation from 4C to 8C. The scene is not
+	 * modified: the changes are made on a copy of its obstacle points.
 	 * 
+	 * @param scene
+	 *            the scene of the node
 	 * @param terminalNode
 	 *            the node whose path needs to be clear
-	 * @return false if this problem doesn't have any solution, true if it may
-	 *         be solvable (not guaranteed though)
+	 * @return null if this problem doesn't have any solution, the scene with
+	 *         the path cleared if it may be solvable (not guaranteed though)
 	 */
-	public static boolean clearPath(Node terminalNode) {
+	public static Scene clearPath(Scene scene, Node terminalNode) {
 		// First of all we check that the point is not within any obstacle. If
 		// it is, the problem doesn't have any solution.
-		for (Obstacle obstacle : ProblemStatement.obstacles) {
-			if (obstacle.isPointInside(terminalNode.x, terminalNode.y)) {
-				// This problem doesn't have any solution.
-				return false;
-			}
+		ObstacleIndex index = scene.getObstacleIndex();
+		if (index.isPointInside(terminalNode.x, terminalNode.y)) {
+			// This problem doesn't have any solution.
+			return null;
 		}
+		OccupancyGrid obstaclePoints = scene.copyObstaclePoints();
 
 		// We add the first node to the next nodes to visit.
 		Set<Node> visitedNodes = new HashSet<Node>();
@@ -155,7 +258,7 @@ public class PathOptimizer {
 			Node currentNode = nextNodes.poll();
 
 			// This node is not within any obstacles.
-			ProblemStatement.obstaclePoints.remove(currentNode);
+			obstaclePoints.remove(currentNode.x, currentNode.y);
 
 			// Current point neighbors.
 			List<Node> currentNeighbors = Arrays.asList(new Node(currentNode.x - 1, currentNode.y - 1),
@@ -174,21 +277,159 @@ public class PathOptimizer {
 
 			// If any of the current node's neighbors is obstructed by
 			// an obstacle is removed from the "to visit" list.
-			for (Obstacle obstacle : ProblemStatement.obstacles) {
-				currentNeighbors.forEach(node -> {
-					if (obstacle.isPathObstructed(node, currentNode)) {
-						ProblemStatement.obstaclePoints.add(node);
-						nextNodes.remove(node);
-					}
-				});
+			currentNeighbors.forEach(node -> {
+				if (index.isPathObstructed(node, currentNode)) {
+					obstaclePoints.add(node.x, node.y);
+					nextNodes.remove(node);
+				}
+			});
 
-			}
 			// This node has been fully explored.
 			visitedNodes.add(currentNode);
 		}
 
 		// An optimization may have been happened.
-		return true;
+		return scene.withObstaclePoints(obstaclePoints);
+	}
+
+	/**
+	 * Line of sight checks between the nodes of a path, remembered by the
+	 * indexes of the nodes so that each pair is checked against the obstacles
+	 * only once. The results are kept in an open addressing hash table keyed
+	 * on the packed indexes, so that looking them up boxes nothing.
+	 * 
+	 * @author Donato Rimenti
+	 *
+	 */
+	private static final class LineOfSight {
+
+		/**
+		 * Index of the obstacles.
+		 */
+		private final ObstacleIndex index;
+
+		/**
+		 * The nodes of the path.
+		 */
+		private final List<Node> points;
+
+		/**
+		 * Initial number of slots of the hash table.
+		 */
+		private static final int INITIAL_CAPACITY = 256;
+
+		/**
+		 * Value of an empty slot in {@link #results}.
+		 */
+		private static final byte EMPTY = 0;
+
+		/**
+		 * Value of a slot in {@link #results} whose nodes see each other.
+		 */
+		private static final byte CLEAR = 1;
+
+		/**
+		 * Value of a slot in {@link #results} whose nodes don't see each
+		 * other.
+		 */
+		private static final byte BLOCKED = 2;
+
+		/**
+		 * Packed indexes of the nodes of the check in each slot of the hash
+		 * table.
+		 */
+		private long[] keys = new long[INITIAL_CAPACITY];
+
+		/**
+		 * Result of the check in each slot of the hash table.
+		 */
+		private byte[] results = new byte[INITIAL_CAPACITY];
+
+		/**
+		 * Number of checks in the hash table.
+		 */
+		private int size;
+
+		/**
+		 * Instantiates a new LineOfSight.
+		 * 
+		 * @param index
+		 *            the index of the obstacles
+		 * @param points
+		 *            the nodes of the path
+		 */
+		private LineOfSight(ObstacleIndex index, List<Node> points) {
+			this.index = index;
+			this.points = points;
+		}
+
+		/**
+		 * Checks if no obstacle is between two nodes of the path.
+		 * 
+		 * @param from
+		 *            the index of the first node
+		 * @param to
+		 *            the index of the second node, greater than the first
+		 * @return true if the nodes can see each other, false otherwise
+		 */
+		private boolean isClear(int from, int to) {
+			long key = (long) from << 32 | to;
+			int mask = keys.length - 1;
+			int slot = hash(key) & mask;
+			while (results[slot] != EMPTY) {
+				if (keys[slot] == key) {
+					return results[slot] == CLEAR;
+				}
+				slot = (slot + 1) & mask;
+			}
+
+			boolean clear = !index.isPathObstructed(points.get(from), points.get(to));
+			keys[slot] = key;
+			results[slot] = clear ? CLEAR : BLOCKED;
+
+			// Keeps the load factor under 1/2.
+			if (++size * 2 > keys.length) {
+				rehash(keys.length * 2);
+			}
+			return clear;
+		}
+
+		/**
+		 * Moves all the checks in a new hash table.
+		 * 
+		 * @param capacity
+		 *            the number of slots of the new table
+		 */
+		private void rehash(int capacity) {
+			long[] oldKeys = keys;
+			byte[] oldResults = results;
+			keys = new long[capacity];
+			results = new byte[capacity];
+			int mask = capacity - 1;
+			for (int i = 0; i < oldKeys.length; i++) {
+				if (oldResults[i] == EMPTY) {
+					continue;
+				}
+				int slot = hash(oldKeys[i]) & mask;
+				while (results[slot] != EMPTY) {
+					slot = (slot + 1) & mask;
+				}
+				keys[slot] = oldKeys[i];
+				results[slot] = oldResults[i];
+			}
+		}
+
+		/**
+		 * Spreads the bits of a key over the slots of the hash table.
+		 * 
+		 * @param key
+		 *            the packed indexes of the nodes of a check
+		 * @return the hash of the key
+		 */
+		private static int hash(long key) {
+			return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32);
+		}
+
 	}
 
 }
@@ -0,0 +1,235 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.reply.challenge.training;
+
+import java.util.Arrays;
+
+import co.aurasphere.reply.challenge.training.model.Node;
+import co.aurasphere.reply.challenge.training.model.NodePool;
+import co.aurasphere.reply.challenge.training.model.ObstacleComponents;
+import co.aurasphere.reply.challenge.training.model.ObstacleIndex;
+import co.aurasphere.reply.challenge.training.model.OccupancyGrid;
+import co.aurasphere.reply.challenge.training.model.Scene;
+
+/**
+ * Quick check to detect the problems without solution before running the
+ * search, which would otherwise explore the whole area reachable from the
+ * start.
+ * <p>
+ * A terminal point can only be enclosed by a connected component of
+ * obstacles whose bounding box contains it. The area around each terminal is
+ * flood filled on the grid within the bounding boxes of these components: if
+ * the fill is exhausted before leaving them or reaching the other terminal,
+ * the terminal is enclosed and the problem has no solution.
+ * 
+ * @author Donato Rimenti
+ *
+ */
+public class ReachabilityCheck {
+
+	/**
+	 * Maximum number of nodes filled around each terminal. Larger enclosed
+	 * areas are left to the search.
+	 */
+	private static final int MAX_FILL_SIZE = 1 << 16;
+
+	/**
+	 * Private constructor for utility class.
+	 */
+	private ReachabilityCheck() {
+	}
+
+	/**
+	 * Checks if the goal may be reachable from the start.
+	 * 
+	 * @param scene
+	 *            the scene of the nodes
+	 * @param start
+	 *            the starting node
+	 * @param goal
+	 *            the ending node
+	 * @return false if there's no path between the nodes, true if there may be
+	 *         one
+	 */
+	public static boolean isReachable(Scene scene, Node start, Node goal) {
+		ObstacleIndex index = scene.getObstacleIndex();
+		if (index.isPointInside(start.x, start.y) || index.isPointInside(goal.x, goal.y)) {
+			return false;
+		}
+
+		ObstacleComponents components = index.getComponents();
+		FloodFill fromStart = new FloodFill(scene, start, goal, components.getEnclosingBox(start.x, start.y));
+		FloodFill fromGoal = new FloodFill(scene, goal, start, components.getEnclosingBox(goal.x, goal.y));
+
+		// The two fills take turns, so that a small enclosed area is found
+		// quickly even if the other terminal is in a large one.
+		while (fromStart.isRunning() || fromGoal.isRunning()) {
+			fromStart.step();
+			fromGoal.step();
+			if (fromStart.state == FloodFill.REACHED || fromGoal.state == FloodFill.REACHED) {
+				return true;
+			}
+			if (fromStart.state == FloodFill.ENCLOSED || fromGoal.state == FloodFill.ENCLOSED) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Flood fill of the grid around a terminal point.
+	 * 
+	 * @author Donato Rimenti
+	 *
+	 */
+	private static class FloodFill {
+
+		/**
+		 * State of a fill still in progress.
+		 */
+		private static final int RUNNING = 0;
+
+		/**
+		 * State of a fill which left its box or grew too much.
+		 */
+		private static final int ESCAPED = 1;
+
+		/**
+		 * State of a fill which reached the other terminal.
+		 */
+		private static final int REACHED = 2;
+
+		/**
+		 * State of a fill exhausted within its box.
+		 */
+		private static final int ENCLOSED = 3;
+
+		/**
+		 * The scene of the fill.
+		 */
+		private final Scene scene;
+
+		/**
+		 * The other terminal point.
+		 */
+		private final Node other;
+
+		/**
+		 * The box the fill must leave, as {minX, minY, maxX, maxY}.
+		 */
+		private final int[] box;
+
+		/**
+		 * The nodes filled until now.
+		 */
+		private final OccupancyGrid filled = new OccupancyGrid();
+
+		/**
+		 * Packed coordinates of the filled nodes whose neighbours are still
+		 * to visit.
+		 */
+		private long[] stack = new long[1024];
+
+		/**
+		 * Number of nodes in the {@link #stack}.
+		 */
+		private int stackSize;
+
+		/**
+		 * Current state of the fill.
+		 */
+		private int state;
+
+		/**
+		 * Instantiates a new FloodFill.
+		 * 
+		 * @param scene
+		 *            the scene of the fill
+		 * @param terminal
+		 *            the node where the fill starts
+		 * @param other
+		 *            the other terminal point
+		 * @param box
+		 *            the box the fill must leave to prove that the terminal
+		 *            is not enclosed, or null if it can't be enclosed
+		 */
+		private FloodFill(Scene scene, Node terminal, Node other, int[] box) {
+			this.scene = scene;
+			this.other = other;
+			this.box = box;
+			if (box == null) {
+				state = ESCAPED;
+				return;
+			}
+			filled.add(terminal.x, terminal.y);
+			stack[stackSize++] = NodePool.pack(terminal.x, terminal.y);
+		}
+
+		/**
+		 * Visits the neighbours of the next node of the fill.
+		 */
+		private void step() {
+			if (state != RUNNING) {
+				return;
+			}
+			if (stackSize == 0) {
+				state = ENCLOSED;
+				return;
+			}
+			long current = stack[--stackSize];
+			int currentX = (int) (current >> 32);
+			int currentY = (int) current;
+			for (int direction = 0; direction < NodePool.DIRECTIONS; direction++) {
+				int x = currentX + NodePool.dx(direction);
+				int y = currentY + NodePool.dy(direction);
+				if (!scene.isValid(x, y) || !filled.add(x, y)) {
+					continue;
+				}
+				if (x == other.x && y == other.y) {
+					state = REACHED;
+					return;
+				}
+				if (x < box[0] || y < box[1] || x > box[2] || y > box[3] || filled.size() > MAX_FILL_SIZE) {
+					state = ESCAPED;
+					return;
+				}
+				if (stackSize == stack.length) {
+					stack = Arrays.copyOf(stack, stackSize * 2);
+				}
+				stack[stackSize++] = NodePool.pack(x, y);
+			}
+		}
+
+		/**
+		 * Checks if the fill is still in progress.
+		 * 
+		 * @return true if the fill is in progress, false otherwise
+		 */
+		private boolean isRunning() {
+			return state == RUNNING;
+		}
+
+	}
+
+}
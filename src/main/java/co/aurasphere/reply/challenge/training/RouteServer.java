@@ -0,0 +1,345 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.reply.challenge.training;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import co.aurasphere.reply.challenge.training.model.Node;
+import co.aurasphere.reply.challenge.training.model.ProblemStatement;
+import co.aurasphere.reply.challenge.training.model.Scene;
+
+/**
+ * Local TCP server which answers path queries through a {@link Router}.
+ * Each line sent by a client is a query made of the coordinates of the
+ * starting and ending point ("x0 y0 x1 y1"), and it's answered in the same
+ * format of the solution: the number of points followed by one point per
+ * line, or "IMPOSSIBLE". Malformed queries are answered with a line starting
+ * with "ERROR". A client can send any number of queries on the same
+ * connection.
+ * <p>
+ * Connections are handled by a bounded pool of threads. When all the threads
+ * are busy and the queue is full, new connections are answered with "ERROR
+ * busy" and closed, so that the accepting thread never waits on a client.
+ * Since a connection keeps its thread until it's closed, a client which
+ * sends no query for a while is disconnected, so that idle clients can't
+ * keep the others waiting.
+ * Closing the server disconnects the clients, waits for the queries being
+ * answered and then closes the {@link Router}.
+ * 
+ * @author Donato Rimenti
+ *
+ */
+public class RouteServer implements Closeable {
+
+	/**
+	 * Default port of the server.
+	 */
+	public static final int DEFAULT_PORT = 7878;
+
+	/**
+	 * Maximum number of connections waiting for a thread.
+	 */
+	private static final int QUEUE_SIZE = 64;
+
+	/**
+	 * Default time in milliseconds a client can wait before sending a query.
+	 */
+	public static final int DEFAULT_IDLE_TIMEOUT_MILLIS = 10000;
+
+	/**
+	 * The router which answers the queries.
+	 */
+	private final Router router;
+
+	/**
+	 * The socket accepting the connections.
+	 */
+	private final ServerSocket serverSocket;
+
+	/**
+	 * The threads handling the connections.
+	 */
+	private final ExecutorService executor;
+
+	/**
+	 * The connections being handled.
+	 */
+	private final Set<Socket> clients = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * Time in milliseconds a client can wait before sending a query.
+	 */
+	private final int idleTimeoutMillis;
+
+	/**
+	 * Instantiates a new RouteServer listening on the loopback interface,
+	 * which disconnects the clients idle for
+	 * {@link #DEFAULT_IDLE_TIMEOUT_MILLIS}.
+	 * 
+	 * @param router
+	 *            the router which answers the queries
+	 * @param port
+	 *            the port to listen on, or 0 for any free port
+	 * @param threads
+	 *            the number of threads handling the connections
+	 * @throws IOException
+	 *             if the port can't be opened
+	 */
+	public RouteServer(Router router, int port, int threads) throws IOException {
+		this(router, port, threads, DEFAULT_IDLE_TIMEOUT_MILLIS);
+	}
+
+	/**
+	 * Instantiates a new RouteServer listening on the loopback interface.
+	 * 
+	 * @param router
+	 *            the router which answers the queries
+	 * @param port
+	 *            the port to listen on, or 0 for any free port
+	 * @param threads
+	 *            the number of threads handling the connections
+	 * @param idleTimeoutMillis
+	 *            the time in milliseconds a client can wait before sending a
+	 *            query, after which it's disconnected
+	 * @throws IOException
+	 *             if the port can't be opened
+	 */
+	public RouteServer(Router router, int port, int threads, int idleTimeoutMillis) throws IOException {
+		if (idleTimeoutMillis <= 0) {
+			throw new IllegalArgumentException("The idle timeout must be positive: " + idleTimeoutMillis);
+		}
+		this.router = router;
+		this.idleTimeoutMillis = idleTimeoutMillis;
+		this.serverSocket = new ServerSocket(port, QUEUE_SIZE, InetAddress.getLoopbackAddress());
+		this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(QUEUE_SIZE), new ThreadPoolExecutor.AbortPolicy());
+	}
+
+	/**
+	 * Loads a problem and serves the queries on it until the process is
+	 * stopped. The solver is selected as in {@link Solution}, and the idle
+	 * timeout in milliseconds through the "idleTimeout" system property.
+	 * 
+	 * @param args
+	 *            the input file resource name, optionally followed by the
+	 *            port and by the number of threads
+	 * @throws Exception
+	 */
+	public static void main(String[] args) throws Exception {
+		Scene scene = Solution.parseFile(args[0]);
+		int port = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_PORT;
+		int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+		// The hierarchical solver builds its graph once and can be shared.
+		// The paths found along the way by the anytime solvers are ignored,
+		// only the final ones are answered.
+		String solver = System.getProperty("solver", "astar");
+		Supplier<PathFinder> created = () -> Solution.createPathFinder(solver, (s, n) -> {
+		});
+		PathFinder shared = solver.equals("hpa") ? created.get() : null;
+		Supplier<PathFinder> solvers = shared != null ? () -> shared : created;
+
+		try (RouteServer server = new RouteServer(new Router(scene, solvers, Integer.getInteger("cache", 1024)),
+				port, threads, Integer.getInteger("idleTimeout", DEFAULT_IDLE_TIMEOUT_MILLIS))) {
+			System.out.println("Listening on port " + server.getPort());
+			server.serve();
+		}
+	}
+
+	/**
+	 * Accepts connections until the server is closed.
+	 * 
+	 * @throws IOException
+	 *             if a connection can't be accepted
+	 */
+	public void serve() throws IOException {
+		while (!serverSocket.isClosed()) {
+			Socket socket;
+			try {
+				socket = serverSocket.accept();
+			} catch (IOException e) {
+				if (serverSocket.isClosed()) {
+					return;
+				}
+				throw e;
+			}
+			try {
+				executor.execute(() -> handle(socket));
+			} catch (RejectedExecutionException e) {
+				reject(socket);
+			}
+		}
+	}
+
+	/**
+	 * Tells a client that the server is busy and closes its connection.
+	 * 
+	 * @param socket
+	 *            the connection
+	 */
+	private static void reject(Socket socket) {
+		try (Socket s = socket) {
+			s.getOutputStream().write("ERROR busy\n".getBytes(StandardCharsets.UTF_8));
+		} catch (IOException e) {
+			// The client went away, nothing else to do.
+		}
+	}
+
+	/**
+	 * Answers the queries sent on a connection until the client closes it or
+	 * stays idle for too long.
+	 * 
+	 * @param socket
+	 *            the connection
+	 */
+	private void handle(Socket socket) {
+		clients.add(socket);
+		try (Socket s = socket;
+				BufferedReader in = new BufferedReader(
+						new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+				Writer out = new BufferedWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8))) {
+			// A connection still queued when the server closed is dropped.
+			// Reading a query fails with a timeout once the client is idle.
+			s.setSoTimeout(idleTimeoutMillis);
+			String line;
+			while (!serverSocket.isClosed() && (line = in.readLine()) != null) {
+				if (line.trim().isEmpty()) {
+					continue;
+				}
+				answer(line, out);
+				out.flush();
+			}
+		} catch (IOException e) {
+			// The client went away or was idle, nothing else to do.
+		} finally {
+			clients.remove(socket);
+		}
+	}
+
+	/**
+	 * Answers a single query.
+	 * 
+	 * @param query
+	 *            the query line
+	 * @param out
+	 *            where the answer is written
+	 * @throws IOException
+	 *             if the answer can't be written
+	 */
+	private void answer(String query, Writer out) throws IOException {
+		String[] coords = query.trim().split("\\s+");
+		if (coords.length != 4) {
+			out.write("ERROR expected 4 coordinates\n");
+			return;
+		}
+		Node start;
+		Node goal;
+		try {
+			start = new Node(Integer.parseInt(coords[0]), Integer.parseInt(coords[1]));
+			goal = new Node(Integer.parseInt(coords[2]), Integer.parseInt(coords[3]));
+		} catch (NumberFormatException e) {
+			out.write("ERROR " + e.getMessage() + "\n");
+			return;
+		}
+		if (isOutOfBounds(start) || isOutOfBounds(goal)) {
+			out.write("ERROR point out of bounds\n");
+			return;
+		}
+
+		List<Node> path = router.route(start, goal);
+		if (path.isEmpty()) {
+			out.write("IMPOSSIBLE\n");
+			return;
+		}
+		out.write(path.size() + "\n");
+		for (Node n : path) {
+			out.write(n + "\n");
+		}
+	}
+
+	/**
+	 * Checks if a point is outside of the grid.
+	 * 
+	 * @param n
+	 *            the point
+	 * @return true if the point is outside of the grid, false otherwise
+	 */
+	private static boolean isOutOfBounds(Node n) {
+		return Math.abs(n.x) > ProblemStatement.BOUND_CONSTRAINT || Math.abs(n.y) > ProblemStatement.BOUND_CONSTRAINT;
+	}
+
+	/**
+	 * Returns the port the server is listening on.
+	 * 
+	 * @return the port of the server
+	 */
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		serverSocket.close();
+		executor.shutdown();
+
+		// Wakes up the threads waiting for a query.
+		for (Socket client : clients) {
+			client.close();
+		}
+		try {
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+
+			// The algorithms may still be in use, so they're left open.
+			return;
+		}
+		router.close();
+	}
+
+}
@@ -0,0 +1,175 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.reply.challenge.training;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import co.aurasphere.reply.challenge.training.model.Node;
+import co.aurasphere.reply.challenge.training.model.PathCache;
+import co.aurasphere.reply.challenge.training.model.Scene;
+
+/**
+ * Answers any number of path queries on the same {@link Scene}, which is
+ * parsed only once. Queries can run concurrently: each thread gets its own
+ * {@link PathFinder} and the paths found are kept in a {@link PathCache}, so
+ * repeated queries don't need any search. Closing the router closes all the
+ * algorithms it created.
+ * 
+ * @author Donato Rimenti
+ *
+ */
+public class Router implements Closeable {
+
+	/**
+	 * The scene of the queries.
+	 */
+	private final Scene scene;
+
+	/**
+	 * Creates the algorithm used by each thread. Algorithms safe to use
+	 * concurrently, like {@link HierarchicalPathFinder}, can be shared by
+	 * returning always the same instance.
+	 */
+	private final ThreadLocal<PathFinder> solvers;
+
+	/**
+	 * All the algorithms created so far, to be closed with the router.
+	 */
+	private final Set<PathFinder> created = Collections.newSetFromMap(new IdentityHashMap<PathFinder, Boolean>());
+
+	/**
+	 * The paths already found.
+	 */
+	private final PathCache cache;
+
+	/**
+	 * Instantiates a new Router.
+	 * 
+	 * @param scene
+	 *            the scene of the queries
+	 * @param solvers
+	 *            creates the algorithm used by each thread
+	 * @param cacheSize
+	 *            the maximum number of paths kept in the cache
+	 */
+	public Router(Scene scene, Supplier<PathFinder> solvers, int cacheSize) {
+		this.scene = scene;
+		this.solvers = ThreadLocal.withInitial(() -> {
+			PathFinder solver = solvers.get();
+			synchronized (created) {
+				created.add(solver);
+			}
+			return solver;
+		});
+		this.cache = new PathCache(cacheSize);
+	}
+
+	/**
+	 * Finds a path between two points, reduced like the solution of the
+	 * problem.
+	 * 
+	 * @param start
+	 *            the starting point
+	 * @param goal
+	 *            the ending point
+	 * @return the points of the path from the start to the goal, or an empty
+	 *         list if there's no path between them. The list can't be
+	 *         modified
+	 */
+	public List<Node> route(Node start, Node goal) {
+		List<Node> path = cache.get(start, goal);
+		if (path != null) {
+			return path;
+		}
+		return cache.put(start, goal, search(start, goal));
+	}
+
+	/**
+	 * Searches for a path between two points.
+	 * 
+	 * @param start
+	 *            the starting point
+	 * @param goal
+	 *            the ending point
+	 * @return the points of the path, or an empty list if there's no path
+	 */
+	private List<Node> search(Node start, Node goal) {
+		if (start.equals(goal)) {
+			return Collections.singletonList(new Node(start.x, start.y));
+		}
+
+		// The solvers link the given nodes to the path, so they get copies.
+		Node target = Solution.solve(scene, solvers.get(), new Node(start.x, start.y), new Node(goal.x, goal.y),
+				RunMetrics.DISABLED);
+		if (target == null) {
+			return Collections.emptyList();
+		}
+		return Solution.formatPathAsList(scene, target);
+	}
+
+	/**
+	 * Closes all the algorithms created so far. No query can run
+	 * concurrently or afterwards.
+	 * 
+	 * @throws IOException
+	 *             if an algorithm can't be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		IOException failure = null;
+		synchronized (created) {
+			for (PathFinder solver : created) {
+				try {
+					solver.close();
+				} catch (IOException e) {
+					if (failure == null) {
+						failure = e;
+					} else {
+						failure.addSuppressed(e);
+					}
+				}
+			}
+			created.clear();
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	/**
+	 * Gets the {@link #cache}.
+	 * 
+	 * @return the {@link #cache}
+	 */
+	public PathCache getCache() {
+		return cache;
+	}
+
+}
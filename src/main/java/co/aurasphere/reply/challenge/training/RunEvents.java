@@ -0,0 +1,65 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.reply.challenge.training;
+
+/**
+ * Publishes the metrics of a run as events of a profiler. Implemented by the
+ * FlightRecorderEvents, which are compiled separately since they need Java
+ * 11, while the rest of the solution runs on Java 8.
+ * 
+ * @author Donato Rimenti
+ *
+ */
+interface RunEvents {
+
+	/**
+	 * Begins the event of a phase.
+	 * 
+	 * @param phase
+	 *            the name of the phase
+	 * @return the event, or null if it's not enabled
+	 */
+	Object beginPhase(String phase);
+
+	/**
+	 * Ends and commits the event of a phase.
+	 * 
+	 * @param event
+	 *            the event returned by {@link #beginPhase(String)}
+	 * @param heapUsed
+	 *            the heap used at the end of the phase, in bytes
+	 */
+	void endPhase(Object event, long heapUsed);
+
+	/**
+	 * Commits the event with the counters of a search.
+	 * 
+	 * @param solver
+	 *            the name of the algorithm of the search
+	 * @param statistics
+	 *            the counters of the search
+	 */
+	void search(String solver, SearchStatistics statistics);
+
+}
@@ -0,0 +1,279 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.reply.challenge.training;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Wall time and heap of each phase of a run, plus the counters of its
+ * search. Each phase is also recorded as a JDK Flight Recorder event, where
+ * available, so that a run can be profiled by just starting a recording.
+ * <p>
+ * The {@link #DISABLED} instance records nothing, so the code paths which
+ * don't need the metrics can pass it without any cost. An instance is not
+ * thread safe: each run must have its own.
+ * 
+ * @author Donato Rimenti
+ *
+ */
+public class RunMetrics {
+
+	/**
+	 * The phases of a run.
+	 * 
+	 * @author Donato Rimenti
+	 *
+	 */
+	public enum Phase {
+
+		/**
+		 * Reading the input file.
+		 */
+		PARSE,
+
+		/**
+		 * Drawing the obstacles on the grid.
+		 */
+		RASTERIZE,
+
+		/**
+		 * Indexing the obstacles.
+		 */
+		INDEX,
+
+		/**
+		 * Clearing the path around the terminal points.
+		 */
+		CLEAR_PATH,
+
+		/**
+		 * Checking that the terminal points are not enclosed.
+		 */
+		REACHABILITY,
+
+		/**
+		 * Searching the path.
+		 */
+		SEARCH,
+
+		/**
+		 * Compressing and reducing the path found.
+		 */
+		REDUCE
+	}
+
+	/**
+	 * Metrics which record nothing.
+	 */
+	public static final RunMetrics DISABLED = new RunMetrics(false);
+
+	/**
+	 * Name of the class of the Flight Recorder events, which is compiled
+	 * separately and may be missing.
+	 */
+	private static final String FLIGHT_RECORDER_EVENTS = RunMetrics.class.getPackage().getName()
+			+ ".FlightRecorderEvents";
+
+	/**
+	 * The Flight Recorder events, or null if they're not available.
+	 */
+	private static final RunEvents EVENTS = loadFlightRecorderEvents();
+
+	/**
+	 * Whether these metrics record anything.
+	 */
+	private final boolean enabled;
+
+	/**
+	 * Time when each phase in progress began, from {@link System#nanoTime()}.
+	 */
+	private final long[] beginTimes = new long[Phase.values().length];
+
+	/**
+	 * The Flight Recorder event of each phase in progress, or null.
+	 */
+	private final Object[] events = new Object[Phase.values().length];
+
+	/**
+	 * Wall time spent in each phase, in nanoseconds.
+	 */
+	private final Map<Phase, Long> times = new EnumMap<Phase, Long>(Phase.class);
+
+	/**
+	 * Heap used at the end of each phase, in bytes.
+	 */
+	private final Map<Phase, Long> heapUsed = new EnumMap<Phase, Long>(Phase.class);
+
+	/**
+	 * Name of the algorithm of the search.
+	 */
+	private String solver;
+
+	/**
+	 * Counters of the search, or null if not available.
+	 */
+	private SearchStatistics searchStatistics;
+
+	/**
+	 * Instantiates new metrics which record the run.
+	 */
+	public RunMetrics() {
+		this(true);
+	}
+
+	/**
+	 * Instantiates new RunMetrics.
+	 * 
+	 * @param enabled
+	 *            the {@link #enabled}
+	 */
+	private RunMetrics(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * Marks the beginning of a phase.
+	 * 
+	 * @param phase
+	 *            the phase
+	 */
+	public void begin(Phase phase) {
+		if (!enabled) {
+			return;
+		}
+		if (EVENTS != null) {
+			events[phase.ordinal()] = EVENTS.beginPhase(phase.name());
+		}
+		beginTimes[phase.ordinal()] = System.nanoTime();
+	}
+
+	/**
+	 * Marks the end of a phase, recording its time and the heap used. A phase
+	 * run more than once is recorded as the sum of its times.
+	 * 
+	 * @param phase
+	 *            the phase
+	 */
+	public void end(Phase phase) {
+		if (!enabled) {
+			return;
+		}
+		long elapsed = System.nanoTime() - beginTimes[phase.ordinal()];
+		Runtime runtime = Runtime.getRuntime();
+		long used = runtime.totalMemory() - runtime.freeMemory();
+		times.merge(phase, elapsed, Long::sum);
+		heapUsed.put(phase, used);
+		Object event = events[phase.ordinal()];
+		if (event != null) {
+			events[phase.ordinal()] = null;
+			EVENTS.endPhase(event, used);
+		}
+	}
+
+	/**
+	 * Records the counters of the search of this run.
+	 * 
+	 * @param solver
+	 *            the algorithm of the search
+	 */
+	public void recordSearch(PathFinder solver) {
+		if (!enabled) {
+			return;
+		}
+		this.solver = solver.getClass().getSimpleName();
+		SearchStatistics statistics = solver.getStatistics();
+		this.searchStatistics = statistics == null ? null : statistics.copy();
+		if (EVENTS != null && searchStatistics != null) {
+			EVENTS.search(this.solver, searchStatistics);
+		}
+	}
+
+	/**
+	 * Returns the wall time spent in a phase.
+	 * 
+	 * @param phase
+	 *            the phase
+	 * @return the time spent in the phase in nanoseconds, or 0 if the phase
+	 *         has not run
+	 */
+	public long getTime(Phase phase) {
+		return times.getOrDefault(phase, 0L);
+	}
+
+	/**
+	 * Returns the heap used at the end of a phase.
+	 * 
+	 * @param phase
+	 *            the phase
+	 * @return the heap used in bytes, or 0 if the phase has not run
+	 */
+	public long getHeapUsed(Phase phase) {
+		return heapUsed.getOrDefault(phase, 0L);
+	}
+
+	/**
+	 * Gets the {@link #searchStatistics}.
+	 * 
+	 * @return the {@link #searchStatistics}
+	 */
+	public SearchStatistics getSearchStatistics() {
+		return searchStatistics;
+	}
+
+	/**
+	 * Loads the Flight Recorder events. They're missing if the solution has
+	 * been built with JDK 8, and the Flight Recorder API is missing in older
+	 * Java 8 runtimes.
+	 * 
+	 * @return the events, or null if they're not available
+	 */
+	private static RunEvents loadFlightRecorderEvents() {
+		try {
+			Class.forName("jdk.jfr.Event");
+			return (RunEvents) Class.forName(FLIGHT_RECORDER_EVENTS).getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException | LinkageError e) {
+			return null;
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		StringBuilder report = new StringBuilder();
+		for (Map.Entry<Phase, Long> time : times.entrySet()) {
+			report.append(time.getKey().name().toLowerCase()).append(": ").append(time.getValue() / 1_000_000)
+					.append(" ms, heap ").append(heapUsed.get(time.getKey()) >> 20).append(" MB\n");
+		}
+		if (searchStatistics != null) {
+			report.append(solver).append(": ").append(searchStatistics).append('\n');
+		}
+		return report.toString();
+	}
+
+}
@@ -0,0 +1,56 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.reply.challenge.training;
+
+import java.nio.file.Paths;
+
+import co.aurasphere.reply.challenge.training.model.SceneFile;
+
+/**
+ * Compiles an input file into a {@link SceneFile}, which can then be loaded
+ * by {@link Solution#parseFile(String)} in place of the input file.
+ * 
+ * @author Donato Rimenti
+ *
+ */
+public class SceneCompiler {
+
+	/**
+	 * Private constructor for utility class.
+	 */
+	private SceneCompiler() {
+	}
+
+	/**
+	 * Parses an input file and writes it as a scene file.
+	 * 
+	 * @param args
+	 *            the input file and the scene file to write
+	 * @throws Exception
+	 */
+	public static void main(String[] args) throws Exception {
+		SceneFile.compile(Solution.parseFile(args[0]), Paths.get(args[1]));
+	}
+
+}
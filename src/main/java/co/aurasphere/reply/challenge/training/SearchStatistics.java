@@ -0,0 +1,186 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.reply.challenge.training;
+
+/**
+ * Counters of the work done by a search. The algorithms update the counters
+ * directly while searching, which costs a few increments for each expanded
+ * node, and reset them when a new search starts.
+ * 
+ * @author Donato Rimenti
+ *
+ */
+public class SearchStatistics {
+
+	/**
+	 * Number of nodes expanded.
+	 */
+	long expanded;
+
+	/**
+	 * Number of nodes discovered and added to the open list for the first
+	 * time.
+	 */
+	long generated;
+
+	/**
+	 * Number of times a better path has been found to a node already in the
+	 * open list.
+	 */
+	long improved;
+
+	/**
+	 * Number of times a better path has been found to a node already
+	 * expanded, which had to be expanded again.
+	 */
+	long reopened;
+
+	/**
+	 * Number of checks of nodes or lines against the obstacles.
+	 */
+	long obstacleTests;
+
+	/**
+	 * Largest number of nodes in the open list at the same time.
+	 */
+	int openListPeak;
+
+	/**
+	 * Sets all the counters to 0.
+	 */
+	void reset() {
+		expanded = 0;
+		generated = 0;
+		improved = 0;
+		reopened = 0;
+		obstacleTests = 0;
+		openListPeak = 0;
+	}
+
+	/**
+	 * Adds the counters of another search to these ones. The peaks are not
+	 * summed, the largest one is kept.
+	 * 
+	 * @param other
+	 *            the counters to add
+	 */
+	void add(SearchStatistics other) {
+		expanded += other.expanded;
+		generated += other.generated;
+		improved += other.improved;
+		reopened += other.reopened;
+		obstacleTests += other.obstacleTests;
+		openListPeak = Math.max(openListPeak, other.openListPeak);
+	}
+
+	/**
+	 * Updates the {@link #openListPeak} with the current size of the open
+	 * list.
+	 * 
+	 * @param size
+	 *            the number of nodes in the open list
+	 */
+	void updateOpenListPeak(int size) {
+		if (size > openListPeak) {
+			openListPeak = size;
+		}
+	}
+
+	/**
+	 * Returns a copy of these counters.
+	 * 
+	 * @return a copy of these counters
+	 */
+	public SearchStatistics copy() {
+		SearchStatistics copy = new SearchStatistics();
+		copy.add(this);
+		return copy;
+	}
+
+	/**
+	 * Gets the {@link #expanded}.
+	 * 
+	 * @return the {@link #expanded}
+	 */
+	public long getExpanded() {
+		return expanded;
+	}
+
+	/**
+	 * Gets the {@link #generated}.
+	 * 
+	 * @return the {@link #generated}
+	 */
+	public long getGenerated() {
+		return generated;
+	}
+
+	/**
+	 * Gets the {@link #improved}.
+	 * 
+	 * @return the {@link #improved}
+	 */
+	public long getImproved() {
+		return improved;
+	}
+
+	/**
+	 * Gets the {@link #reopened}.
+	 * 
+	 * @return the {@link #reopened}
+	 */
+	public long getReopened() {
+		return reopened;
+	}
+
+	/**
+	 * Gets the {@link #obstacleTests}.
+	 * 
+	 * @return the {@link #obstacleTests}
+	 */
+	public long getObstacleTests() {
+		return obstacleTests;
+	}
+
+	/**
+	 * Gets the {@link #openListPeak}.
+	 * 
+	 * @return the {@link #openListPeak}
+	 */
+	public int getOpenListPeak() {
+		return openListPeak;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "expanded " + expanded + ", generated " + generated + ", improved " + improved + ", reopened "
+				+ reopened + ", obstacle tests " + obstacleTests + ", open list peak " + openListPeak;
+	}
+
+}
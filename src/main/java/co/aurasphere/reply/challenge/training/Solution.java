@@ -23,22 +23,26 @@
  */
 package co.aurasphere.reply.challenge.training;
 
-import java.awt.Point;
 import java.io.BufferedOutputStream;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.PrintStream;
-import java.net.URI;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.Iterator;
 import java.util.List;
+import java.util.function.BiConsumer;
 
+import co.aurasphere.reply.challenge.training.model.ClosedGrid;
 import co.aurasphere.reply.challenge.training.model.Node;
 import co.aurasphere.reply.challenge.training.model.Obstacle;
-import co.aurasphere.reply.challenge.training.model.ProblemStatement;
+import co.aurasphere.reply.challenge.training.model.ObstacleIndex;
+import co.aurasphere.reply.challenge.training.model.OccupancyGrid;
+import co.aurasphere.reply.challenge.training.model.Scene;
+import co.aurasphere.reply.challenge.training.model.SceneFile;
 
 /**
  * Main solution class for the Reply code challenge 2018 training problem.
@@ -54,8 +58,21 @@ public class Solution {
 	private static String OUTPUT_FILE = "C:\\Users\\donato\\Desktop\\output_4.txt";
 
 	/**
-	 * The main method of this class. Reads an input file into a
-	 * {@link ProblemStatement}, solves it using {@link AStarAlgorithm} and
+	 * Name of the algorithm used to solve the problem. Can be overridden with
+	 * the "solver" system property. See {@link #createPathFinder(String)} for
+	 * the available values.
+	 */
+	private static String SOLVER = System.getProperty("solver", "astar");
+
+	/**
+	 * Whether the {@link RunMetrics} are printed on the standard error at the
+	 * end of the run. Can be enabled with the "metrics" system property.
+	 */
+	private static boolean PRINT_METRICS = Boolean.getBoolean("metrics");
+
+	/**
+	 * The main method of this class. Reads an input file into a {@link Scene},
+	 * solves it using the {@link PathFinder} selected by {@link #SOLVER} and
 	 * prints the solution.
 	 *
 	 * @param args
@@ -64,7 +81,8 @@ public class Solution {
 	 */
 	public static void main(String[] args) throws Exception {
 		// Loads the problem statement.
-		parseFile("input_4.txt");
+		RunMetrics metrics = new RunMetrics();
+		Scene scene = parseFile("input_4.txt", metrics);
 
 		// Redirects the system output to a file if present.
 		if (OUTPUT_FILE != null) {
@@ -72,61 +90,291 @@ public class Solution {
 					StandardCharsets.UTF_8.name()));
 		}
 
+		// Solves the problem.
+		Node target;
+		try (PathFinder solver = createPathFinder(SOLVER)) {
+			target = solve(scene, solver, metrics);
+		}
+		printSolution(scene, target, metrics);
+		if (PRINT_METRICS) {
+			System.err.print(metrics);
+		}
+	}
+
+	/**
+	 * Solves a problem, checking first that it may have a solution.
+	 * 
+	 * @param scene
+	 *            the problem to solve
+	 * @param solver
+	 *            the algorithm used to solve the problem
+	 * @return the last node of the path, or null if there's no solution
+	 */
+	public static Node solve(Scene scene, PathFinder solver) {
+		return solve(scene, solver, RunMetrics.DISABLED);
+	}
+
+	/**
+	 * Solves a problem, checking first that it may have a solution.
+	 * 
+	 * @param scene
+	 *            the problem to solve
+	 * @param solver
+	 *            the algorithm used to solve the problem
+	 * @param metrics
+	 *            where the phases of the solution are recorded
+	 * @return the last node of the path, or null if there's no solution
+	 */
+	public static Node solve(Scene scene, PathFinder solver, RunMetrics metrics) {
+		return solve(scene, solver, scene.getStartingPoint(), scene.getEndingPoint(), metrics);
+	}
+
+	/**
+	 * Finds a path between two points of a problem, checking first that it
+	 * may exist.
+	 * 
+	 * @param scene
+	 *            the problem to solve
+	 * @param solver
+	 *            the algorithm used to solve the problem
+	 * @param startingPoint
+	 *            the first point of the path, linked to it by the solver
+	 * @param endingPoint
+	 *            the last point of the path
+	 * @param metrics
+	 *            where the phases of the solution are recorded
+	 * @return the last node of the path, or null if there's no path
+	 */
+	public static Node solve(Scene scene, PathFinder solver, Node startingPoint, Node endingPoint,
+			RunMetrics metrics) {
 		// If a terminal point of the problem is in the obstacles set, checks if
 		// this is due to the 4C representation. If so, tryes to create a path
 		// by converting the obstacles from 8C to 4C in the first segment. This
 		// problem is visible in the ending point of the first input dataset.
-		if (ProblemStatement.obstaclePoints.contains(ProblemStatement.startingPoint)) {
-			if (!PathOptimizer.clearPath(ProblemStatement.startingPoint)) {
-				System.out.print("IMPOSSIBLE");
-				return;
-			}
+		metrics.begin(RunMetrics.Phase.CLEAR_PATH);
+		if (scene.isObstaclePoint(startingPoint)) {
+			scene = PathOptimizer.clearPath(scene, startingPoint);
 		}
-		if (ProblemStatement.obstaclePoints.contains(ProblemStatement.endingPoint)) {
-			if (!PathOptimizer.clearPath(ProblemStatement.endingPoint)) {
-				System.out.print("IMPOSSIBLE");
-				return;
-			}
+		if (scene != null && scene.isObstaclePoint(endingPoint)) {
+			scene = PathOptimizer.clearPath(scene, endingPoint);
+		}
+		metrics.end(RunMetrics.Phase.CLEAR_PATH);
+		if (scene == null) {
+			return null;
 		}
 
-		// Solves the problem.
-		AStarAlgorithm solver = new AStarAlgorithm();
-		Node target = solver.calculateShortestPath(ProblemStatement.startingPoint, ProblemStatement.endingPoint);
+		// Checks that the terminal points are not enclosed by the obstacles,
+		// which would make the search explore the whole area around them.
+		metrics.begin(RunMetrics.Phase.REACHABILITY);
+		boolean reachable = ReachabilityCheck.isReachable(scene, startingPoint, endingPoint);
+		metrics.end(RunMetrics.Phase.REACHABILITY);
+		if (!reachable) {
+			return null;
+		}
+
+		metrics.begin(RunMetrics.Phase.SEARCH);
+		Node target = solver.calculateShortestPath(scene, startingPoint, endingPoint);
+		metrics.end(RunMetrics.Phase.SEARCH);
+		metrics.recordSearch(solver);
+		return target;
+	}
+
+	/**
+	 * Prints a solution, replacing the content of the {@link #OUTPUT_FILE} if
+	 * present. Anytime solvers call this each time they find a better path, so
+	 * the file always contains the best one.
+	 * 
+	 * @param scene
+	 *            the problem solved
+	 * @param target
+	 *            the last node of the path, or null if there's no solution
+	 */
+	public static void printSolution(Scene scene, Node target) {
+		printSolution(scene, target, RunMetrics.DISABLED);
+	}
 
+	/**
+	 * Prints a solution, replacing the content of the {@link #OUTPUT_FILE} if
+	 * present.
+	 * 
+	 * @param scene
+	 *            the problem solved
+	 * @param target
+	 *            the last node of the path, or null if there's no solution
+	 * @param metrics
+	 *            where the reduction of the path is recorded
+	 */
+	public static void printSolution(Scene scene, Node target, RunMetrics metrics) {
 		// Clears the output from debugging results before printing the actual
 		// solution.
 		if (OUTPUT_FILE != null) {
-			System.setOut(new PrintStream(new BufferedOutputStream(new FileOutputStream(OUTPUT_FILE)), true,
-					StandardCharsets.UTF_8.name()));
+			try {
+				System.setOut(new PrintStream(new BufferedOutputStream(new FileOutputStream(OUTPUT_FILE)), true,
+						StandardCharsets.UTF_8.name()));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
 		}
+		writeSolution(scene, target, System.out, metrics);
+	}
+
+	/**
+	 * Writes a solution in the format required by the problem.
+	 * 
+	 * @param scene
+	 *            the problem solved
+	 * @param target
+	 *            the last node of the path, or null if there's no solution
+	 * @param out
+	 *            where the solution is written
+	 */
+	public static void writeSolution(Scene scene, Node target, PrintStream out) {
+		writeSolution(scene, target, out, RunMetrics.DISABLED);
+	}
 
-		// Prints the solution.
+	/**
+	 * Writes a solution in the output format: the number of points of the path
+	 * followed by the points, or "IMPOSSIBLE" if there's no solution.
+	 * 
+	 * @param scene
+	 *            the problem solved
+	 * @param target
+	 *            the last node of the path, or null if there's no solution
+	 * @param out
+	 *            where the solution is written
+	 * @param metrics
+	 *            where the reduction of the path is recorded
+	 */
+	public static void writeSolution(Scene scene, Node target, PrintStream out, RunMetrics metrics) {
 		if (target == null) {
 			// In this case the score is 0.
-			System.out.print("IMPOSSIBLE");
+			out.print("IMPOSSIBLE");
 		} else {
 			// In this case the score is 1 / numberOfNodes * 1_000_000 if the
 			// solution is correct.
 
 			// Cleans up the path applying some optimizations.
-			List<Node> formattedPath = formatPathAsList(target);
+			List<Node> formattedPath = formatPathAsList(scene, target, metrics);
 
 			// Prints the solution.
-			System.out.println(formattedPath.size());
-			for (Point n : formattedPath) {
-				System.out.println(n);
+			out.println(formattedPath.size());
+			for (Node n : formattedPath) {
+				out.println(n);
 			}
 
 		}
 	}
 
+	/**
+	 * Creates the algorithm used to solve the problem.
+	 * 
+	 * @param name
+	 *            the name of the algorithm: "astar" for {@link AStarAlgorithm},
+	 *            "astar-bucket" for {@link AStarAlgorithm} with a
+	 *            {@link BucketOpenList}, "astar-alt" for {@link AStarAlgorithm}
+	 *            with a {@link LandmarkHeuristic}, "astar-offheap" for
+	 *            {@link AStarAlgorithm} with a {@link ClosedGrid} (mapped to a
+	 *            temporary file in the directory of the "closed.dir" system
+	 *            property if set, in direct buffers otherwise), "theta" for
+	 *            {@link AStarAlgorithm} in any-angle mode, "anytime" for {@link AnytimeAStar} (with
+	 *            the "budget" system property as time limit in milliseconds,
+	 *            10 seconds by default), "bidirectional" for
+	 *            {@link BidirectionalAStar} ("bidirectional-parallel" to run it
+	 *            on two threads), "hda"
+	 *            for {@link ParallelAStar}, "hpa" for
+	 *            {@link HierarchicalPathFinder}, "jps" for
+	 *            {@link JumpPointSearch} or "visibility" for
+	 *            {@link VisibilityGraphSolver}
+	 * @return the algorithm
+	 */
+	public static PathFinder createPathFinder(String name) {
+		return createPathFinder(name, Solution::printSolution);
+	}
+
+	/**
+	 * Creates the algorithm used to solve the problem.
+	 * 
+	 * @param name
+	 *            the name of the algorithm, see
+	 *            {@link #createPathFinder(String)}
+	 * @param listener
+	 *            notified by the anytime algorithms each time they find a
+	 *            better path
+	 * @return the algorithm
+	 */
+	public static PathFinder createPathFinder(String name, BiConsumer<Scene, Node> listener) {
+		switch (name) {
+		case "astar":
+			return new AStarAlgorithm();
+		case "astar-bucket":
+			return new AStarAlgorithm(new BucketOpenList());
+		case "astar-alt":
+			return new AStarAlgorithm(new IndexedHeapOpenList(), false, true);
+		case "astar-offheap":
+			return new AStarAlgorithm(new IndexedHeapOpenList(), false, false, createClosedGrid());
+		case "theta":
+			return new AStarAlgorithm(new IndexedHeapOpenList(), true);
+		case "anytime":
+			return new AnytimeAStar(2.5, 0.5, Long.getLong("budget", 10_000), listener);
+		case "bidirectional":
+			return new BidirectionalAStar();
+		case "bidirectional-parallel":
+			return new BidirectionalAStar(1, true);
+		case "hda":
+			return new ParallelAStar();
+		case "hpa":
+			return new HierarchicalPathFinder();
+		case "jps":
+			return new JumpPointSearch();
+		case "visibility":
+			return new VisibilityGraphSolver();
+		default:
+			throw new IllegalArgumentException("Unknown solver: " + name);
+		}
+	}
+
+	/**
+	 * Creates the {@link ClosedGrid} of the "astar-offheap" algorithm.
+	 * 
+	 * @return a grid mapped to a temporary file in the directory of the
+	 *         "closed.dir" system property, or stored in direct buffers if
+	 *         it's not set
+	 */
+	private static ClosedGrid createClosedGrid() {
+		String directory = System.getProperty("closed.dir");
+		if (directory == null) {
+			return new ClosedGrid();
+		}
+		try {
+			return new ClosedGrid(Paths.get(directory));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Converts the path into a list and performs some optimizations.
+	 * 
+	 * @param scene
+	 *            the scene of the path
+	 * @param node
+	 *            the last node of the path
+	 */
+	static List<Node> formatPathAsList(Scene scene, Node node) {
+		return formatPathAsList(scene, node, RunMetrics.DISABLED);
+	}
+
 	/**
 	 * Converts the path into a list and performs some optimizations.
 	 * 
+	 * @param scene
+	 *            the scene of the path
 	 * @param node
 	 *            the last node of the path
+	 * @param metrics
+	 *            where the optimizations are recorded
 	 */
-	private static List<Node> formatPathAsList(Node node) {
+	static List<Node> formatPathAsList(Scene scene, Node node, RunMetrics metrics) {
 		List<Node> formattedPath = new ArrayList<Node>();
 
 		// Traverses back the whole path, adding each node to a list.
@@ -142,124 +390,89 @@ public class Solution {
 		Collections.reverse(formattedPath);
 
 		// Compresses the path by leaving only the turning points.
+		metrics.begin(RunMetrics.Phase.REDUCE);
 		formattedPath = PathOptimizer.compressPath(formattedPath);
 
 		// Reduces the path by removing unnecessary points.
-		formattedPath = PathOptimizer.reduce(formattedPath);
+		formattedPath = PathOptimizer.reduce(scene, formattedPath);
+		metrics.end(RunMetrics.Phase.REDUCE);
 
 		return formattedPath;
 	}
 
 	/**
-	 * Loads an input file from classpath into the {@link ProblemStatement}
-	 * class.
+	 * Loads an input file into a {@link Scene}. The file is parsed by an
+	 * {@link InputParser}, without creating any string. Files with the
+	 * {@link SceneFile#EXTENSION} are loaded as scene files instead.
 	 * 
 	 * @param fileName
-	 *            the input file resource name
+	 *            the path of the input file on the filesystem or its resource
+	 *            name on the classpath
+	 * @return the loaded scene
 	 * @throws Exception
 	 */
-	public static void parseFile(String fileName) throws Exception {
-		// Reads all the file lines.
-		URI filePath = Solution.class.getClassLoader().getResource(fileName).toURI();
-		List<String> fileLines = Files.readAllLines(Paths.get(filePath), StandardCharsets.UTF_8);
-
-		// Processes each line.
-		Iterator<String> it = fileLines.iterator();
-		String currentLine = it.next();
-
-		// Reads the starting and ending point.
-		String[] coords = currentLine.split(" ");
-		ProblemStatement.startingPoint = new Node(Integer.parseInt(coords[0]), Integer.parseInt(coords[1]));
-		ProblemStatement.endingPoint = new Node(Integer.parseInt(coords[2]), Integer.parseInt(coords[3]));
-
-		// Reads the number of obstacles.
-		String secondLine = it.next();
-		ProblemStatement.numberOfObstacles = Integer.parseInt(secondLine);
-
-		// Reads the obstacles. We store it both as points and whole obstacles
-		// for later optimizations.
-		while (it.hasNext()) {
-			currentLine = it.next();
-			coords = currentLine.split(" ");
-			int x1 = Integer.parseInt(coords[0]);
-			int y1 = Integer.parseInt(coords[1]);
-			int x2 = Integer.parseInt(coords[2]);
-			int y2 = Integer.parseInt(coords[3]);
-			int x3 = Integer.parseInt(coords[4]);
-			int y3 = Integer.parseInt(coords[5]);
-
-			ProblemStatement.obstaclePoints.addAll(getLinePoints(x1, y1, x2, y2));
-			ProblemStatement.obstaclePoints.addAll(getLinePoints(x2, y2, x3, y3));
-			ProblemStatement.obstaclePoints.addAll(getLinePoints(x3, y3, x1, y1));
-
-			Obstacle obstacle = new Obstacle(parseLineAsPoints(currentLine));
-			ProblemStatement.obstacles.add(obstacle);
-		}
+	public static Scene parseFile(String fileName) throws Exception {
+		return parseFile(fileName, RunMetrics.DISABLED);
 	}
 
 	/**
-	 * Simple Bresenham's line algorithm implementation to find all the points
-	 * in a line between two points and write them in 8-Connected notation. Not
-	 * written by me.
+	 * Loads an input file into a {@link Scene}, recording the time spent
+	 * parsing, rasterizing and indexing the obstacles.
 	 * 
-	 * @param x0
-	 *            the first point x coordinate
-	 * @param y0
-	 *            the first point y coordinate
-	 * @param x1
-	 *            the second point x coordinate
-	 * @param y1
-	 *            the second point y coordinate
-	 * @return a collection of points between the two passed as argument
+	 * @param fileName
+	 *            the path of the input file on the filesystem or its resource
+	 *            name on the classpath
+	 * @param metrics
+	 *            where the phases of the loading are recorded
+	 * @return the loaded scene
+	 * @throws Exception
 	 */
-	public static List<Node> getLinePoints(int x0, int y0, int x1, int y1) {
-		List<Node> line = new ArrayList<Node>();
-
-		final int dx = Math.abs(x1 - x0);
-		final int dy = Math.abs(y1 - y0);
-		final int totalD = dx + dy;
-
-		final int ix = x0 < x1 ? 1 : x0 > x1 ? -1 : 0;
-		final int iy = y0 < y1 ? 1 : y0 > y1 ? -1 : 0;
-
-		int e = 0;
-		int xD = x0;
-		int yD = y0;
-		int e1, e2;
-
-		for (int i = 0; i < totalD; i++) {
-			line.add(new Node(xD, yD));
-			e1 = e + dy;
-			e2 = e - dx;
-			if (Math.abs(e1) < Math.abs(e2)) {
-				xD += ix;
-				e = e1;
-			} else {
-				yD += iy;
-				e = e2;
-			}
+	public static Scene parseFile(String fileName, RunMetrics metrics) throws Exception {
+		metrics.begin(RunMetrics.Phase.PARSE);
+		if (fileName.endsWith(SceneFile.EXTENSION)) {
+			Scene scene = SceneFile.load(Paths.get(fileName));
+			metrics.end(RunMetrics.Phase.PARSE);
+			return scene;
 		}
-		return line;
-	}
+		InputParser parser = InputParser.open(fileName);
 
-	/**
-	 * Parses a string as an unknown size collection of 2D points coordinates.
-	 * The string format is assumed to be an even number of integers separed by
-	 * a whitespace character.
-	 * 
-	 * @param line
-	 *            a string representing a collection of 2D points coordinates
-	 * @return a list of {@link Point}
-	 */
-	private static List<Point> parseLineAsPoints(String line) {
-		String[] coords = line.split(" ");
-		// We roughly estimate the size of the array to improve performances a
-		// little.
-		List<Point> points = new ArrayList<Point>(60000);
-		// Step by 2 since each iteration makes a point out of 2 array elements.
-		for (int i = 0; i < coords.length; i += 2) {
-			points.add(new Point(Integer.parseInt(coords[i]), Integer.parseInt(coords[i + 1])));
+		// Reads the starting and ending point.
+		Node startingPoint = new Node(parser.nextInt(), parser.nextInt());
+		Node endingPoint = new Node(parser.nextInt(), parser.nextInt());
+
+		// Reads the number of obstacles.
+		int numberOfObstacles = parser.nextInt();
+
+		// Reads the obstacles until the end of the file. The declared number
+		// is only used to size the array.
+		int[] coordinates = new int[numberOfObstacles * 6];
+		int size = 0;
+		while (parser.hasNext()) {
+			if (size == coordinates.length) {
+				coordinates = Arrays.copyOf(coordinates, Math.max(6, size * 2));
+			}
+			coordinates[size++] = parser.nextInt();
+		}
+		coordinates = Arrays.copyOf(coordinates, size / 6 * 6);
+		metrics.end(RunMetrics.Phase.PARSE);
+
+		// We store the obstacles both as points and whole obstacles for later
+		// optimizations.
+		metrics.begin(RunMetrics.Phase.RASTERIZE);
+		OccupancyGrid obstaclePoints = new OccupancyGrid();
+		ObstacleRasterizer.rasterize(coordinates, obstaclePoints);
+		metrics.end(RunMetrics.Phase.RASTERIZE);
+		metrics.begin(RunMetrics.Phase.INDEX);
+		List<Obstacle> obstacles = new ArrayList<Obstacle>(coordinates.length / 6);
+		for (int i = 0; i < coordinates.length; i += 6) {
+			obstacles.add(new Obstacle(coordinates[i], coordinates[i + 1], coordinates[i + 2], coordinates[i + 3],
+					coordinates[i + 4], coordinates[i + 5]));
 		}
-		return points;
+
+		// Indexes the obstacles to speed up the geometric queries.
+		ObstacleIndex obstacleIndex = new ObstacleIndex(obstacles);
+		metrics.end(RunMetrics.Phase.INDEX);
+		return new Scene(startingPoint, endingPoint, numberOfObstacles, coordinates, obstacles, obstacleIndex,
+				obstaclePoints);
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,330 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.reply.challenge.training;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import co.aurasphere.reply.challenge.training.model.Geometry;
+import co.aurasphere.reply.challenge.training.model.Node;
+import co.aurasphere.reply.challenge.training.model.NodePool;
+import co.aurasphere.reply.challenge.training.model.Obstacle;
+import co.aurasphere.reply.challenge.training.model.ObstacleIndex;
+import co.aurasphere.reply.challenge.training.model.Scene;
+
+/**
+ * Solver which doesn't use the grid at all. The shortest path between two
+ * points among polygonal obstacles only turns at the obstacle vertices, so
+ * this solver builds a visibility graph whose nodes are the start, the goal
+ * and the obstacle vertices moved one step outwards, and runs A* on it with
+ * the euclidean distance as heuristic.
+ * <p>
+ * The edges are computed lazily when a node is expanded, by testing it
+ * against all the other nodes in parallel. Only the edges which are tangent
+ * to the obstacles at both ends are considered, since a shortest path never
+ * turns around a vertex in any other way.
+ * 
+ * @author Donato Rimenti
+ *
+ */
+public class VisibilityGraphSolver implements PathFinder {
+
+	/**
+	 * Id of the starting node in the graph.
+	 */
+	private static final int START = 0;
+
+	/**
+	 * Id of the ending node in the graph.
+	 */
+	private static final int GOAL = 1;
+
+	/**
+	 * The index the obstacle vertices have been computed for.
+	 */
+	private ObstacleIndex index;
+
+	/**
+	 * Coordinates of the graph nodes, interleaved (x0, y0, x1, y1...). The
+	 * first two nodes are the start and the goal.
+	 */
+	private int[] coordinates;
+
+	/**
+	 * Coordinates of the obstacle vertex each graph node comes from,
+	 * followed by the ones of the two other vertices of its obstacle (6
+	 * values for each node), used for the tangency checks.
+	 */
+	private int[] corners;
+
+	/**
+	 * Whether each graph node needs the tangency checks. Nodes shared by more
+	 * than one obstacle, the start and the goal are always considered.
+	 */
+	private boolean[] tangentOnly;
+
+	/**
+	 * Number of nodes in the graph.
+	 */
+	private int size;
+
+	/**
+	 * Counters of the work done by the last search. The obstacle tests are
+	 * the edges checked against the obstacles.
+	 */
+	private final SearchStatistics statistics = new SearchStatistics();
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * co.aurasphere.reply.challenge.training.PathFinder#calculateShortestPath(
+	 * co.aurasphere.reply.challenge.training.model.Scene,
+	 * co.aurasphere.reply.challenge.training.model.Node,
+	 * co.aurasphere.reply.challenge.training.model.Node)
+	 */
+	@Override
+	public Node calculateShortestPath(Scene scene, Node start, Node goal) {
+		if (index != scene.getObstacleIndex()) {
+			index = scene.getObstacleIndex();
+			buildNodes(scene.getObstacles());
+		}
+		coordinates[START * 2] = start.x;
+		coordinates[START * 2 + 1] = start.y;
+		coordinates[GOAL * 2] = goal.x;
+		coordinates[GOAL * 2 + 1] = goal.y;
+		statistics.reset();
+
+		double[] g = new double[size];
+		Arrays.fill(g, Double.POSITIVE_INFINITY);
+		int[] parents = new int[size];
+		boolean[] closed = new boolean[size];
+		OpenList openList = new IndexedHeapOpenList();
+
+		g[START] = 0;
+		parents[START] = -1;
+		openList.add(START, h(START));
+		while (!openList.isEmpty()) {
+			int q = openList.poll();
+			statistics.expanded++;
+			if (q == GOAL) {
+				return buildPath(parents);
+			}
+			closed[q] = true;
+
+			// Computes the visible nodes in parallel, this is the expensive
+			// part of the algorithm. The cheap tangency checks come first,
+			// so that only the remaining edges are tested and counted.
+			final int current = q;
+			int[] candidates = IntStream.range(0, size).parallel()
+					.filter(n -> !closed[n] && n != current && isTangent(n, current) && isTangent(current, n))
+					.toArray();
+			statistics.obstacleTests += candidates.length;
+			int[] successors = Arrays.stream(candidates).parallel().filter(n -> !isObstructed(current, n)).toArray();
+
+			for (int successor : successors) {
+				double tentativeGScore = g[q] + distance(q, successor);
+				if (tentativeGScore >= g[successor]) {
+					continue;
+				}
+				boolean open = g[successor] != Double.POSITIVE_INFINITY;
+				g[successor] = tentativeGScore;
+				parents[successor] = q;
+				if (open) {
+					statistics.improved++;
+					openList.update(successor, tentativeGScore + h(successor));
+				} else {
+					openList.add(successor, tentativeGScore + h(successor));
+					statistics.generated++;
+					statistics.updateOpenListPeak(openList.size());
+				}
+			}
+		}
+
+		// No path has been found.
+		return null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see co.aurasphere.reply.challenge.training.PathFinder#getStatistics()
+	 */
+	@Override
+	public SearchStatistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * Computes the graph nodes from the obstacle vertices. Each vertex is
+	 * moved by one step along the bisector of its angle, away from its
+	 * obstacle, and discarded if it ends inside or on the border of another
+	 * one, according to the {@link #index}.
+	 * 
+	 * @param obstacles
+	 *            the obstacles whose vertices are used
+	 */
+	private void buildNodes(List<Obstacle> obstacles) {
+		int capacity = obstacles.size() * 3 + 2;
+		coordinates = new int[capacity * 2];
+		corners = new int[capacity * 6];
+		tangentOnly = new boolean[capacity];
+		size = 2;
+
+		Map<Long, Integer> ids = new HashMap<Long, Integer>();
+		for (Obstacle o : obstacles) {
+			int[] v = o.getVertices();
+			for (int i = 0; i < 3; i++) {
+				int vx = v[i * 2];
+				int vy = v[i * 2 + 1];
+				int ax = v[(i + 1) % 3 * 2];
+				int ay = v[(i + 1) % 3 * 2 + 1];
+				int bx = v[(i + 2) % 3 * 2];
+				int by = v[(i + 2) % 3 * 2 + 1];
+
+				// Bisector of the angle, pointing outwards.
+				double lengthA = Math.hypot(vx - ax, vy - ay);
+				double lengthB = Math.hypot(vx - bx, vy - by);
+				if (lengthA == 0 || lengthB == 0) {
+					continue;
+				}
+				double dx = (vx - ax) / lengthA + (vx - bx) / lengthB;
+				double dy = (vy - ay) / lengthA + (vy - by) / lengthB;
+				double length = Math.hypot(dx, dy);
+				if (length == 0) {
+					continue;
+				}
+				int x = vx + (int) Math.round(dx / length);
+				int y = vy + (int) Math.round(dy / length);
+
+				// The node must be free.
+				if (index.isPointInside(x, y) || index.isPathObstructed(x, y, x, y)) {
+					continue;
+				}
+
+				// Nodes shared by multiple obstacles can't be checked against
+				// a single one.
+				Integer existing = ids.putIfAbsent(NodePool.pack(x, y), size);
+				if (existing != null) {
+					tangentOnly[existing] = false;
+					continue;
+				}
+				coordinates[size * 2] = x;
+				coordinates[size * 2 + 1] = y;
+				int[] corner = { vx, vy, ax, ay, bx, by };
+				System.arraycopy(corner, 0, corners, size * 6, 6);
+				tangentOnly[size] = true;
+				size++;
+			}
+		}
+	}
+
+	/**
+	 * Checks if the edge between two graph nodes crosses an obstacle. Only
+	 * the edges tangent to the obstacles of both nodes are useful, so they
+	 * are checked with {@link #isTangent(int, int)} first.
+	 * 
+	 * @param from
+	 *            the id of the first node
+	 * @param to
+	 *            the id of the second node
+	 * @return true if the edge is obstructed, false otherwise
+	 */
+	private boolean isObstructed(int from, int to) {
+		return index.isPathObstructed(coordinates[from * 2], coordinates[from * 2 + 1], coordinates[to * 2],
+				coordinates[to * 2 + 1]);
+	}
+
+	/**
+	 * Checks if the line from a graph node to another one is tangent to the
+	 * obstacle of the latter, which means that the other two vertices of the
+	 * obstacle lie on the same side of the line.
+	 * 
+	 * @param from
+	 *            the id of the node where the line starts
+	 * @param to
+	 *            the id of the node whose obstacle needs to be checked
+	 * @return true if the line is tangent, false otherwise
+	 */
+	private boolean isTangent(int from, int to) {
+		if (!tangentOnly[to]) {
+			return true;
+		}
+		int fromX = coordinates[from * 2];
+		int fromY = coordinates[from * 2 + 1];
+		int c = to * 6;
+		long first = Geometry.orientation(fromX, fromY, corners[c], corners[c + 1], corners[c + 2], corners[c + 3]);
+		long second = Geometry.orientation(fromX, fromY, corners[c], corners[c + 1], corners[c + 4], corners[c + 5]);
+		return Long.signum(first) * Long.signum(second) >= 0;
+	}
+
+	/**
+	 * Converts the path found into a chain of nodes.
+	 * 
+	 * @param parents
+	 *            the parent of each graph node
+	 * @return the goal node, connected to the starting one through its
+	 *         parents
+	 */
+	private Node buildPath(int[] parents) {
+		Node goal = new Node(coordinates[GOAL * 2], coordinates[GOAL * 2 + 1]);
+		Node child = goal;
+		for (int current = parents[GOAL]; current >= 0; current = parents[current]) {
+			Node node = new Node(coordinates[current * 2], coordinates[current * 2 + 1]);
+			child.setParent(node);
+			child = node;
+		}
+		return goal;
+	}
+
+	/**
+	 * Returns the euclidean distance between two graph nodes.
+	 * 
+	 * @param from
+	 *            the id of the first node
+	 * @param to
+	 *            the id of the second node
+	 * @return the distance between the nodes
+	 */
+	private double distance(int from, int to) {
+		return Math.hypot(coordinates[from * 2] - coordinates[to * 2],
+				coordinates[from * 2 + 1] - coordinates[to * 2 + 1]);
+	}
+
+	/**
+	 * Returns the estimated cost to reach the goal from a graph node, which
+	 * is the straight line distance.
+	 * 
+	 * @param n
+	 *            the id of the node
+	 * @return the estimated cost to reach the goal from the node
+	 */
+	private double h(int n) {
+		return distance(n, GOAL);
+	}
+
+}
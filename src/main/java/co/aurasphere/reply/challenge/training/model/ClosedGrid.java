@@ -0,0 +1,413 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.reply.challenge.training.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Closed set of a search, together with the direction each closed node has
+ * been reached from, stored outside of the heap. Each cell takes 4 bits:
+ * zero if it's not closed, its direction plus one otherwise. Like in
+ * {@link OccupancyGrid}, the grid is split into tiles of 64x64 cells grouped
+ * in blocks of 64x64 tiles, and a tile is only allocated when a cell inside
+ * it is closed.
+ * <p>
+ * The tiles are pages of 2 KB inside segments of 64 MB, which are either
+ * direct buffers, limited by the <code>-XX:MaxDirectMemorySize</code> of the
+ * JVM, or regions of a memory mapped temporary file. In the latter case, the
+ * operating system can write the pages back to the disk, so that the closed
+ * set is only limited by the disk space. Either way, the garbage collector
+ * never scans the closed nodes.
+ * <p>
+ * The segments are kept across searches until the grid is closed, which
+ * releases them and the file right away instead of waiting for the garbage
+ * collector.
+ * 
+ * @author Donato Rimenti
+ */
+public class ClosedGrid implements Closeable {
+
+	/**
+	 * Number of bits to shift a cell coordinate to get its tile coordinate.
+	 */
+	private static final int TILE_SHIFT = 6;
+
+	/**
+	 * Mask to get the coordinate of a cell inside its tile.
+	 */
+	private static final int TILE_MASK = (1 << TILE_SHIFT) - 1;
+
+	/**
+	 * Number of bits to shift a cell coordinate to get its block coordinate.
+	 */
+	private static final int BLOCK_SHIFT = TILE_SHIFT * 2;
+
+	/**
+	 * Number of blocks on each side of the grid.
+	 */
+	private static final int BLOCKS_PER_SIDE = ((ProblemStatement.BOUND_CONSTRAINT * 2 + 1) >>> BLOCK_SHIFT) + 1;
+
+	/**
+	 * Number of bits to shift the position of a cell inside its tile to get
+	 * the offset of its byte, two cells being stored in each byte.
+	 */
+	private static final int PAGE_SHIFT = TILE_SHIFT * 2 - 1;
+
+	/**
+	 * Number of bits to shift the number of a page to get its segment.
+	 */
+	private static final int SEGMENT_SHIFT = 15;
+
+	/**
+	 * Size of a segment, in bytes.
+	 */
+	private static final int SEGMENT_SIZE = 1 << (SEGMENT_SHIFT + PAGE_SHIFT);
+
+	/**
+	 * Directory of the blocks, stored by row. Each block contains the number
+	 * of the page of each of its tiles plus one, or zero if the tile is not
+	 * allocated.
+	 */
+	private final int[][] blocks = new int[BLOCKS_PER_SIDE * BLOCKS_PER_SIDE][];
+
+	/**
+	 * The segments allocated so far, kept across searches.
+	 */
+	private ByteBuffer[] segments = new ByteBuffer[1];
+
+	/**
+	 * The file the segments are mapped to, or null if they're direct
+	 * buffers.
+	 */
+	private final FileChannel file;
+
+	/**
+	 * Number of pages allocated by the current search.
+	 */
+	private int pageCount;
+
+	/**
+	 * Number of cells currently closed.
+	 */
+	private long cellCount;
+
+	/**
+	 * Instantiates an empty ClosedGrid stored in direct buffers.
+	 */
+	public ClosedGrid() {
+		this.file = null;
+	}
+
+	/**
+	 * Instantiates an empty ClosedGrid stored in a temporary file, which is
+	 * deleted when the grid is no longer used.
+	 *
+	 * @param directory
+	 *            the directory of the temporary file
+	 * @throws IOException
+	 *             if the file can't be created
+	 */
+	public ClosedGrid(Path directory) throws IOException {
+		Path path = Files.createTempFile(directory, "closed", ".tmp");
+		this.file = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+		// The file can be deleted while still open on most systems, so that
+		// it's never left behind.
+		try {
+			Files.delete(path);
+		} catch (IOException e) {
+			path.toFile().deleteOnExit();
+		}
+	}
+
+	/**
+	 * Marks a cell as closed.
+	 *
+	 * @param x
+	 *            the x coordinate of the cell
+	 * @param y
+	 *            the y coordinate of the cell
+	 * @param direction
+	 *            the direction the cell has been reached from, as in
+	 *            {@link NodePool#getDirection(int)}
+	 */
+	public void add(int x, int y, int direction) {
+		int ux = x + ProblemStatement.BOUND_CONSTRAINT;
+		int uy = y + ProblemStatement.BOUND_CONSTRAINT;
+		int blockIndex = blockIndex(ux, uy);
+		int[] block = blocks[blockIndex];
+		if (block == null) {
+			block = new int[1 << BLOCK_SHIFT];
+			blocks[blockIndex] = block;
+		}
+		int tileIndex = tileIndex(ux, uy);
+		if (block[tileIndex] == 0) {
+			block[tileIndex] = allocatePage() + 1;
+		}
+		ByteBuffer segment = segments[(block[tileIndex] - 1) >>> SEGMENT_SHIFT];
+		int offset = offset(block[tileIndex] - 1, ux, uy);
+		int shift = (ux & 1) << 2;
+		int cells = segment.get(offset);
+		if ((cells >>> shift & 0x0F) == 0) {
+			cellCount++;
+		}
+		segment.put(offset, (byte) (cells & ~(0x0F << shift) | (direction + 1) << shift));
+	}
+
+	/**
+	 * Checks if a cell is closed.
+	 *
+	 * @param x
+	 *            the x coordinate of the cell
+	 * @param y
+	 *            the y coordinate of the cell
+	 * @return true if the cell is closed, false otherwise
+	 */
+	public boolean contains(int x, int y) {
+		return get(x, y) != 0;
+	}
+
+	/**
+	 * Returns the direction a closed cell has been reached from.
+	 *
+	 * @param x
+	 *            the x coordinate of the cell
+	 * @param y
+	 *            the y coordinate of the cell
+	 * @return the direction the cell has been reached from, as in
+	 *         {@link NodePool#getDirection(int)}, or -1 if it's not closed
+	 */
+	public int getDirection(int x, int y) {
+		return get(x, y) - 1;
+	}
+
+	/**
+	 * Returns the 4 bits of a cell.
+	 *
+	 * @param x
+	 *            the x coordinate of the cell
+	 * @param y
+	 *            the y coordinate of the cell
+	 * @return the direction of the cell plus one, or zero if it's not closed
+	 *         or outside the grid
+	 */
+	private int get(int x, int y) {
+		if (x < -ProblemStatement.BOUND_CONSTRAINT || x > ProblemStatement.BOUND_CONSTRAINT
+				|| y < -ProblemStatement.BOUND_CONSTRAINT || y > ProblemStatement.BOUND_CONSTRAINT) {
+			return 0;
+		}
+		int ux = x + ProblemStatement.BOUND_CONSTRAINT;
+		int uy = y + ProblemStatement.BOUND_CONSTRAINT;
+		int[] block = blocks[blockIndex(ux, uy)];
+		if (block == null) {
+			return 0;
+		}
+		int page = block[tileIndex(ux, uy)] - 1;
+		if (page < 0) {
+			return 0;
+		}
+		return segments[page >>> SEGMENT_SHIFT].get(offset(page, ux, uy)) >>> ((ux & 1) << 2) & 0x0F;
+	}
+
+	/**
+	 * Allocates a zeroed page, reusing the segments of the previous
+	 * searches.
+	 *
+	 * @return the number of the page
+	 */
+	private int allocatePage() {
+		int page = pageCount++;
+		int segmentIndex = page >>> SEGMENT_SHIFT;
+		if (segmentIndex == segments.length) {
+			segments = Arrays.copyOf(segments, segments.length * 2);
+		}
+		ByteBuffer segment = segments[segmentIndex];
+		if (segment == null) {
+			segments[segmentIndex] = allocateSegment(segmentIndex);
+			return page;
+		}
+
+		// Pages of a new segment are already zeroed, reused ones are not.
+		int start = (page & ((1 << SEGMENT_SHIFT) - 1)) << PAGE_SHIFT;
+		for (int offset = start; offset < start + (1 << PAGE_SHIFT); offset += Long.BYTES) {
+			segment.putLong(offset, 0);
+		}
+		return page;
+	}
+
+	/**
+	 * Allocates a new segment.
+	 *
+	 * @param segmentIndex
+	 *            the index of the segment
+	 * @return the segment
+	 */
+	private ByteBuffer allocateSegment(int segmentIndex) {
+		if (file == null) {
+			return ByteBuffer.allocateDirect(SEGMENT_SIZE);
+		}
+		try {
+			// Mapping past the end of the file extends it, without writing
+			// the pages which are never used.
+			return file.map(FileChannel.MapMode.READ_WRITE, (long) segmentIndex * SEGMENT_SIZE, SEGMENT_SIZE);
+		} catch (IOException e) {
+			throw new IllegalStateException("Unable to extend the closed set file", e);
+		}
+	}
+
+	/**
+	 * Returns the offset of the byte of a cell inside its segment.
+	 *
+	 * @param page
+	 *            the number of the page of the tile of the cell
+	 * @param ux
+	 *            the x coordinate of the cell, shifted to be non negative
+	 * @param uy
+	 *            the y coordinate of the cell, shifted to be non negative
+	 * @return the offset of the byte containing the cell
+	 */
+	private static int offset(int page, int ux, int uy) {
+		return (page & ((1 << SEGMENT_SHIFT) - 1)) << PAGE_SHIFT
+				| ((uy & TILE_MASK) << TILE_SHIFT | (ux & TILE_MASK)) >>> 1;
+	}
+
+	/**
+	 * Returns the index of the block containing a cell.
+	 *
+	 * @param ux
+	 *            the x coordinate of a cell, shifted to be non negative
+	 * @param uy
+	 *            the y coordinate of a cell, shifted to be non negative
+	 * @return the index of the block containing the cell
+	 */
+	private static int blockIndex(int ux, int uy) {
+		return (uy >>> BLOCK_SHIFT) * BLOCKS_PER_SIDE + (ux >>> BLOCK_SHIFT);
+	}
+
+	/**
+	 * Returns the index of a tile inside its block.
+	 *
+	 * @param ux
+	 *            the x coordinate of a cell, shifted to be non negative
+	 * @param uy
+	 *            the y coordinate of a cell, shifted to be non negative
+	 * @return the index of the tile containing the cell inside its block
+	 */
+	private static int tileIndex(int ux, int uy) {
+		return ((uy >>> TILE_SHIFT) & TILE_MASK) << TILE_SHIFT | ((ux >>> TILE_SHIFT) & TILE_MASK);
+	}
+
+	/**
+	 * Opens all the cells. The segments are kept for the next search.
+	 */
+	public void clear() {
+		Arrays.fill(blocks, null);
+		pageCount = 0;
+		cellCount = 0;
+	}
+
+	/**
+	 * Returns the number of closed cells.
+	 *
+	 * @return the number of closed cells
+	 */
+	public long size() {
+		return cellCount;
+	}
+
+	/**
+	 * Releases the segments and closes the file, if any. The grid can still
+	 * be used afterwards only if it's stored in direct buffers.
+	 *
+	 * @throws IOException
+	 *             if the file can't be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		// No page can be reached once its segment is released.
+		ByteBuffer[] released = segments;
+		clear();
+		segments = new ByteBuffer[1];
+		for (ByteBuffer segment : released) {
+			if (segment != null) {
+				release(segment);
+			}
+		}
+		if (file != null) {
+			file.close();
+		}
+	}
+
+	/**
+	 * Frees the memory of a direct or mapped buffer, which must not be used
+	 * anymore. There's no public API for this, so the cleaner of the buffer
+	 * is run through reflection: on Java 9 and later with
+	 * sun.misc.Unsafe#invokeCleaner, on Java 8 by the cleaner of the buffer
+	 * itself. If neither is accessible, the buffer is left to the garbage
+	 * collector.
+	 *
+	 * @param buffer
+	 *            the buffer to free
+	 */
+	private static void release(ByteBuffer buffer) {
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+			theUnsafe.setAccessible(true);
+			unsafeClass.getMethod("invokeCleaner", ByteBuffer.class).invoke(theUnsafe.get(null), buffer);
+			return;
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			// Not Java 9 or later, tries the Java 8 way.
+		}
+		try {
+			Method cleaner = buffer.getClass().getMethod("cleaner");
+			cleaner.setAccessible(true);
+			Object instance = cleaner.invoke(buffer);
+			if (instance != null) {
+				instance.getClass().getMethod("clean").invoke(instance);
+			}
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			// Left to the garbage collector.
+		}
+	}
+
+	/**
+	 * Returns the memory used by the pages of the current search, in bytes.
+	 *
+	 * @return the memory used by the pages
+	 */
+	public long getPageBytes() {
+		return (long) pageCount << PAGE_SHIFT;
+	}
+
+}
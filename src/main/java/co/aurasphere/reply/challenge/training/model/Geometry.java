@@ -0,0 +1,212 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.reply.challenge.training.model;
+
+/**
+ * Geometry primitives over integer coordinates. All the computations are
+ * performed with exact long arithmetic, which can't overflow as long as the
+ * coordinates stay within a few times {@link ProblemStatement#BOUND_CONSTRAINT},
+ * and nothing is allocated.
+ * 
+ * @author Donato Rimenti
+ */
+public class Geometry {
+
+	/**
+	 * Private constructor for utility class.
+	 */
+	private Geometry() {
+	}
+
+	/**
+	 * Returns the orientation of the triangle (a, b, c), which is twice its
+	 * signed area.
+	 * 
+	 * @param ax
+	 *            the x coordinate of the first point
+	 * @param ay
+	 *            the y coordinate of the first point
+	 * @param bx
+	 *            the x coordinate of the second point
+	 * @param by
+	 *            the y coordinate of the second point
+	 * @param cx
+	 *            the x coordinate of the third point
+	 * @param cy
+	 *            the y coordinate of the third point
+	 * @return a positive value if the points are in counterclockwise order, a
+	 *         negative one if they are in clockwise order or 0 if they are
+	 *         collinear
+	 */
+	public static long orientation(long ax, long ay, long bx, long by, long cx, long cy) {
+		return (bx - ax) * (cy - ay) - (by - ay) * (cx - ax);
+	}
+
+	/**
+	 * Returns where a point lies with respect to a segment. This is an exact
+	 * version of {@link java.awt.geom.Line2D#relativeCCW(double, double, double, double, double, double)}
+	 * and follows the same conventions.
+	 * 
+	 * @param x1
+	 *            the x coordinate of the segment start
+	 * @param y1
+	 *            the y coordinate of the segment start
+	 * @param x2
+	 *            the x coordinate of the segment end
+	 * @param y2
+	 *            the y coordinate of the segment end
+	 * @param px
+	 *            the x coordinate of the point
+	 * @param py
+	 *            the y coordinate of the point
+	 * @return 1 if the point lies counterclockwise (in screen coordinates) or
+	 *         after the end of the segment if collinear, -1 if it lies
+	 *         clockwise or before the start if collinear, 0 if it lies on
+	 *         the segment
+	 */
+	public static int relativeCcw(long x1, long y1, long x2, long y2, long px, long py) {
+		x2 -= x1;
+		y2 -= y1;
+		px -= x1;
+		py -= y1;
+		long ccw = px * y2 - py * x2;
+		if (ccw == 0) {
+			// The point is collinear, checks if it's beyond the segment
+			// extremes.
+			ccw = px * x2 + py * y2;
+			if (ccw > 0) {
+				px -= x2;
+				py -= y2;
+				ccw = px * x2 + py * y2;
+				if (ccw < 0) {
+					ccw = 0;
+				}
+			}
+		}
+		return Long.signum(ccw);
+	}
+
+	/**
+	 * Checks if two segments intersect, touching included. This is an exact
+	 * version of {@link java.awt.geom.Line2D#linesIntersect(double, double, double, double, double, double, double, double)}.
+	 * 
+	 * @param x1
+	 *            the x coordinate of the first segment start
+	 * @param y1
+	 *            the y coordinate of the first segment start
+	 * @param x2
+	 *            the x coordinate of the first segment end
+	 * @param y2
+	 *            the y coordinate of the first segment end
+	 * @param x3
+	 *            the x coordinate of the second segment start
+	 * @param y3
+	 *            the y coordinate of the second segment start
+	 * @param x4
+	 *            the x coordinate of the second segment end
+	 * @param y4
+	 *            the y coordinate of the second segment end
+	 * @return true if the segments intersect, false otherwise
+	 */
+	public static boolean segmentsIntersect(long x1, long y1, long x2, long y2, long x3, long y3, long x4, long y4) {
+		return relativeCcw(x1, y1, x2, y2, x3, y3) * relativeCcw(x1, y1, x2, y2, x4, y4) <= 0
+				&& relativeCcw(x3, y3, x4, y4, x1, y1) * relativeCcw(x3, y3, x4, y4, x2, y2) <= 0;
+	}
+
+	/**
+	 * Checks if a segment intersects the perimeter of a triangle, touching
+	 * included. A segment completely inside the triangle doesn't intersect it.
+	 * 
+	 * @param x1
+	 *            the x coordinate of the segment start
+	 * @param y1
+	 *            the y coordinate of the segment start
+	 * @param x2
+	 *            the x coordinate of the segment end
+	 * @param y2
+	 *            the y coordinate of the segment end
+	 * @param ax
+	 *            the x coordinate of the first triangle vertex
+	 * @param ay
+	 *            the y coordinate of the first triangle vertex
+	 * @param bx
+	 *            the x coordinate of the second triangle vertex
+	 * @param by
+	 *            the y coordinate of the second triangle vertex
+	 * @param cx
+	 *            the x coordinate of the third triangle vertex
+	 * @param cy
+	 *            the y coordinate of the third triangle vertex
+	 * @return true if the segment intersects the triangle perimeter, false
+	 *         otherwise
+	 */
+	public static boolean segmentIntersectsTriangle(long x1, long y1, long x2, long y2, long ax, long ay, long bx,
+			long by, long cx, long cy) {
+		return segmentsIntersect(x1, y1, x2, y2, ax, ay, bx, by) || segmentsIntersect(x1, y1, x2, y2, bx, by, cx, cy)
+				|| segmentsIntersect(x1, y1, x2, y2, cx, cy, ax, ay);
+	}
+
+	/**
+	 * Checks if a point is inside a triangle by using baricentric coordinates.
+	 * Points on the edge between the first and the third vertex or on the one
+	 * between the first and the second vertex are considered outside, while
+	 * points on the remaining edge are considered inside.
+	 * 
+	 * @param px
+	 *            the x coordinate of the point
+	 * @param py
+	 *            the y coordinate of the point
+	 * @param ax
+	 *            the x coordinate of the first triangle vertex
+	 * @param ay
+	 *            the y coordinate of the first triangle vertex
+	 * @param bx
+	 *            the x coordinate of the second triangle vertex
+	 * @param by
+	 *            the y coordinate of the second triangle vertex
+	 * @param cx
+	 *            the x coordinate of the third triangle vertex
+	 * @param cy
+	 *            the y coordinate of the third triangle vertex
+	 * @return true if the point is inside the triangle, false otherwise
+	 */
+	public static boolean isPointInTriangle(long px, long py, long ax, long ay, long bx, long by, long cx,
+			long cy) {
+		long s = ay * cx - ax * cy + (cy - ay) * px + (ax - cx) * py;
+		long t = ax * by - ay * bx + (ay - by) * px + (bx - ax) * py;
+
+		if ((s < 0) != (t < 0)) {
+			return false;
+		}
+
+		long area = -by * cx + ay * (cx - bx) + ax * (by - cy) + bx * cy;
+		if (area < 0) {
+			s = -s;
+			t = -t;
+			area = -area;
+		}
+		return s > 0 && t > 0 && (s + t) <= area;
+	}
+
+}
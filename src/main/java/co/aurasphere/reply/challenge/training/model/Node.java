@@ -30,9 +30,10 @@ import java.util.List;
 import co.aurasphere.reply.challenge.training.AStarAlgorithm;
 
 /**
- * Single node used by this algorithm. The whole data structure is made up by a
- * node element with no {@link #parent} (the root) connected with others through
- * the {@link #adjacentNodes} field.
+ * Single node of a path. The whole path is made up by a node element with no
+ * {@link #parent} (the root) connected with the others through their parents.
+ * The search itself works on a {@link NodePool} and only converts the final
+ * path into nodes.
  * 
  * @author Donato Rimenti
  */
@@ -54,12 +55,6 @@ public class Node extends Point {
 	 */
 	private double g;
 
-	/**
-	 * The nodes reachable from this one. To avoid out of memory errors, they
-	 * are lazy initialized.
-	 */
-	private List<Node> adjacentNodes;
-
 	/**
 	 * Instantiates a new Node.
 	 *
@@ -108,65 +103,60 @@ public class Node extends Point {
 	}
 
 	/**
-	 * Gets the {@link #adjacentNodes}.
+	 * Returns the valid nodes adjacent to this one. The nodes are computed
+	 * at each call and not cached, to avoid out of memory errors.
 	 *
-	 * @return the {@link #adjacentNodes}
+	 * @param scene
+	 *            the scene of the node
+	 * @return the valid nodes adjacent to this one
 	 */
-	public List<Node> getAdjacentNodes() {
-		if (adjacentNodes == null) {
-			adjacentNodes = new ArrayList<Node>();
-
-			// Lazy init of new nodes to avoid out of memory errors. For
-			// reference, here's a visual representation of the neighbour nodes
-			// of a node X:
-			// 1 2 3
-			// 4 X 6
-			// 7 8 9
-
-			// 1
-			addIfValid(new Node(x - 1, y + 1, this));
-			// 2
-			addIfValid(new Node(x, y + 1, this));
-			// 3
-			addIfValid(new Node(x + 1, y + 1, this));
-			// 4
-			addIfValid(new Node(x - 1, y, this));
-			// 6
-			addIfValid(new Node(x + 1, y, this));
-			// 7
-			addIfValid(new Node(x - 1, y - 1, this));
-			// 8
-			addIfValid(new Node(x, y - 1, this));
-			// 9
-			addIfValid(new Node(x + 1, y - 1, this));
-		}
+	public List<Node> getAdjacentNodes(Scene scene) {
+		List<Node> adjacentNodes = new ArrayList<Node>(NodePool.DIRECTIONS);
+
+		// For reference, here's a visual representation of the neighbour nodes
+		// of a node X:
+		// 1 2 3
+		// 4 X 6
+		// 7 8 9
+
+		// 1
+		addIfValid(scene, new Node(x - 1, y + 1, this), adjacentNodes);
+		// 2
+		addIfValid(scene, new Node(x, y + 1, this), adjacentNodes);
+		// 3
+		addIfValid(scene, new Node(x + 1, y + 1, this), adjacentNodes);
+		// 4
+		addIfValid(scene, new Node(x - 1, y, this), adjacentNodes);
+		// 6
+		addIfValid(scene, new Node(x + 1, y, this), adjacentNodes);
+		// 7
+		addIfValid(scene, new Node(x - 1, y - 1, this), adjacentNodes);
+		// 8
+		addIfValid(scene, new Node(x, y - 1, this), adjacentNodes);
+		// 9
+		addIfValid(scene, new Node(x + 1, y - 1, this), adjacentNodes);
 		return adjacentNodes;
 	}
 
 	/**
-	 * Checks that a pair of coordinates are not inside an obstacle and within
-	 * the grid boundary.
+	 * Adds a node to a list if it's valid.
 	 *
-	 * @param x
-	 *            the x of the point to check
-	 * @param y
-	 *            the y of the point to check
-	 * @return true if the point is not inside an obstacle, false otherwise
+	 * @param scene
+	 *            the scene of the node
+	 * @param n
+	 *            the node to check
+	 * @param nodes
+	 *            the list where the node is added if valid
+	 * @return true if the node is valid, false otherwise
+	 * @see Scene#isValid(int, int)
 	 */
-	public boolean addIfValid(Node n) {
-		// Checks that there's no obstacle obstructing the path.
-		if (ProblemStatement.obstaclePoints.contains(n)) {
-			return false;
-		}
-
-		// Checks that the point is within the boundary.
-		if (n.x < -ProblemStatement.BOUND_CONSTRAINT || n.x > ProblemStatement.BOUND_CONSTRAINT
-				|| n.y < -ProblemStatement.BOUND_CONSTRAINT || n.y > ProblemStatement.BOUND_CONSTRAINT) {
+	public static boolean addIfValid(Scene scene, Node n, List<Node> nodes) {
+		if (!scene.isValid(n.x, n.y)) {
 			return false;
 		}
 
 		// This point is valid.
-		adjacentNodes.add(n);
+		nodes.add(n);
 		return true;
 	}
 
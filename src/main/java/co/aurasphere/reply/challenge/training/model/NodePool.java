@@ -0,0 +1,479 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.reply.challenge.training.model;
+
+import java.util.Arrays;
+
+/**
+ * Pool of the nodes explored by a search, stored as a structure of arrays
+ * indexed by node id. Each node takes a few bytes for its coordinates, its
+ * cost from the start, its state and the direction it has been reached from,
+ * instead of a full {@link Node} object. The parent of a node is not stored:
+ * it's the neighbour in the opposite of its direction.
+ * <p>
+ * Nodes are looked up by coordinates through an open addressing hash table
+ * keyed on the packed coordinates, so that a single probe gives access to
+ * the whole state of a node. Nodes can also be removed, for instance once
+ * they're stored in a {@link ClosedGrid}, and their ids are then reused.
+ * 
+ * @author Donato Rimenti
+ */
+public class NodePool {
+
+	/**
+	 * Direction code of a node without parent.
+	 */
+	public static final byte NO_DIRECTION = 8;
+
+	/**
+	 * Mask of the direction code in {@link #flags}.
+	 */
+	private static final int DIRECTION_MASK = 0x0F;
+
+	/**
+	 * Flag of the nodes in the open list.
+	 */
+	private static final int OPEN = 0x10;
+
+	/**
+	 * Flag of the nodes already explored.
+	 */
+	private static final int CLOSED = 0x20;
+
+	/**
+	 * Flag of the ids of removed nodes, which are waiting to be reused.
+	 */
+	private static final int REMOVED = 0x40;
+
+	/**
+	 * Number of directions a node can be reached from.
+	 */
+	public static final int DIRECTIONS = 8;
+
+	/**
+	 * Horizontal offset of each direction. For reference, here's a visual
+	 * representation of the direction codes around a node X, which follow
+	 * the order of {@link Node#getAdjacentNodes(Scene)}:
+	 * 
+	 * <pre>
+	 * 0 1 2
+	 * 3 X 4
+	 * 5 6 7
+	 * </pre>
+	 */
+	private static final int[] DX = { -1, 0, 1, -1, 1, -1, 0, 1 };
+
+	/**
+	 * Vertical offset of each direction.
+	 */
+	private static final int[] DY = { 1, 1, 1, 0, 0, -1, -1, -1 };
+
+	/**
+	 * Initial capacity of the pool.
+	 */
+	private static final int INITIAL_CAPACITY = 1 << 12;
+
+	/**
+	 * X coordinate of each node.
+	 */
+	private int[] x = new int[INITIAL_CAPACITY];
+
+	/**
+	 * Y coordinate of each node.
+	 */
+	private int[] y = new int[INITIAL_CAPACITY];
+
+	/**
+	 * Cost from the starting node to each node.
+	 */
+	private float[] g = new float[INITIAL_CAPACITY];
+
+	/**
+	 * State of each node: the direction it has been reached from (or
+	 * {@link #NO_DIRECTION}) in the lowest 4 bits, plus the {@link #OPEN} and
+	 * {@link #CLOSED} flags.
+	 */
+	private byte[] flags = new byte[INITIAL_CAPACITY];
+
+	/**
+	 * Number of ids given to the nodes so far, including the removed ones.
+	 */
+	private int size;
+
+	/**
+	 * Ids of the removed nodes, to be reused.
+	 */
+	private int[] freeIds = new int[0];
+
+	/**
+	 * Number of ids in {@link #freeIds}.
+	 */
+	private int freeCount;
+
+	/**
+	 * Packed coordinates of the node in each slot of the hash table.
+	 */
+	private long[] slotKeys = new long[INITIAL_CAPACITY * 2];
+
+	/**
+	 * Id of the node in each slot of the hash table, or -1 if the slot is
+	 * empty.
+	 */
+	private int[] slotIds = newSlotIds(INITIAL_CAPACITY * 2);
+
+	/**
+	 * Returns the id of the node with the given coordinates.
+	 * 
+	 * @param x
+	 *            the x coordinate of the node
+	 * @param y
+	 *            the y coordinate of the node
+	 * @return the id of the node or -1 if it's not in the pool
+	 */
+	public int find(int x, int y) {
+		long key = pack(x, y);
+		int mask = slotIds.length - 1;
+		for (int slot = hash(key) & mask;; slot = (slot + 1) & mask) {
+			int id = slotIds[slot];
+			if (id < 0 || slotKeys[slot] == key) {
+				return id;
+			}
+		}
+	}
+
+	/**
+	 * Returns the id of the node with the given coordinates, adding it to the
+	 * pool if not already there. New nodes are neither open nor closed, have
+	 * no direction and an infinite cost.
+	 * 
+	 * @param x
+	 *            the x coordinate of the node
+	 * @param y
+	 *            the y coordinate of the node
+	 * @return the id of the node
+	 */
+	public int findOrAdd(int x, int y) {
+		long key = pack(x, y);
+		int mask = slotIds.length - 1;
+		int slot = hash(key) & mask;
+		while (true) {
+			int id = slotIds[slot];
+			if (id < 0) {
+				break;
+			}
+			if (slotKeys[slot] == key) {
+				return id;
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		// Not found, adds the node in the empty slot.
+		if (freeCount == 0 && size == this.x.length) {
+			int capacity = size * 2;
+			this.x = Arrays.copyOf(this.x, capacity);
+			this.y = Arrays.copyOf(this.y, capacity);
+			this.g = Arrays.copyOf(this.g, capacity);
+			this.flags = Arrays.copyOf(this.flags, capacity);
+		}
+		int id = freeCount > 0 ? freeIds[--freeCount] : size++;
+		this.x[id] = x;
+		this.y[id] = y;
+		this.g[id] = Float.POSITIVE_INFINITY;
+		this.flags[id] = NO_DIRECTION;
+		slotKeys[slot] = key;
+		slotIds[slot] = id;
+
+		// Keeps the load factor under 1/2.
+		if ((size - freeCount) * 2 > slotIds.length) {
+			rehash(slotIds.length * 2);
+		}
+		return id;
+	}
+
+	/**
+	 * Removes a node from the pool. Its id may be given to a node added
+	 * later, so it must not be used anymore.
+	 * 
+	 * @param id
+	 *            the id of the node
+	 */
+	public void remove(int id) {
+		long key = pack(x[id], y[id]);
+		int mask = slotIds.length - 1;
+		int slot = hash(key) & mask;
+		while (slotIds[slot] != id) {
+			slot = (slot + 1) & mask;
+		}
+
+		// Moves back the following nodes of the same run which could no
+		// longer be found past the empty slot.
+		for (int next = (slot + 1) & mask; slotIds[next] >= 0; next = (next + 1) & mask) {
+			int home = hash(slotKeys[next]) & mask;
+			if (((next - home) & mask) >= ((next - slot) & mask)) {
+				slotKeys[slot] = slotKeys[next];
+				slotIds[slot] = slotIds[next];
+				slot = next;
+			}
+		}
+		slotIds[slot] = -1;
+
+		flags[id] = REMOVED;
+		if (freeCount == freeIds.length) {
+			freeIds = Arrays.copyOf(freeIds, Math.max(INITIAL_CAPACITY, freeCount * 2));
+		}
+		freeIds[freeCount++] = id;
+	}
+
+	/**
+	 * Moves all the nodes in a new hash table.
+	 * 
+	 * @param capacity
+	 *            the number of slots of the new table
+	 */
+	private void rehash(int capacity) {
+		slotKeys = new long[capacity];
+		slotIds = newSlotIds(capacity);
+		int mask = capacity - 1;
+		for (int id = 0; id < size; id++) {
+			if (flags[id] == REMOVED) {
+				continue;
+			}
+			long key = pack(x[id], y[id]);
+			int slot = hash(key) & mask;
+			while (slotIds[slot] >= 0) {
+				slot = (slot + 1) & mask;
+			}
+			slotKeys[slot] = key;
+			slotIds[slot] = id;
+		}
+	}
+
+	/**
+	 * Allocates an empty array of slot ids.
+	 * 
+	 * @param capacity
+	 *            the number of slots
+	 * @return an array of slot ids filled with -1
+	 */
+	private static int[] newSlotIds(int capacity) {
+		int[] ids = new int[capacity];
+		Arrays.fill(ids, -1);
+		return ids;
+	}
+
+	/**
+	 * Hashes a packed pair of coordinates with the MurmurHash3 finalizer,
+	 * which spreads neighbouring coordinates over the whole table.
+	 * 
+	 * @param key
+	 *            the packed coordinates
+	 * @return the hash of the coordinates
+	 */
+	private static int hash(long key) {
+		key ^= key >>> 33;
+		key *= 0xFF51AFD7ED558CCDL;
+		key ^= key >>> 33;
+		key *= 0xC4CEB9FE1A85EC53L;
+		key ^= key >>> 33;
+		return (int) key;
+	}
+
+	/**
+	 * Returns the x coordinate of a node.
+	 * 
+	 * @param id
+	 *            the id of the node
+	 * @return the x coordinate of the node
+	 */
+	public int getX(int id) {
+		return x[id];
+	}
+
+	/**
+	 * Returns the y coordinate of a node.
+	 * 
+	 * @param id
+	 *            the id of the node
+	 * @return the y coordinate of the node
+	 */
+	public int getY(int id) {
+		return y[id];
+	}
+
+	/**
+	 * Returns the cost from the starting node to a node.
+	 * 
+	 * @param id
+	 *            the id of the node
+	 * @return the cost from the starting node to the node
+	 */
+	public float getG(int id) {
+		return g[id];
+	}
+
+	/**
+	 * Returns the direction a node has been reached from.
+	 * 
+	 * @param id
+	 *            the id of the node
+	 * @return the direction the node has been reached from or
+	 *         {@link #NO_DIRECTION}
+	 */
+	public int getDirection(int id) {
+		return flags[id] & DIRECTION_MASK;
+	}
+
+	/**
+	 * Checks if a node is in the open list.
+	 * 
+	 * @param id
+	 *            the id of the node
+	 * @return true if the node is in the open list, false otherwise
+	 */
+	public boolean isOpen(int id) {
+		return (flags[id] & OPEN) != 0;
+	}
+
+	/**
+	 * Marks a node as added to the open list, which also removes its closed
+	 * flag if the node is being reopened.
+	 * 
+	 * @param id
+	 *            the id of the node
+	 */
+	public void setOpen(int id) {
+		flags[id] = (byte) (flags[id] & DIRECTION_MASK | OPEN);
+	}
+
+	/**
+	 * Checks if a node has already been explored.
+	 * 
+	 * @param id
+	 *            the id of the node
+	 * @return true if the node has already been explored, false otherwise
+	 */
+	public boolean isClosed(int id) {
+		return (flags[id] & CLOSED) != 0;
+	}
+
+	/**
+	 * Marks a node as explored, which also removes its open flag.
+	 * 
+	 * @param id
+	 *            the id of the node
+	 */
+	public void setClosed(int id) {
+		flags[id] = (byte) (flags[id] & DIRECTION_MASK | CLOSED);
+	}
+
+	/**
+	 * Removes the closed flag from all the nodes, so that they can be
+	 * explored again.
+	 */
+	public void clearClosed() {
+		for (int i = 0; i < size; i++) {
+			flags[i] &= ~CLOSED;
+		}
+	}
+
+	/**
+	 * Updates the path to reach a node.
+	 * 
+	 * @param id
+	 *            the id of the node
+	 * @param g
+	 *            the new cost from the starting node to the node
+	 * @param direction
+	 *            the new direction the node has been reached from
+	 */
+	public void setPath(int id, float g, int direction) {
+		this.g[id] = g;
+		this.flags[id] = (byte) (flags[id] & ~DIRECTION_MASK | direction);
+	}
+
+	/**
+	 * Returns the number of nodes in the pool.
+	 * 
+	 * @return the number of nodes in the pool
+	 */
+	public int size() {
+		return size - freeCount;
+	}
+
+	/**
+	 * Removes all the nodes from the pool. The memory is kept for reuse.
+	 */
+	public void clear() {
+		Arrays.fill(slotIds, -1);
+		size = 0;
+		freeCount = 0;
+	}
+
+	/**
+	 * Returns the horizontal offset of a direction.
+	 * 
+	 * @param direction
+	 *            the direction code
+	 * @return the horizontal offset of the direction
+	 */
+	public static int dx(int direction) {
+		return DX[direction];
+	}
+
+	/**
+	 * Returns the vertical offset of a direction.
+	 * 
+	 * @param direction
+	 *            the direction code
+	 * @return the vertical offset of the direction
+	 */
+	public static int dy(int direction) {
+		return DY[direction];
+	}
+
+	/**
+	 * Checks if a direction is diagonal.
+	 * 
+	 * @param direction
+	 *            the direction code
+	 * @return true if the direction is diagonal, false otherwise
+	 */
+	public static boolean isDiagonal(int direction) {
+		return DX[direction] != 0 && DY[direction] != 0;
+	}
+
+	/**
+	 * Packs a pair of coordinates into a single long, useful as a key.
+	 * 
+	 * @param x
+	 *            the x coordinate
+	 * @param y
+	 *            the y coordinate
+	 * @return the packed coordinates
+	 */
+	public static long pack(int x, int y) {
+		return ((long) x << 32) | (y & 0xFFFFFFFFL);
+	}
+
+}
@@ -23,12 +23,10 @@
  */
 package co.aurasphere.reply.challenge.training.model;
 
-import java.awt.Point;
-import java.awt.geom.Line2D;
-import java.util.List;
-
 /**
- * Represents a triangle-shaped path obstacle.
+ * Represents a triangle-shaped path obstacle. The vertices are stored as
+ * primitive coordinates and all the checks are delegated to {@link Geometry},
+ * so that they don't allocate anything.
  * 
  * @author Donato Rimenti
  *
@@ -36,53 +34,147 @@ import java.util.List;
 public class Obstacle {
 
 	/**
-	 * First vertex of the obstacle.
+	 * X coordinate of the first vertex of the obstacle.
+	 */
+	private final int ax;
+
+	/**
+	 * Y coordinate of the first vertex of the obstacle.
 	 */
-	private Point a;
+	private final int ay;
 
 	/**
-	 * Second vertex of the obstacle.
+	 * X coordinate of the second vertex of the obstacle.
 	 */
-	private Point b;
+	private final int bx;
 
 	/**
-	 * Third vertex of the obstacle.
+	 * Y coordinate of the second vertex of the obstacle.
 	 */
-	private Point c;
+	private final int by;
 
 	/**
-	 * First segment of the obstacle.
+	 * X coordinate of the third vertex of the obstacle.
 	 */
-	private Line2D firstSegment;
+	private final int cx;
 
 	/**
-	 * Second segment of the obstacle.
+	 * Y coordinate of the third vertex of the obstacle.
 	 */
-	private Line2D secondSegment;
+	private final int cy;
 
 	/**
-	 * Third segment of the obstacle.
+	 * Lowest x coordinate of the obstacle vertices.
 	 */
-	private Line2D thirdSegment;
+	private final int minX;
+
+	/**
+	 * Highest x coordinate of the obstacle vertices.
+	 */
+	private final int maxX;
+
+	/**
+	 * Lowest y coordinate of the obstacle vertices.
+	 */
+	private final int minY;
+
+	/**
+	 * Highest y coordinate of the obstacle vertices.
+	 */
+	private final int maxY;
 
 	/**
 	 * Instantiates a new obstacle.
 	 *
-	 * @param vertices
-	 *            the vertices of the obstacle. For simplicity, the vertices are
-	 *            provided in form of a list of 3 elements. If more elements are
-	 *            provided, they are ignored. If less elements are provided, an
-	 *            exception is thrown
-	 */
-	public Obstacle(List<Point> vertices) {
-		this.a = vertices.get(0);
-		this.b = vertices.get(1);
-		this.c = vertices.get(2);
-
-		// Initializes the segments.
-		this.firstSegment = new Line2D.Float(a, b);
-		this.secondSegment = new Line2D.Float(b, c);
-		this.thirdSegment = new Line2D.Float(c, a);
+	 * @param ax
+	 *            the x coordinate of the first vertex
+	 * @param ay
+	 *            the y coordinate of the first vertex
+	 * @param bx
+	 *            the x coordinate of the second vertex
+	 * @param by
+	 *            the y coordinate of the second vertex
+	 * @param cx
+	 *            the x coordinate of the third vertex
+	 * @param cy
+	 *            the y coordinate of the third vertex
+	 */
+	public Obstacle(int ax, int ay, int bx, int by, int cx, int cy) {
+		this.ax = ax;
+		this.ay = ay;
+		this.bx = bx;
+		this.by = by;
+		this.cx = cx;
+		this.cy = cy;
+
+		// Caches the bounding box for fast rejections.
+		this.minX = Math.min(ax, Math.min(bx, cx));
+		this.maxX = Math.max(ax, Math.max(bx, cx));
+		this.minY = Math.min(ay, Math.min(by, cy));
+		this.maxY = Math.max(ay, Math.max(by, cy));
+	}
+
+	/**
+	 * Gets the {@link #minX}.
+	 *
+	 * @return the {@link #minX}
+	 */
+	public int getMinX() {
+		return minX;
+	}
+
+	/**
+	 * Gets the {@link #maxX}.
+	 *
+	 * @return the {@link #maxX}
+	 */
+	public int getMaxX() {
+		return maxX;
+	}
+
+	/**
+	 * Gets the {@link #minY}.
+	 *
+	 * @return the {@link #minY}
+	 */
+	public int getMinY() {
+		return minY;
+	}
+
+	/**
+	 * Gets the {@link #maxY}.
+	 *
+	 * @return the {@link #maxY}
+	 */
+	public int getMaxY() {
+		return maxY;
+	}
+
+	/**
+	 * Returns the coordinates of the vertices of this obstacle.
+	 *
+	 * @return the coordinates of the vertices, as an array of 6 elements (x
+	 *         and y of the first vertex, then of the second and the third)
+	 */
+	public int[] getVertices() {
+		return new int[] { ax, ay, bx, by, cx, cy };
+	}
+
+	/**
+	 * Checks if this obstacle overlaps or touches another one, which happens
+	 * when their perimeters intersect or when one contains the other.
+	 *
+	 * @param other
+	 *            the other obstacle
+	 * @return true if the obstacles overlap or touch, false otherwise
+	 */
+	public boolean touches(Obstacle other) {
+		if (other.minX > maxX || other.maxX < minX || other.minY > maxY || other.maxY < minY) {
+			return false;
+		}
+		return other.isPathObstructed(ax, ay, bx, by) || other.isPathObstructed(bx, by, cx, cy)
+				|| other.isPathObstructed(cx, cy, ax, ay) || other.isPointInside(ax, ay)
+				|| isPointInside(other.ax, other.ay);
 	}
 
 	/**
@@ -96,20 +188,10 @@ public class Obstacle {
 	 * @return true if the point is inside the obstacle, false otherwise
 	 */
 	public boolean isPointInside(long x, long y) {
-		long s = a.y * c.x - a.x * c.y + (c.y - a.y) * x + (a.x - c.x) * y;
-		long t = a.x * b.y - a.y * b.x + (a.y - b.y) * x + (b.x - a.x) * y;
-
-		if ((s < 0) != (t < 0)) {
+		if (x < minX || x > maxX || y < minY || y > maxY) {
 			return false;
 		}
-
-		long A = -b.y * c.x + a.y * (c.x - b.x) + a.x * (b.y - c.y) + b.x * c.y;
-		if (A < 0.0) {
-			s = -s;
-			t = -t;
-			A = -A;
-		}
-		return s > 0 && t > 0 && (s + t) <= A;
+		return Geometry.isPointInTriangle(x, y, ax, ay, bx, by, cx, cy);
 	}
 
 	/**
@@ -122,10 +204,30 @@ public class Obstacle {
 	 * @return true if the path is obstructed by this obstacle, false otherwise
 	 */
 	public boolean isPathObstructed(Node origin, Node destination) {
-		Line2D pathToCheck = new Line2D.Float(new Point(origin.x, origin.y), new Point(destination.x, destination.y));
+		return isPathObstructed(origin.x, origin.y, destination.x, destination.y);
+	}
 
-		return firstSegment.intersectsLine(pathToCheck) || secondSegment.intersectsLine(pathToCheck)
-				|| thirdSegment.intersectsLine(pathToCheck);
+	/**
+	 * Checks if this obstacle obstructs the path between two points.
+	 * 
+	 * @param x0
+	 *            the x coordinate of the first point of the path
+	 * @param y0
+	 *            the y coordinate of the first point of the path
+	 * @param x1
+	 *            the x coordinate of the second point of the path
+	 * @param y1
+	 *            the y coordinate of the second point of the path
+	 * @return true if the path is obstructed by this obstacle, false otherwise
+	 */
+	public boolean isPathObstructed(int x0, int y0, int x1, int y1) {
+		// The path can't touch the obstacle if their bounding boxes are
+		// disjoint.
+		if (Math.max(x0, x1) < minX || Math.min(x0, x1) > maxX || Math.max(y0, y1) < minY
+				|| Math.min(y0, y1) > maxY) {
+			return false;
+		}
+		return Geometry.segmentIntersectsTriangle(x0, y0, x1, y1, ax, ay, bx, by, cx, cy);
 	}
 
-}
\ No newline at end of file
+}
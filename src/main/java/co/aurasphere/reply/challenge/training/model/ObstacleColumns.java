@@ -0,0 +1,373 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.reply.challenge.training.model;
+
+/**
+ * Obstacles stored column-wise in blocks. The obstacles are grouped in
+ * blocks, such as the cells of an {@link ObstacleIndex}, and each block
+ * stores the coordinates of its obstacles one column after the other: the x
+ * of the first vertex of all of them, then the y and so on for the other
+ * vertices and the bounding boxes. A query is tested against a whole block
+ * in a single pass over its columns, which are contiguous in memory, without
+ * going through the {@link Obstacle} objects.
+ * <p>
+ * The bounding boxes of large blocks are tested many at a time by an
+ * {@link ObstacleKernel} based on the JDK Vector API, if it has been compiled
+ * and the jdk.incubator.vector module is available. Otherwise, and for small
+ * blocks, they're tested one at a time.
+ * 
+ * @author Donato Rimenti
+ *
+ */
+class ObstacleColumns {
+
+	/**
+	 * Number of columns of each block.
+	 */
+	private static final int COLUMNS = 10;
+
+	/**
+	 * Position of the column with the x coordinate of the first vertex.
+	 */
+	private static final int AX = 0;
+
+	/**
+	 * Position of the column with the y coordinate of the first vertex.
+	 */
+	private static final int AY = 1;
+
+	/**
+	 * Position of the column with the x coordinate of the second vertex.
+	 */
+	private static final int BX = 2;
+
+	/**
+	 * Position of the column with the y coordinate of the second vertex.
+	 */
+	private static final int BY = 3;
+
+	/**
+	 * Position of the column with the x coordinate of the third vertex.
+	 */
+	private static final int CX = 4;
+
+	/**
+	 * Position of the column with the y coordinate of the third vertex.
+	 */
+	private static final int CY = 5;
+
+	/**
+	 * Position of the column with the lowest x coordinate.
+	 */
+	private static final int MIN_X = 6;
+
+	/**
+	 * Position of the column with the highest x coordinate.
+	 */
+	private static final int MAX_X = 7;
+
+	/**
+	 * Position of the column with the lowest y coordinate.
+	 */
+	private static final int MIN_Y = 8;
+
+	/**
+	 * Position of the column with the highest y coordinate.
+	 */
+	private static final int MAX_Y = 9;
+
+	/**
+	 * Blocks with fewer obstacles are always tested one obstacle at a time.
+	 */
+	private static final int MIN_KERNEL_SIZE = 16;
+
+	/**
+	 * Name of the class of the vector kernel, which is compiled separately
+	 * and may be missing.
+	 */
+	private static final String VECTOR_KERNEL = ObstacleColumns.class.getPackage().getName()
+			+ ".VectorObstacleKernel";
+
+	/**
+	 * The kernel used for the large blocks, or null if not available.
+	 */
+	private static final ObstacleKernel KERNEL = loadVectorKernel();
+
+	/**
+	 * The columns of all the blocks. The block starting at the obstacle
+	 * position p with n obstacles starts at p * {@link #COLUMNS} and its
+	 * column c at p * {@link #COLUMNS} + c * n.
+	 */
+	private final int[] data;
+
+	/**
+	 * Stores a list of obstacles in blocks.
+	 * 
+	 * @param obstacles
+	 *            the obstacles
+	 * @param blockStart
+	 *            the position of the first obstacle of each block, followed
+	 *            by the number of stored obstacles
+	 * @param order
+	 *            the indexes of the obstacles to store, grouped by block. An
+	 *            obstacle can be stored more than once
+	 */
+	ObstacleColumns(Obstacle[] obstacles, int[] blockStart, int[] order) {
+		this.data = new int[order.length * COLUMNS];
+		for (int block = 0; block < blockStart.length - 1; block++) {
+			int from = blockStart[block];
+			int size = blockStart[block + 1] - from;
+			for (int i = 0; i < size; i++) {
+				Obstacle o = obstacles[order[from + i]];
+				int[] vertices = o.getVertices();
+				int offset = from * COLUMNS + i;
+				for (int c = 0; c < vertices.length; c++) {
+					data[offset + c * size] = vertices[c];
+				}
+				data[offset + MIN_X * size] = o.getMinX();
+				data[offset + MAX_X * size] = o.getMaxX();
+				data[offset + MIN_Y * size] = o.getMinY();
+				data[offset + MAX_Y * size] = o.getMaxY();
+			}
+		}
+	}
+
+	/**
+	 * Checks if a point is inside any obstacle of a block.
+	 * 
+	 * @param from
+	 *            the position of the first obstacle of the block
+	 * @param to
+	 *            the position of the first obstacle of the next block
+	 * @param x
+	 *            the x coordinate of the point
+	 * @param y
+	 *            the y coordinate of the point
+	 * @return true if the point is inside an obstacle, false otherwise
+	 * @see Obstacle#isPointInside(long, long)
+	 */
+	boolean isPointInside(int from, int to, int x, int y) {
+		int size = to - from;
+		int block = from * COLUMNS;
+		if (KERNEL != null && size >= MIN_KERNEL_SIZE) {
+			for (int batch = block; batch < block + size; batch += ObstacleKernel.BATCH_SIZE) {
+				long candidates = KERNEL.overlaps(data, batch + MIN_X * size, batch + MAX_X * size,
+						batch + MIN_Y * size, batch + MAX_Y * size,
+						Math.min(ObstacleKernel.BATCH_SIZE, block + size - batch), x, y, x, y);
+				for (; candidates != 0; candidates &= candidates - 1) {
+					if (isInsideObstacle(batch + Long.numberOfTrailingZeros(candidates), size, x, y)) {
+						return true;
+					}
+				}
+			}
+			return false;
+		}
+		for (int i = block; i < block + size; i++) {
+			// The bounding box sides are combined without short circuits, so
+			// that the rejection doesn't branch on each of them.
+			if ((x < data[i + MIN_X * size]) | (x > data[i + MAX_X * size]) | (y < data[i + MIN_Y * size])
+					| (y > data[i + MAX_Y * size])) {
+				continue;
+			}
+			if (isInsideObstacle(i, size, x, y)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Checks if a point is inside an obstacle, whose bounding box contains
+	 * it.
+	 * 
+	 * @param i
+	 *            the position of the obstacle in the first column of its
+	 *            block
+	 * @param size
+	 *            the number of obstacles of the block
+	 * @param x
+	 *            the x coordinate of the point
+	 * @param y
+	 *            the y coordinate of the point
+	 * @return true if the point is inside the obstacle, false otherwise
+	 */
+	private boolean isInsideObstacle(int i, int size, int x, int y) {
+		return Geometry.isPointInTriangle(x, y, data[i + AX * size], data[i + AY * size], data[i + BX * size],
+				data[i + BY * size], data[i + CX * size], data[i + CY * size]);
+	}
+
+	/**
+	 * Checks if any obstacle of a block obstructs the path between two
+	 * points.
+	 * 
+	 * @param from
+	 *            the position of the first obstacle of the block
+	 * @param to
+	 *            the position of the first obstacle of the next block
+	 * @param x0
+	 *            the x coordinate of the first point of the path
+	 * @param y0
+	 *            the y coordinate of the first point of the path
+	 * @param x1
+	 *            the x coordinate of the second point of the path
+	 * @param y1
+	 *            the y coordinate of the second point of the path
+	 * @return true if the path is obstructed by an obstacle, false otherwise
+	 * @see Obstacle#isPathObstructed(int, int, int, int)
+	 */
+	boolean isPathObstructed(int from, int to, int x0, int y0, int x1, int y1) {
+		int pathMinX = Math.min(x0, x1);
+		int pathMaxX = Math.max(x0, x1);
+		int pathMinY = Math.min(y0, y1);
+		int pathMaxY = Math.max(y0, y1);
+		int size = to - from;
+		int block = from * COLUMNS;
+		if (KERNEL != null && size >= MIN_KERNEL_SIZE) {
+			for (int batch = block; batch < block + size; batch += ObstacleKernel.BATCH_SIZE) {
+				long candidates = KERNEL.overlaps(data, batch + MIN_X * size, batch + MAX_X * size,
+						batch + MIN_Y * size, batch + MAX_Y * size,
+						Math.min(ObstacleKernel.BATCH_SIZE, block + size - batch), pathMinX, pathMinY, pathMaxX,
+						pathMaxY);
+				for (; candidates != 0; candidates &= candidates - 1) {
+					if (isObstructedBy(batch + Long.numberOfTrailingZeros(candidates), size, x0, y0, x1, y1)) {
+						return true;
+					}
+				}
+			}
+			return false;
+		}
+		for (int i = block; i < block + size; i++) {
+			if ((pathMaxX < data[i + MIN_X * size]) | (pathMinX > data[i + MAX_X * size])
+					| (pathMaxY < data[i + MIN_Y * size]) | (pathMinY > data[i + MAX_Y * size])) {
+				continue;
+			}
+			if (isObstructedBy(i, size, x0, y0, x1, y1)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Checks if an obstacle, whose bounding box intersects the one of a
+	 * path, obstructs the path.
+	 * 
+	 * @param i
+	 *            the position of the obstacle in the first column of its
+	 *            block
+	 * @param size
+	 *            the number of obstacles of the block
+	 * @param x0
+	 *            the x coordinate of the first point of the path
+	 * @param y0
+	 *            the y coordinate of the first point of the path
+	 * @param x1
+	 *            the x coordinate of the second point of the path
+	 * @param y1
+	 *            the y coordinate of the second point of the path
+	 * @return true if the path is obstructed by the obstacle, false otherwise
+	 */
+	private boolean isObstructedBy(int i, int size, int x0, int y0, int x1, int y1) {
+		// The path can't touch the obstacle if all the vertices lie strictly
+		// on the same side of its line.
+		long dx = x1 - x0;
+		long dy = y1 - y0;
+		int ax = data[i + AX * size];
+		int ay = data[i + AY * size];
+		int bx = data[i + BX * size];
+		int by = data[i + BY * size];
+		int cx = data[i + CX * size];
+		int cy = data[i + CY * size];
+		long sideA = dx * (ay - y0) - dy * (ax - x0);
+		long sideB = dx * (by - y0) - dy * (bx - x0);
+		long sideC = dx * (cy - y0) - dy * (cx - x0);
+		if ((sideA > 0 & sideB > 0 & sideC > 0) | (sideA < 0 & sideB < 0 & sideC < 0)) {
+			return false;
+		}
+		return crosses(x0, y0, x1, y1, ax, ay, bx, by, sideA, sideB)
+				|| crosses(x0, y0, x1, y1, bx, by, cx, cy, sideB, sideC)
+				|| crosses(x0, y0, x1, y1, cx, cy, ax, ay, sideC, sideA);
+	}
+
+	/**
+	 * Checks if a path intersects an edge of an obstacle, given the sides of
+	 * the line of the path where the edge ends lie. The result is the same of
+	 * {@link Geometry#segmentsIntersect(long, long, long, long, long, long, long, long)},
+	 * which is only called when some of the points are collinear.
+	 * 
+	 * @param x0
+	 *            the x coordinate of the first point of the path
+	 * @param y0
+	 *            the y coordinate of the first point of the path
+	 * @param x1
+	 *            the x coordinate of the second point of the path
+	 * @param y1
+	 *            the y coordinate of the second point of the path
+	 * @param ex0
+	 *            the x coordinate of the first end of the edge
+	 * @param ey0
+	 *            the y coordinate of the first end of the edge
+	 * @param ex1
+	 *            the x coordinate of the second end of the edge
+	 * @param ey1
+	 *            the y coordinate of the second end of the edge
+	 * @param side0
+	 *            the side of the line of the path of the first end of the
+	 *            edge
+	 * @param side1
+	 *            the side of the line of the path of the second end of the
+	 *            edge
+	 * @return true if the path intersects the edge, false otherwise
+	 */
+	private static boolean crosses(int x0, int y0, int x1, int y1, int ex0, int ey0, int ex1, int ey1, long side0,
+			long side1) {
+		if ((side0 > 0 & side1 > 0) | (side0 < 0 & side1 < 0)) {
+			return false;
+		}
+		long edgeX = ex1 - ex0;
+		long edgeY = ey1 - ey0;
+		long pathSide0 = edgeX * (y0 - ey0) - edgeY * (x0 - ex0);
+		long pathSide1 = edgeX * (y1 - ey0) - edgeY * (x1 - ex0);
+		if (side0 != 0 && side1 != 0 && pathSide0 != 0 && pathSide1 != 0) {
+			return (pathSide0 > 0) != (pathSide1 > 0);
+		}
+		return Geometry.segmentsIntersect(x0, y0, x1, y1, ex0, ey0, ex1, ey1);
+	}
+
+	/**
+	 * Loads the vector kernel. It's missing if the solution has been built
+	 * with a JDK older than 17, and it can't be loaded if the
+	 * jdk.incubator.vector module has not been added to the JVM.
+	 * 
+	 * @return the kernel, or null if it's not available
+	 */
+	private static ObstacleKernel loadVectorKernel() {
+		try {
+			return (ObstacleKernel) Class.forName(VECTOR_KERNEL).getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException | LinkageError e) {
+			return null;
+		}
+	}
+
+}
@@ -0,0 +1,199 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.reply.challenge.training.model;
+
+import java.util.Arrays;
+
+/**
+ * Groups the obstacles into connected components: two obstacles belong to the
+ * same component if they overlap or touch, directly or through other
+ * obstacles. Since separate components can't enclose an area together, a
+ * point can only be enclosed by a single component, which must contain the
+ * point within its bounding box.
+ * 
+ * @author Donato Rimenti
+ *
+ */
+public class ObstacleComponents {
+
+	/**
+	 * The component of each obstacle, by obstacle index. Components are
+	 * numbered from 0.
+	 */
+	private final int[] components;
+
+	/**
+	 * Number of components.
+	 */
+	private final int componentCount;
+
+	/**
+	 * Lowest x coordinate of each component.
+	 */
+	private final int[] minX;
+
+	/**
+	 * Lowest y coordinate of each component.
+	 */
+	private final int[] minY;
+
+	/**
+	 * Highest x coordinate of each component.
+	 */
+	private final int[] maxX;
+
+	/**
+	 * Highest y coordinate of each component.
+	 */
+	private final int[] maxY;
+
+	/**
+	 * Computes the components of the obstacles in an index. Only the
+	 * obstacles sharing a cell of the index are tested against each other.
+	 *
+	 * @param index
+	 *            the index of the obstacles
+	 */
+	public ObstacleComponents(ObstacleIndex index) {
+		int obstacleCount = index.getObstacleCount();
+
+		// Union-find over the obstacles, with path halving.
+		int[] parents = new int[obstacleCount];
+		for (int i = 0; i < obstacleCount; i++) {
+			parents[i] = i;
+		}
+		for (int cell = 0; cell < index.getCellCount(); cell++) {
+			int from = index.getCellStart(cell);
+			int to = index.getCellStart(cell + 1);
+			for (int i = from; i < to; i++) {
+				for (int j = i + 1; j < to; j++) {
+					int first = find(parents, index.getCellObstacle(i));
+					int second = find(parents, index.getCellObstacle(j));
+					if (first != second && index.getObstacle(index.getCellObstacle(i))
+							.touches(index.getObstacle(index.getCellObstacle(j)))) {
+						parents[first] = second;
+					}
+				}
+			}
+		}
+
+		// Numbers the components and computes their bounding boxes.
+		int[] ids = new int[obstacleCount];
+		Arrays.fill(ids, -1);
+		this.components = new int[obstacleCount];
+		int count = 0;
+		for (int i = 0; i < obstacleCount; i++) {
+			int root = find(parents, i);
+			if (ids[root] < 0) {
+				ids[root] = count++;
+			}
+			components[i] = ids[root];
+		}
+		this.componentCount = count;
+		this.minX = new int[count];
+		this.minY = new int[count];
+		this.maxX = new int[count];
+		this.maxY = new int[count];
+		Arrays.fill(minX, Integer.MAX_VALUE);
+		Arrays.fill(minY, Integer.MAX_VALUE);
+		Arrays.fill(maxX, Integer.MIN_VALUE);
+		Arrays.fill(maxY, Integer.MIN_VALUE);
+		for (int i = 0; i < obstacleCount; i++) {
+			Obstacle o = index.getObstacle(i);
+			int c = components[i];
+			minX[c] = Math.min(minX[c], o.getMinX());
+			minY[c] = Math.min(minY[c], o.getMinY());
+			maxX[c] = Math.max(maxX[c], o.getMaxX());
+			maxY[c] = Math.max(maxY[c], o.getMaxY());
+		}
+	}
+
+	/**
+	 * Finds the root of an obstacle in the union-find structure.
+	 *
+	 * @param parents
+	 *            the parent of each obstacle
+	 * @param obstacle
+	 *            the index of the obstacle
+	 * @return the index of the root obstacle
+	 */
+	private static int find(int[] parents, int obstacle) {
+		while (parents[obstacle] != obstacle) {
+			parents[obstacle] = parents[parents[obstacle]];
+			obstacle = parents[obstacle];
+		}
+		return obstacle;
+	}
+
+	/**
+	 * Computes the box where a point may be enclosed, which is the union of
+	 * the bounding boxes of the components containing the point, plus a free
+	 * border of one node.
+	 *
+	 * @param x
+	 *            the x coordinate of the point
+	 * @param y
+	 *            the y coordinate of the point
+	 * @return the box as {minX, minY, maxX, maxY}, or null if no component can
+	 *         enclose the point
+	 */
+	public int[] getEnclosingBox(int x, int y) {
+		int[] box = null;
+		for (int c = 0; c < componentCount; c++) {
+			if (x < minX[c] || x > maxX[c] || y < minY[c] || y > maxY[c]) {
+				continue;
+			}
+			if (box == null) {
+				box = new int[] { minX[c] - 1, minY[c] - 1, maxX[c] + 1, maxY[c] + 1 };
+			} else {
+				box[0] = Math.min(box[0], minX[c] - 1);
+				box[1] = Math.min(box[1], minY[c] - 1);
+				box[2] = Math.max(box[2], maxX[c] + 1);
+				box[3] = Math.max(box[3], maxY[c] + 1);
+			}
+		}
+		return box;
+	}
+
+	/**
+	 * Returns the component of an obstacle.
+	 *
+	 * @param obstacle
+	 *            the index of the obstacle in the list used to build the index
+	 * @return the component of the obstacle
+	 */
+	public int getComponent(int obstacle) {
+		return components[obstacle];
+	}
+
+	/**
+	 * Gets the {@link #componentCount}.
+	 *
+	 * @return the {@link #componentCount}
+	 */
+	public int getComponentCount() {
+		return componentCount;
+	}
+
+}
@@ -0,0 +1,479 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.reply.challenge.training.model;
+
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Uniform bucket grid over the bounding boxes of the obstacles. Each obstacle
+ * is stored in every cell its bounding box overlaps, so that point and segment
+ * queries only need to test the obstacles stored in the cells they touch
+ * instead of the whole obstacle list. The index is immutable and built once
+ * after the obstacles have been loaded.
+ * 
+ * @author Donato Rimenti
+ */
+public class ObstacleIndex {
+
+	/**
+	 * The indexed obstacles.
+	 */
+	private final Obstacle[] obstacles;
+
+	/**
+	 * The x coordinate of the bottom left corner of the first cell.
+	 */
+	private final int originX;
+
+	/**
+	 * The y coordinate of the bottom left corner of the first cell.
+	 */
+	private final int originY;
+
+	/**
+	 * The lowest x coordinate of the obstacles.
+	 */
+	private final int minX;
+
+	/**
+	 * The lowest y coordinate of the obstacles.
+	 */
+	private final int minY;
+
+	/**
+	 * The highest x coordinate of the obstacles.
+	 */
+	private final int maxX;
+
+	/**
+	 * The highest y coordinate of the obstacles.
+	 */
+	private final int maxY;
+
+	/**
+	 * The side of each cell.
+	 */
+	private final int cellSize;
+
+	/**
+	 * The number of cell columns.
+	 */
+	private final int columns;
+
+	/**
+	 * The number of cell rows.
+	 */
+	private final int rows;
+
+	/**
+	 * For each cell, stored by row, the offset of its first obstacle in
+	 * {@link #cellObstacles}. The obstacles of the cell i go from
+	 * cellStart[i] (inclusive) to cellStart[i + 1] (exclusive).
+	 */
+	private final int[] cellStart;
+
+	/**
+	 * The indexes of the obstacles stored in each cell, grouped by cell.
+	 */
+	private final int[] cellObstacles;
+
+	/**
+	 * The obstacles of each cell stored column-wise, in the same order as
+	 * {@link #cellObstacles}.
+	 */
+	private final ObstacleColumns cellColumns;
+
+	/**
+	 * The connected components of the obstacles, or null if not computed
+	 * yet.
+	 */
+	private volatile ObstacleComponents components;
+
+	/**
+	 * Builds a new index over a list of obstacles.
+	 *
+	 * @param obstacles
+	 *            the obstacles to index
+	 */
+	public ObstacleIndex(List<Obstacle> obstacles) {
+		this(obstacles, 0, null, null);
+	}
+
+	/**
+	 * Restores an index over a list of obstacles from the cells of an index
+	 * built before over the same obstacles.
+	 *
+	 * @param obstacles
+	 *            the obstacles to index
+	 * @param cellSize
+	 *            the size of the cells of the previous index, see
+	 *            {@link #getCellSize()}
+	 * @param cellStart
+	 *            the position of the first obstacle of each cell of the
+	 *            previous index, or null to build the cells from scratch
+	 * @param cellObstacles
+	 *            the obstacles of each cell of the previous index
+	 */
+	ObstacleIndex(List<Obstacle> obstacles, int cellSize, int[] cellStart, int[] cellObstacles) {
+		this.obstacles = obstacles.toArray(new Obstacle[obstacles.size()]);
+
+		// Computes the area covered by the obstacles and their average size.
+		int minX = Integer.MAX_VALUE;
+		int minY = Integer.MAX_VALUE;
+		int maxX = Integer.MIN_VALUE;
+		int maxY = Integer.MIN_VALUE;
+		long totalSize = 0;
+		for (Obstacle o : this.obstacles) {
+			minX = Math.min(minX, o.getMinX());
+			minY = Math.min(minY, o.getMinY());
+			maxX = Math.max(maxX, o.getMaxX());
+			maxY = Math.max(maxY, o.getMaxY());
+			totalSize += Math.max(o.getMaxX() - o.getMinX(), o.getMaxY() - o.getMinY());
+		}
+		if (this.obstacles.length == 0) {
+			minX = minY = maxX = maxY = 0;
+		}
+
+		// Cells as big as the average obstacle keep both the number of cells
+		// per obstacle and the number of obstacles per cell low.
+		this.minX = minX;
+		this.minY = minY;
+		this.maxX = maxX;
+		this.maxY = maxY;
+		this.originX = minX;
+		this.originY = minY;
+		this.cellSize = cellStart != null ? cellSize
+				: (int) Math.max(1, totalSize / Math.max(1, this.obstacles.length));
+		this.columns = (maxX - minX) / this.cellSize + 1;
+		this.rows = (maxY - minY) / this.cellSize + 1;
+		if (cellStart != null) {
+			if (cellStart.length != columns * rows + 1) {
+				throw new IllegalArgumentException("The cells don't match the obstacles");
+			}
+			this.cellStart = cellStart;
+			this.cellObstacles = cellObstacles;
+			this.cellColumns = new ObstacleColumns(this.obstacles, cellStart, cellObstacles);
+			return;
+		}
+
+		// First pass counts the obstacles in each cell, second one fills them.
+		this.cellStart = new int[columns * rows + 1];
+		for (Obstacle o : this.obstacles) {
+			forEachCell(o, cell -> this.cellStart[cell + 1]++);
+		}
+		for (int i = 0; i < columns * rows; i++) {
+			this.cellStart[i + 1] += this.cellStart[i];
+		}
+		this.cellObstacles = new int[this.cellStart[columns * rows]];
+		int[] nextFree = new int[columns * rows];
+		System.arraycopy(this.cellStart, 0, nextFree, 0, nextFree.length);
+		for (int i = 0; i < this.obstacles.length; i++) {
+			final int obstacleIndex = i;
+			forEachCell(this.obstacles[i], cell -> this.cellObstacles[nextFree[cell]++] = obstacleIndex);
+		}
+		this.cellColumns = new ObstacleColumns(this.obstacles, this.cellStart, this.cellObstacles);
+	}
+
+	/**
+	 * Checks if a point is inside any obstacle.
+	 *
+	 * @param x
+	 *            the x coordinate of the point to check
+	 * @param y
+	 *            the y coordinate of the point to check
+	 * @return true if the point is inside an obstacle, false otherwise
+	 */
+	public boolean isPointInside(int x, int y) {
+		if (x < originX || y < originY) {
+			return false;
+		}
+		int column = (x - originX) / cellSize;
+		int row = (y - originY) / cellSize;
+		if (column >= columns || row >= rows) {
+			return false;
+		}
+		int cell = row * columns + column;
+		return cellColumns.isPointInside(cellStart[cell], cellStart[cell + 1], x, y);
+	}
+
+	/**
+	 * Checks if any obstacle obstructs the path between two points. The cells
+	 * crossed by the path are visited starting from the origin, so that the
+	 * closest obstacles are tested first.
+	 *
+	 * @param origin
+	 *            the first point of the path
+	 * @param destination
+	 *            the second point of the path
+	 * @return true if the path is obstructed by an obstacle, false otherwise
+	 */
+	public boolean isPathObstructed(Node origin, Node destination) {
+		return isPathObstructed(origin.x, origin.y, destination.x, destination.y);
+	}
+
+	/**
+	 * Checks if any obstacle obstructs the path between two points. The cells
+	 * crossed by the path are visited starting from the origin, so that the
+	 * closest obstacles are tested first.
+	 *
+	 * @param x0
+	 *            the x coordinate of the first point of the path
+	 * @param y0
+	 *            the y coordinate of the first point of the path
+	 * @param x1
+	 *            the x coordinate of the second point of the path
+	 * @param y1
+	 *            the y coordinate of the second point of the path
+	 * @return true if the path is obstructed by an obstacle, false otherwise
+	 */
+	public boolean isPathObstructed(int x0, int y0, int x1, int y1) {
+		if (Math.abs(x1 - x0) >= Math.abs(y1 - y0)) {
+			return isPathObstructed(x0, y0, x1, y1, x0, y0, x1, y1, false);
+		}
+		return isPathObstructed(x0, y0, x1, y1, y0, x0, y1, x1, true);
+	}
+
+	/**
+	 * Walks the cells crossed by a path one slice at a time along its major
+	 * axis and tests the obstacles in each of them. Since the path is a
+	 * segment, the minor coordinates within a slice lie between the ones at
+	 * the slice ends, which are widened by one to stay conservative with
+	 * respect to rounding.
+	 *
+	 * @param x0
+	 *            the x coordinate of the first point of the path
+	 * @param y0
+	 *            the y coordinate of the first point of the path
+	 * @param x1
+	 *            the x coordinate of the second point of the path
+	 * @param y1
+	 *            the y coordinate of the second point of the path
+	 * @param major0
+	 *            the major axis coordinate of the origin
+	 * @param minor0
+	 *            the minor axis coordinate of the origin
+	 * @param major1
+	 *            the major axis coordinate of the destination
+	 * @param minor1
+	 *            the minor axis coordinate of the destination
+	 * @param transposed
+	 *            true if the major axis is y, false if it's x
+	 * @return true if the path is obstructed by an obstacle, false otherwise
+	 */
+	private boolean isPathObstructed(int x0, int y0, int x1, int y1, int major0, int minor0, int major1,
+			int minor1, boolean transposed) {
+		int majorOrigin = transposed ? originY : originX;
+		int minorOrigin = transposed ? originX : originY;
+		int majorCells = transposed ? rows : columns;
+		int minorCells = transposed ? columns : rows;
+		int step = major1 >= major0 ? 1 : -1;
+		int majorMin = Math.min(major0, major1);
+		int majorMax = Math.max(major0, major1);
+		double slope = major1 == major0 ? 0 : (double) (minor1 - minor0) / (major1 - major0);
+
+		int firstSlice = clamp(Math.floorDiv(major0 - majorOrigin, cellSize), majorCells);
+		int lastSlice = clamp(Math.floorDiv(major1 - majorOrigin, cellSize), majorCells);
+		for (int slice = firstSlice;; slice += step) {
+			// Portion of the path within this slice.
+			int sliceMin = Math.max(majorMin, majorOrigin + slice * cellSize);
+			int sliceMax = Math.min(majorMax, majorOrigin + (slice + 1) * cellSize - 1);
+			if (sliceMin <= sliceMax) {
+				double minorA = minor0 + (sliceMin - major0) * slope;
+				double minorB = minor0 + (sliceMax - major0) * slope;
+				int fromCell = (int) Math.floor((Math.min(minorA, minorB) - 1 - minorOrigin) / cellSize);
+				int toCell = (int) Math.floor((Math.max(minorA, minorB) + 1 - minorOrigin) / cellSize);
+				fromCell = Math.max(fromCell, 0);
+				toCell = Math.min(toCell, minorCells - 1);
+				int minorStep = slope >= 0 == step > 0 ? 1 : -1;
+				if (minorStep < 0) {
+					int tmp = fromCell;
+					fromCell = toCell;
+					toCell = tmp;
+				}
+				for (int other = fromCell; minorStep > 0 ? other <= toCell : other >= toCell; other += minorStep) {
+					int cell = transposed ? slice * columns + other : other * columns + slice;
+					if (cellColumns.isPathObstructed(cellStart[cell], cellStart[cell + 1], x0, y0, x1, y1)) {
+						return true;
+					}
+				}
+			}
+			if (slice == lastSlice) {
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * Gets the {@link #minX}.
+	 *
+	 * @return the {@link #minX}
+	 */
+	public int getMinX() {
+		return minX;
+	}
+
+	/**
+	 * Gets the {@link #minY}.
+	 *
+	 * @return the {@link #minY}
+	 */
+	public int getMinY() {
+		return minY;
+	}
+
+	/**
+	 * Gets the {@link #maxX}.
+	 *
+	 * @return the {@link #maxX}
+	 */
+	public int getMaxX() {
+		return maxX;
+	}
+
+	/**
+	 * Gets the {@link #maxY}.
+	 *
+	 * @return the {@link #maxY}
+	 */
+	public int getMaxY() {
+		return maxY;
+	}
+
+	/**
+	 * Returns the connected components of the indexed obstacles, computing
+	 * them the first time, so that all the scenes sharing this index share
+	 * them too. Concurrent first calls may compute them twice, but they all
+	 * return the same components.
+	 *
+	 * @return the connected components of the obstacles
+	 */
+	public ObstacleComponents getComponents() {
+		ObstacleComponents result = components;
+		if (result == null) {
+			result = new ObstacleComponents(this);
+			components = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the number of indexed obstacles.
+	 *
+	 * @return the number of indexed obstacles
+	 */
+	int getObstacleCount() {
+		return obstacles.length;
+	}
+
+	/**
+	 * Returns an indexed obstacle.
+	 *
+	 * @param obstacle
+	 *            the index of the obstacle
+	 * @return the obstacle
+	 */
+	Obstacle getObstacle(int obstacle) {
+		return obstacles[obstacle];
+	}
+
+	/**
+	 * Returns the length of the side of the cells of this index.
+	 *
+	 * @return the size of the cells
+	 */
+	int getCellSize() {
+		return cellSize;
+	}
+
+	/**
+	 * Returns the number of cells of this index.
+	 *
+	 * @return the number of cells
+	 */
+	int getCellCount() {
+		return columns * rows;
+	}
+
+	/**
+	 * Returns the position of the first obstacle of a cell. The obstacles of
+	 * a cell go from its position to the one of the next cell (exclusive).
+	 *
+	 * @param cell
+	 *            the index of the cell, up to {@link #getCellCount()}
+	 *            (inclusive)
+	 * @return the position of the first obstacle of the cell
+	 * @see #getCellObstacle(int)
+	 */
+	int getCellStart(int cell) {
+		return cellStart[cell];
+	}
+
+	/**
+	 * Returns the obstacle at a position of the cell lists.
+	 *
+	 * @param position
+	 *            the position in the cell lists
+	 * @return the index of the obstacle
+	 * @see #getCellStart(int)
+	 */
+	int getCellObstacle(int position) {
+		return cellObstacles[position];
+	}
+
+	/**
+	 * Calls an action for each cell overlapped by the bounding box of an
+	 * obstacle.
+	 *
+	 * @param obstacle
+	 *            the obstacle whose cells need to be visited
+	 * @param action
+	 *            the action to call with the index of each cell
+	 */
+	private void forEachCell(Obstacle obstacle, IntConsumer action) {
+		int fromColumn = (obstacle.getMinX() - originX) / cellSize;
+		int toColumn = (obstacle.getMaxX() - originX) / cellSize;
+		int fromRow = (obstacle.getMinY() - originY) / cellSize;
+		int toRow = (obstacle.getMaxY() - originY) / cellSize;
+		for (int row = fromRow; row <= toRow; row++) {
+			for (int column = fromColumn; column <= toColumn; column++) {
+				action.accept(row * columns + column);
+			}
+		}
+	}
+
+	/**
+	 * Clamps a cell coordinate between 0 and a maximum value (exclusive).
+	 *
+	 * @param value
+	 *            the value to clamp
+	 * @param size
+	 *            the number of cells
+	 * @return the clamped value
+	 */
+	private static int clamp(int value, int size) {
+		return Math.max(0, Math.min(value, size - 1));
+	}
+
+}
@@ -0,0 +1,79 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.reply.challenge.training.model;
+
+/**
+ * Batch bounding box test over the {@link ObstacleColumns}, which finds the
+ * obstacles a query may hit among many of them at once. Implemented by the
+ * VectorObstacleKernel, which uses the JDK Vector API and is compiled
+ * separately since it needs Java 17, while the rest of the solution runs on
+ * Java 8.
+ * 
+ * @author Donato Rimenti
+ *
+ */
+interface ObstacleKernel {
+
+	/**
+	 * Maximum number of obstacles tested by a single call. Kept below the 64
+	 * bits of the mask so that a query stops soon after the first hit.
+	 */
+	int BATCH_SIZE = 32;
+
+	/**
+	 * Tests the bounding boxes of some consecutive obstacles against a box.
+	 * Each bounding box is given by four columns of the same array.
+	 * 
+	 * @param data
+	 *            the columns of the obstacles
+	 * @param minX
+	 *            the position of the lowest x coordinate of the first
+	 *            obstacle
+	 * @param maxX
+	 *            the position of the highest x coordinate of the first
+	 *            obstacle
+	 * @param minY
+	 *            the position of the lowest y coordinate of the first
+	 *            obstacle
+	 * @param maxY
+	 *            the position of the highest y coordinate of the first
+	 *            obstacle
+	 * @param count
+	 *            the number of obstacles to test, at most
+	 *            {@link #BATCH_SIZE}
+	 * @param boxMinX
+	 *            the lowest x coordinate of the box
+	 * @param boxMinY
+	 *            the lowest y coordinate of the box
+	 * @param boxMaxX
+	 *            the highest x coordinate of the box
+	 * @param boxMaxY
+	 *            the highest y coordinate of the box
+	 * @return a mask with the bit i set if the bounding box of the obstacle
+	 *         i intersects the box, touching included
+	 */
+	long overlaps(int[] data, int minX, int maxX, int minY, int maxY, int count, int boxMinX, int boxMinY,
+			int boxMaxX, int boxMaxY);
+
+}
@@ -0,0 +1,643 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.reply.challenge.training.model;
+
+import java.nio.LongBuffer;
+
+/**
+ * Sparse bitmap of the grid cells occupied by an obstacle. The grid is split
+ * into tiles of 64x64 cells, each one stored as 64 words (one per row), which
+ * are lazily allocated only when a cell inside them is set. Tiles are in turn
+ * grouped in blocks of 64x64 tiles so that the directory of the whole
+ * {@link ProblemStatement#BOUND_CONSTRAINT} grid stays small. A lookup only
+ * costs a few shifts and array loads, without any hashing or boxing.
+ * <p>
+ * A grid can also be backed by tiles stored outside of the heap, like the
+ * ones of a memory mapped scene file. These tiles are never written: a tile
+ * is copied on the heap the first time one of its cells changes. In the same
+ * way, an {@link #overlay()} shares all the tiles of another grid and only
+ * copies the ones it changes.
+ * 
+ * @author Donato Rimenti
+ */
+public class OccupancyGrid {
+
+	/**
+	 * Number of bits to shift a cell coordinate to get its tile coordinate.
+	 */
+	private static final int TILE_SHIFT = 6;
+
+	/**
+	 * Mask to get the coordinate of a cell inside its tile.
+	 */
+	private static final int TILE_MASK = (1 << TILE_SHIFT) - 1;
+
+	/**
+	 * Number of bits to shift a cell coordinate to get its block coordinate.
+	 */
+	private static final int BLOCK_SHIFT = TILE_SHIFT * 2;
+
+	/**
+	 * Number of cells on each side of the grid.
+	 */
+	private static final int GRID_SIZE = ProblemStatement.BOUND_CONSTRAINT * 2 + 1;
+
+	/**
+	 * Number of blocks on each side of the grid.
+	 */
+	private static final int BLOCKS_PER_SIDE = (GRID_SIZE >>> BLOCK_SHIFT) + 1;
+
+	/**
+	 * Directory of the blocks, stored by row. Each block is an array of
+	 * 64x64 tiles, also stored by row, and each tile is an array of 64 words,
+	 * one for each row of cells.
+	 */
+	private final long[][][] blocks = new long[BLOCKS_PER_SIDE * BLOCKS_PER_SIDE][][];
+
+	/**
+	 * Number of tiles allocated so far, including the ones outside of the
+	 * heap.
+	 */
+	private int tileCount;
+
+	/**
+	 * Number of tiles allocated on the heap so far.
+	 */
+	private int heapTileCount;
+
+	/**
+	 * Tiles stored outside of the heap, one after the other, or null if
+	 * there are none.
+	 */
+	private final LongBuffer externalTiles;
+
+	/**
+	 * Directory of the {@link #externalTiles}, with the same layout of
+	 * {@link #blocks}. Each tile is stored as its position in the buffer plus
+	 * one, or zero if it's not there.
+	 */
+	private final int[][] externalBlocks;
+
+	/**
+	 * Grid whose tiles are shared by this overlay, or null if this is not an
+	 * overlay. Its tiles are never written.
+	 */
+	private final OccupancyGrid base;
+
+	/**
+	 * Number of cells currently set.
+	 */
+	private long cellCount;
+
+	/**
+	 * Instantiates an empty OccupancyGrid.
+	 */
+	public OccupancyGrid() {
+		this.externalTiles = null;
+		this.externalBlocks = null;
+		this.base = null;
+	}
+
+	/**
+	 * Instantiates an OccupancyGrid sharing the tiles of another grid.
+	 *
+	 * @param base
+	 *            the {@link #base}
+	 */
+	private OccupancyGrid(OccupancyGrid base) {
+		this.externalTiles = null;
+		this.externalBlocks = null;
+		this.base = base;
+		this.tileCount = base.tileCount;
+		this.cellCount = base.cellCount;
+	}
+
+	/**
+	 * Instantiates an OccupancyGrid backed by tiles stored outside of the
+	 * heap, which are never modified.
+	 *
+	 * @param tiles
+	 *            the words of the tiles, 64 for each tile
+	 * @param tileKeys
+	 *            the key of each tile, as returned by {@link #getTileKeys()}
+	 * @param cellCount
+	 *            the number of cells set in the tiles
+	 */
+	public OccupancyGrid(LongBuffer tiles, int[] tileKeys, long cellCount) {
+		this.externalTiles = tiles;
+		this.externalBlocks = new int[blocks.length][];
+		this.base = null;
+		for (int i = 0; i < tileKeys.length; i++) {
+			int blockIndex = tileKeys[i] >>> BLOCK_SHIFT;
+			if (externalBlocks[blockIndex] == null) {
+				externalBlocks[blockIndex] = new int[1 << BLOCK_SHIFT];
+			}
+			externalBlocks[blockIndex][tileKeys[i] & ((1 << BLOCK_SHIFT) - 1)] = i + 1;
+		}
+		this.tileCount = tileKeys.length;
+		this.cellCount = cellCount;
+	}
+
+	/**
+	 * Returns a copy of this grid which shares its tiles, and only copies
+	 * the ones it changes. This grid must not be modified afterwards. The
+	 * overlay of an overlay shares the same base grid and copies the few
+	 * tiles changed on top of it, so lookups never go through more than one
+	 * level.
+	 *
+	 * @return a copy of this grid
+	 */
+	public OccupancyGrid overlay() {
+		if (base == null) {
+			return new OccupancyGrid(this);
+		}
+		OccupancyGrid overlay = new OccupancyGrid(base);
+		for (int blockIndex = 0; blockIndex < blocks.length; blockIndex++) {
+			long[][] block = blocks[blockIndex];
+			if (block == null) {
+				continue;
+			}
+			long[][] blockCopy = new long[block.length][];
+			for (int tileIndex = 0; tileIndex < block.length; tileIndex++) {
+				if (block[tileIndex] != null) {
+					blockCopy[tileIndex] = block[tileIndex].clone();
+				}
+			}
+			overlay.blocks[blockIndex] = blockCopy;
+		}
+		overlay.tileCount = tileCount;
+		overlay.heapTileCount = heapTileCount;
+		overlay.cellCount = cellCount;
+		return overlay;
+	}
+
+	/**
+	 * Marks a cell as occupied.
+	 *
+	 * @param x
+	 *            the x coordinate of the cell
+	 * @param y
+	 *            the y coordinate of the cell
+	 * @return true if the cell was not already occupied, false otherwise
+	 */
+	public boolean add(int x, int y) {
+		if (!isWithinBounds(x, y)) {
+			return false;
+		}
+		int ux = x + ProblemStatement.BOUND_CONSTRAINT;
+		int uy = y + ProblemStatement.BOUND_CONSTRAINT;
+		long[] tile = getWritableTile(blockIndex(ux, uy), tileIndex(ux, uy));
+		long word = tile[uy & TILE_MASK];
+		long updated = word | (1L << ux);
+		if (updated == word) {
+			return false;
+		}
+		tile[uy & TILE_MASK] = updated;
+		cellCount++;
+		return true;
+	}
+
+	/**
+	 * Marks as occupied the cells of a line between two cells, excluding the
+	 * last one. The line is drawn with Bresenham's algorithm in 4-Connected
+	 * notation, so that it can't be crossed diagonally.
+	 *
+	 * @param x0
+	 *            the first cell x coordinate
+	 * @param y0
+	 *            the first cell y coordinate
+	 * @param x1
+	 *            the last cell x coordinate
+	 * @param y1
+	 *            the last cell y coordinate
+	 */
+	public void addLine(int x0, int y0, int x1, int y1) {
+		final int dx = Math.abs(x1 - x0);
+		final int dy = Math.abs(y1 - y0);
+		final int totalD = dx + dy;
+
+		final int ix = x0 < x1 ? 1 : x0 > x1 ? -1 : 0;
+		final int iy = y0 < y1 ? 1 : y0 > y1 ? -1 : 0;
+
+		int e = 0;
+		int xD = x0;
+		int yD = y0;
+		int e1, e2;
+
+		for (int i = 0; i < totalD; i++) {
+			add(xD, yD);
+			e1 = e + dy;
+			e2 = e - dx;
+			if (Math.abs(e1) < Math.abs(e2)) {
+				xD += ix;
+				e = e1;
+			} else {
+				yD += iy;
+				e = e2;
+			}
+		}
+	}
+
+	/**
+	 * Marks as occupied all the cells occupied in another grid.
+	 *
+	 * @param other
+	 *            the other grid
+	 */
+	public void addAll(OccupancyGrid other) {
+		for (int key : other.getTileKeys()) {
+			int blockIndex = key >>> BLOCK_SHIFT;
+			int tileIndex = key & ((1 << BLOCK_SHIFT) - 1);
+			long[] tile = getWritableTile(blockIndex, tileIndex);
+			for (int row = 0; row < tile.length; row++) {
+				long updated = tile[row] | other.getWord(blockIndex, tileIndex, row);
+				cellCount += Long.bitCount(updated ^ tile[row]);
+				tile[row] = updated;
+			}
+		}
+	}
+
+	/**
+	 * Returns the keys of all the tiles allocated so far, in ascending
+	 * order. The key of a tile is the index of its block shifted by 12 bits,
+	 * plus its index inside the block.
+	 *
+	 * @return the keys of the tiles
+	 */
+	public int[] getTileKeys() {
+		int[] keys = new int[tileCount];
+		int size = 0;
+		for (int blockIndex = 0; blockIndex < blocks.length; blockIndex++) {
+			if (!hasBlock(blockIndex)) {
+				continue;
+			}
+			for (int tileIndex = 0; tileIndex < 1 << BLOCK_SHIFT; tileIndex++) {
+				if (hasTile(blockIndex, tileIndex)) {
+					keys[size++] = blockIndex << BLOCK_SHIFT | tileIndex;
+				}
+			}
+		}
+		return keys;
+	}
+
+	/**
+	 * Checks if any tile of a block is allocated, wherever it's stored.
+	 *
+	 * @param blockIndex
+	 *            the index of the block
+	 * @return true if the block has any tile, false otherwise
+	 */
+	private boolean hasBlock(int blockIndex) {
+		return blocks[blockIndex] != null || (externalBlocks != null && externalBlocks[blockIndex] != null)
+				|| (base != null && base.hasBlock(blockIndex));
+	}
+
+	/**
+	 * Checks if a tile is allocated, wherever it's stored.
+	 *
+	 * @param blockIndex
+	 *            the index of the block of the tile
+	 * @param tileIndex
+	 *            the index of the tile inside its block
+	 * @return true if the tile is allocated, false otherwise
+	 */
+	private boolean hasTile(int blockIndex, int tileIndex) {
+		return (blocks[blockIndex] != null && blocks[blockIndex][tileIndex] != null)
+				|| externalPosition(blockIndex, tileIndex) != 0
+				|| (base != null && base.hasTile(blockIndex, tileIndex));
+	}
+
+	/**
+	 * Copies the words of a tile into a buffer.
+	 *
+	 * @param key
+	 *            the key of the tile, as returned by {@link #getTileKeys()}
+	 * @param out
+	 *            the buffer where the 64 words of the tile are written
+	 */
+	public void copyTile(int key, LongBuffer out) {
+		int blockIndex = key >>> BLOCK_SHIFT;
+		int tileIndex = key & ((1 << BLOCK_SHIFT) - 1);
+		for (int row = 0; row < 1 << TILE_SHIFT; row++) {
+			out.put(getWord(blockIndex, tileIndex, row));
+		}
+	}
+
+	/**
+	 * Returns a word of a tile, wherever it's stored.
+	 *
+	 * @param blockIndex
+	 *            the index of the block of the tile
+	 * @param tileIndex
+	 *            the index of the tile inside its block
+	 * @param row
+	 *            the row of the word in the tile
+	 * @return the word, or 0 if the tile is not allocated
+	 */
+	private long getWord(int blockIndex, int tileIndex, int row) {
+		long[][] block = blocks[blockIndex];
+		if (block != null && block[tileIndex] != null) {
+			return block[tileIndex][row];
+		}
+		if (base != null) {
+			return base.getWord(blockIndex, tileIndex, row);
+		}
+		int position = externalPosition(blockIndex, tileIndex);
+		return position == 0 ? 0 : externalTiles.get(((position - 1) << TILE_SHIFT) + row);
+	}
+
+	/**
+	 * Marks a cell as free. Tiles are never deallocated.
+	 *
+	 * @param x
+	 *            the x coordinate of the cell
+	 * @param y
+	 *            the y coordinate of the cell
+	 * @return true if the cell was occupied, false otherwise
+	 */
+	public boolean remove(int x, int y) {
+		if (!contains(x, y)) {
+			return false;
+		}
+		int ux = x + ProblemStatement.BOUND_CONSTRAINT;
+		int uy = y + ProblemStatement.BOUND_CONSTRAINT;
+		long[] tile = getWritableTile(blockIndex(ux, uy), tileIndex(ux, uy));
+		long word = tile[uy & TILE_MASK];
+		long updated = word & ~(1L << ux);
+		if (updated == word) {
+			return false;
+		}
+		tile[uy & TILE_MASK] = updated;
+		cellCount--;
+		return true;
+	}
+
+	/**
+	 * Checks if a cell is occupied. Cells outside the grid boundary are never
+	 * occupied.
+	 *
+	 * @param x
+	 *            the x coordinate of the cell
+	 * @param y
+	 *            the y coordinate of the cell
+	 * @return true if the cell is occupied, false otherwise
+	 */
+	public boolean contains(int x, int y) {
+		long[] tile = getTile(x, y);
+		if (tile == null) {
+			if (base != null) {
+				return base.contains(x, y);
+			}
+			return externalTiles != null && containsExternal(x, y);
+		}
+		// Shifts of longs only use the 6 lowest bits, so the x coordinate
+		// doesn't need to be masked.
+		return (tile[(y + ProblemStatement.BOUND_CONSTRAINT) & TILE_MASK]
+				>>> (x + ProblemStatement.BOUND_CONSTRAINT) & 1L) != 0;
+	}
+
+	/**
+	 * Checks if any cell of a rectangle is occupied. Each row of the
+	 * rectangle is checked a word at a time.
+	 *
+	 * @param minX
+	 *            the lowest x coordinate of the rectangle
+	 * @param minY
+	 *            the lowest y coordinate of the rectangle
+	 * @param maxX
+	 *            the highest x coordinate of the rectangle
+	 * @param maxY
+	 *            the highest y coordinate of the rectangle
+	 * @return true if any cell of the rectangle is occupied, false otherwise
+	 */
+	public boolean containsAny(int minX, int minY, int maxX, int maxY) {
+		int fromX = Math.max(minX, -ProblemStatement.BOUND_CONSTRAINT) + ProblemStatement.BOUND_CONSTRAINT;
+		int fromY = Math.max(minY, -ProblemStatement.BOUND_CONSTRAINT) + ProblemStatement.BOUND_CONSTRAINT;
+		int toX = Math.min(maxX, ProblemStatement.BOUND_CONSTRAINT) + ProblemStatement.BOUND_CONSTRAINT;
+		int toY = Math.min(maxY, ProblemStatement.BOUND_CONSTRAINT) + ProblemStatement.BOUND_CONSTRAINT;
+		for (int uy = fromY; uy <= toY; uy++) {
+			for (int ux = fromX; ux <= toX; ux = (ux | TILE_MASK) + 1) {
+				int last = Math.min(toX, ux | TILE_MASK);
+				long mask = (-1L >>> (TILE_MASK - (last & TILE_MASK))) & (-1L << ux);
+				if ((getWord(blockIndex(ux, uy), tileIndex(ux, uy), uy & TILE_MASK) & mask) != 0) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Checks if a cell is occupied in the {@link #externalTiles}.
+	 *
+	 * @param x
+	 *            the x coordinate of the cell
+	 * @param y
+	 *            the y coordinate of the cell
+	 * @return true if the cell is occupied, false otherwise
+	 */
+	private boolean containsExternal(int x, int y) {
+		if (!isWithinBounds(x, y)) {
+			return false;
+		}
+		int ux = x + ProblemStatement.BOUND_CONSTRAINT;
+		int uy = y + ProblemStatement.BOUND_CONSTRAINT;
+		int[] block = externalBlocks[blockIndex(ux, uy)];
+		if (block == null) {
+			return false;
+		}
+		int position = block[tileIndex(ux, uy)];
+		if (position == 0) {
+			return false;
+		}
+		return (externalTiles.get(((position - 1) << TILE_SHIFT) + (uy & TILE_MASK)) >>> ux & 1L) != 0;
+	}
+
+	/**
+	 * Returns a tile which can be modified, allocating it on the heap if
+	 * needed. Tiles outside of the heap or of the {@link #base} are copied.
+	 *
+	 * @param blockIndex
+	 *            the index of the block of the tile
+	 * @param tileIndex
+	 *            the index of the tile inside its block
+	 * @return the tile
+	 */
+	private long[] getWritableTile(int blockIndex, int tileIndex) {
+		long[][] block = blocks[blockIndex];
+		if (block == null) {
+			block = new long[1 << BLOCK_SHIFT][];
+			blocks[blockIndex] = block;
+		}
+		long[] tile = block[tileIndex];
+		if (tile != null) {
+			return tile;
+		}
+		tile = new long[1 << TILE_SHIFT];
+		block[tileIndex] = tile;
+		heapTileCount++;
+		if (base != null) {
+			if (base.hasTile(blockIndex, tileIndex)) {
+				for (int row = 0; row < tile.length; row++) {
+					tile[row] = base.getWord(blockIndex, tileIndex, row);
+				}
+			} else {
+				tileCount++;
+			}
+			return tile;
+		}
+		int position = externalPosition(blockIndex, tileIndex);
+		if (position == 0) {
+			tileCount++;
+		} else {
+			for (int row = 0; row < tile.length; row++) {
+				tile[row] = externalTiles.get(((position - 1) << TILE_SHIFT) + row);
+			}
+		}
+		return tile;
+	}
+
+	/**
+	 * Returns the position of a tile in the {@link #externalTiles}.
+	 *
+	 * @param blockIndex
+	 *            the index of the block of the tile
+	 * @param tileIndex
+	 *            the index of the tile inside its block
+	 * @return the position of the tile plus one, or zero if it's not there
+	 */
+	private int externalPosition(int blockIndex, int tileIndex) {
+		if (externalBlocks == null || externalBlocks[blockIndex] == null) {
+			return 0;
+		}
+		return externalBlocks[blockIndex][tileIndex];
+	}
+
+	/**
+	 * Returns the tile which contains a cell.
+	 *
+	 * @param x
+	 *            the x coordinate of the cell
+	 * @param y
+	 *            the y coordinate of the cell
+	 * @return the tile containing the cell or null if it has not been
+	 *         allocated or the cell is outside the grid
+	 */
+	private long[] getTile(int x, int y) {
+		if (!isWithinBounds(x, y)) {
+			return null;
+		}
+		int ux = x + ProblemStatement.BOUND_CONSTRAINT;
+		int uy = y + ProblemStatement.BOUND_CONSTRAINT;
+		long[][] block = blocks[blockIndex(ux, uy)];
+		if (block == null) {
+			return null;
+		}
+		return block[tileIndex(ux, uy)];
+	}
+
+	/**
+	 * Returns the index of the block containing a cell.
+	 *
+	 * @param ux
+	 *            the x coordinate of a cell, shifted to be non negative
+	 * @param uy
+	 *            the y coordinate of a cell, shifted to be non negative
+	 * @return the index of the block containing the cell
+	 */
+	private static int blockIndex(int ux, int uy) {
+		return (uy >>> BLOCK_SHIFT) * BLOCKS_PER_SIDE + (ux >>> BLOCK_SHIFT);
+	}
+
+	/**
+	 * Returns the index of a tile inside its block.
+	 *
+	 * @param ux
+	 *            the x coordinate of a cell, shifted to be non negative
+	 * @param uy
+	 *            the y coordinate of a cell, shifted to be non negative
+	 * @return the index of the tile containing the cell inside its block
+	 */
+	private static int tileIndex(int ux, int uy) {
+		return ((uy >>> TILE_SHIFT) & TILE_MASK) << TILE_SHIFT | ((ux >>> TILE_SHIFT) & TILE_MASK);
+	}
+
+	/**
+	 * Checks that a cell is within the grid boundary.
+	 *
+	 * @param x
+	 *            the x coordinate of the cell
+	 * @param y
+	 *            the y coordinate of the cell
+	 * @return true if the cell is within the boundary, false otherwise
+	 */
+	private static boolean isWithinBounds(int x, int y) {
+		return x >= -ProblemStatement.BOUND_CONSTRAINT && x <= ProblemStatement.BOUND_CONSTRAINT
+				&& y >= -ProblemStatement.BOUND_CONSTRAINT && y <= ProblemStatement.BOUND_CONSTRAINT;
+	}
+
+	/**
+	 * Returns the number of occupied cells.
+	 *
+	 * @return the number of occupied cells
+	 */
+	public long size() {
+		return cellCount;
+	}
+
+	/**
+	 * Returns the number of tiles allocated so far.
+	 *
+	 * @return the number of tiles allocated so far
+	 */
+	public int getTileCount() {
+		return tileCount;
+	}
+
+	/**
+	 * Returns an estimate of the heap used by this grid, in bytes. Tiles
+	 * stored outside of the heap or shared with the {@link #base} are not
+	 * included.
+	 *
+	 * @return an estimate of the heap used by this grid, in bytes
+	 */
+	public long getMemoryUsage() {
+		long usage = 16L + 4L * blocks.length;
+		for (long[][] block : blocks) {
+			if (block != null) {
+				usage += 16L + 4L * block.length;
+			}
+		}
+		if (externalBlocks != null) {
+			usage += 16L + 4L * externalBlocks.length;
+			for (int[] block : externalBlocks) {
+				if (block != null) {
+					usage += 16L + 4L * block.length;
+				}
+			}
+		}
+		return usage + heapTileCount * (16L + 8L * (1 << TILE_SHIFT));
+	}
+
+}
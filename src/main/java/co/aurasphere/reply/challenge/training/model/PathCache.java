@@ -0,0 +1,259 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.reply.challenge.training.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Least recently used cache of paths between two nodes. Besides the paths
+ * themselves, each point of a cached path is indexed, so that a path between
+ * any two points of the same cached path is found by slicing it. Since the
+ * moves are symmetric, a path is also found between its ends in the opposite
+ * direction.
+ * <p>
+ * All the methods are synchronized, so a cache can be shared by concurrent
+ * searches. The cached paths must not be modified.
+ * 
+ * @author Donato Rimenti
+ */
+public class PathCache {
+
+	/**
+	 * Maximum number of paths in the cache.
+	 */
+	private final int capacity;
+
+	/**
+	 * The cached paths by their ends, in access order.
+	 */
+	private final LinkedHashMap<Route, List<Node>> paths;
+
+	/**
+	 * The last cached path through each point, by packed coordinates.
+	 */
+	private final Map<Long, List<Node>> pathsByPoint = new HashMap<Long, List<Node>>();
+
+	/**
+	 * Number of lookups answered by the cache.
+	 */
+	private long hits;
+
+	/**
+	 * Number of lookups not answered by the cache.
+	 */
+	private long misses;
+
+	/**
+	 * Instantiates a new PathCache.
+	 * 
+	 * @param capacity
+	 *            the maximum number of paths in the cache
+	 */
+	public PathCache(int capacity) {
+		this.capacity = capacity;
+		this.paths = new LinkedHashMap<Route, List<Node>>(16, 0.75f, true);
+	}
+
+	/**
+	 * Returns a cached path between two nodes.
+	 * 
+	 * @param start
+	 *            the first node of the path
+	 * @param goal
+	 *            the last node of the path
+	 * @return the points of the path from the start to the goal, an empty
+	 *         list if the nodes are known not to be connected or null if
+	 *         there's no cached path between them
+	 */
+	public synchronized List<Node> get(Node start, Node goal) {
+		List<Node> path = paths.get(new Route(start, goal));
+		if (path == null) {
+			// A path through both the nodes, in any direction.
+			List<Node> through = pathsByPoint.get(NodePool.pack(start.x, start.y));
+			if (through != null) {
+				path = slice(through, start, goal);
+			}
+		}
+		if (path == null) {
+			misses++;
+		} else {
+			hits++;
+		}
+		return path;
+	}
+
+	/**
+	 * Adds a path between two nodes to the cache, evicting the least
+	 * recently used path if the cache is full.
+	 * 
+	 * @param start
+	 *            the first node of the path
+	 * @param goal
+	 *            the last node of the path
+	 * @param path
+	 *            the points of the path from the start to the goal, or an
+	 *            empty list if the nodes are not connected
+	 * @return the cached copy of the path, which can't be modified
+	 */
+	public synchronized List<Node> put(Node start, Node goal, List<Node> path) {
+		// The points are copied without their parent, which could keep the
+		// whole search reachable.
+		List<Node> points = new ArrayList<Node>(path.size());
+		for (Node n : path) {
+			points.add(new Node(n.x, n.y));
+		}
+		List<Node> cached = Collections.unmodifiableList(points);
+		paths.put(new Route(start, goal), cached);
+		for (Node n : cached) {
+			pathsByPoint.put(NodePool.pack(n.x, n.y), cached);
+		}
+
+		// Evicts the least recently used paths.
+		Iterator<List<Node>> iterator = paths.values().iterator();
+		while (paths.size() > capacity) {
+			List<Node> evicted = iterator.next();
+			iterator.remove();
+			for (Node n : evicted) {
+				pathsByPoint.remove(NodePool.pack(n.x, n.y), evicted);
+			}
+		}
+		return cached;
+	}
+
+	/**
+	 * Returns the part of a path between two of its points.
+	 * 
+	 * @param path
+	 *            the path
+	 * @param start
+	 *            the first point of the part
+	 * @param goal
+	 *            the last point of the part
+	 * @return the part of the path from the start to the goal, reversed if
+	 *         the goal comes first, or null if the goal is not on the path
+	 */
+	private static List<Node> slice(List<Node> path, Node start, Node goal) {
+		int from = path.indexOf(start);
+		int to = path.indexOf(goal);
+		if (from < 0 || to < 0) {
+			return null;
+		}
+		if (from <= to) {
+			return path.subList(from, to + 1);
+		}
+		List<Node> reversed = new ArrayList<Node>(path.subList(to, from + 1));
+		Collections.reverse(reversed);
+		return Collections.unmodifiableList(reversed);
+	}
+
+	/**
+	 * Returns the number of paths in the cache.
+	 * 
+	 * @return the number of paths in the cache
+	 */
+	public synchronized int size() {
+		return paths.size();
+	}
+
+	/**
+	 * Gets the {@link #hits}.
+	 * 
+	 * @return the {@link #hits}
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Gets the {@link #misses}.
+	 * 
+	 * @return the {@link #misses}
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Key of a path in the cache, made of its ends.
+	 * 
+	 * @author Donato Rimenti
+	 */
+	private static final class Route {
+
+		/**
+		 * Packed coordinates of the first node.
+		 */
+		private final long start;
+
+		/**
+		 * Packed coordinates of the last node.
+		 */
+		private final long goal;
+
+		/**
+		 * Instantiates a new Route.
+		 * 
+		 * @param start
+		 *            the first node
+		 * @param goal
+		 *            the last node
+		 */
+		private Route(Node start, Node goal) {
+			this.start = NodePool.pack(start.x, start.y);
+			this.goal = NodePool.pack(goal.x, goal.y);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.lang.Object#hashCode()
+		 */
+		@Override
+		public int hashCode() {
+			return Long.hashCode(start) * 31 + Long.hashCode(goal);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.lang.Object#equals(java.lang.Object)
+		 */
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Route)) {
+				return false;
+			}
+			Route other = (Route) obj;
+			return start == other.start && goal == other.goal;
+		}
+
+	}
+
+}
@@ -23,14 +23,9 @@
  */
 package co.aurasphere.reply.challenge.training.model;
 
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
-
 /**
- * Contains the problem data. For simplicity, all fields are declared public and
- * static.
+ * Contains the constraints of the problem. The data of each problem is in a
+ * {@link Scene}.
  * 
  * @author Donato Rimenti
  */
@@ -43,28 +38,9 @@ public class ProblemStatement {
 	public static final int BOUND_CONSTRAINT = 1000000;
 
 	/**
-	 * The starting node.
-	 */
-	public static Node startingPoint;
-
-	/**
-	 * The ending node.
-	 */
-	public static Node endingPoint;
-
-	/**
-	 * The number of obstacles in the grid.
-	 */
-	public static int numberOfObstacles;
-
-	/**
-	 * Contains all the obstacle perimetrical points.
-	 */
-	public static final Set<Node> obstaclePoints = new HashSet<Node>();
-
-	/**
-	 * The list of obstacles in the grid.
+	 * Private constructor for utility class.
 	 */
-	public static final List<Obstacle> obstacles = new ArrayList<Obstacle>();
+	private ProblemStatement() {
+	}
 
-}
\ No newline at end of file
+}
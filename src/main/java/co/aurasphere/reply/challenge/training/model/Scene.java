@@ -0,0 +1,246 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.reply.challenge.training.model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A problem to solve: the terminal points and the obstacles, both as
+ * triangles and as the cells of their perimeter. A scene is never modified
+ * once created, so it can be shared by any number of concurrent searches;
+ * changes to the obstacle cells create a new scene.
+ * 
+ * @author Donato Rimenti
+ *
+ */
+public class Scene {
+
+	/**
+	 * The starting node.
+	 */
+	private final Node startingPoint;
+
+	/**
+	 * The ending node.
+	 */
+	private final Node endingPoint;
+
+	/**
+	 * The number of obstacles declared by the input file.
+	 */
+	private final int numberOfObstacles;
+
+	/**
+	 * The coordinates of the vertices of the obstacles, six for each one in
+	 * the order "x1 y1 x2 y2 x3 y3".
+	 */
+	private final int[] obstacleCoordinates;
+
+	/**
+	 * The obstacles, in the same order of their coordinates.
+	 */
+	private final List<Obstacle> obstacles;
+
+	/**
+	 * Spatial index over the {@link #obstacles}. Use this instead of
+	 * iterating the obstacles.
+	 */
+	private final ObstacleIndex obstacleIndex;
+
+	/**
+	 * Contains all the obstacle perimetrical points.
+	 */
+	private final OccupancyGrid obstaclePoints;
+
+	/**
+	 * Instantiates a new Scene. The arguments are not copied and must not be
+	 * modified afterwards.
+	 *
+	 * @param startingPoint
+	 *            the {@link #startingPoint}
+	 * @param endingPoint
+	 *            the {@link #endingPoint}
+	 * @param numberOfObstacles
+	 *            the {@link #numberOfObstacles}
+	 * @param obstacleCoordinates
+	 *            the {@link #obstacleCoordinates}
+	 * @param obstacles
+	 *            the {@link #obstacles}
+	 * @param obstacleIndex
+	 *            the {@link #obstacleIndex}
+	 * @param obstaclePoints
+	 *            the {@link #obstaclePoints}
+	 */
+	public Scene(Node startingPoint, Node endingPoint, int numberOfObstacles, int[] obstacleCoordinates,
+			List<Obstacle> obstacles, ObstacleIndex obstacleIndex, OccupancyGrid obstaclePoints) {
+		this.startingPoint = new Node(startingPoint.x, startingPoint.y);
+		this.endingPoint = new Node(endingPoint.x, endingPoint.y);
+		this.numberOfObstacles = numberOfObstacles;
+		this.obstacleCoordinates = obstacleCoordinates;
+		this.obstacles = Collections.unmodifiableList(obstacles);
+		this.obstacleIndex = obstacleIndex;
+		this.obstaclePoints = obstaclePoints;
+	}
+
+	/**
+	 * Returns a copy of this scene with different obstacle cells.
+	 *
+	 * @param obstaclePoints
+	 *            the new {@link #obstaclePoints}, which must not be modified
+	 *            afterwards
+	 * @return the new scene
+	 * @see #copyObstaclePoints()
+	 */
+	public Scene withObstaclePoints(OccupancyGrid obstaclePoints) {
+		return new Scene(startingPoint, endingPoint, numberOfObstacles, obstacleCoordinates, obstacles,
+				obstacleIndex, obstaclePoints);
+	}
+
+	/**
+	 * Checks that a pair of coordinates are not inside an obstacle and within
+	 * the grid boundary.
+	 *
+	 * @param x
+	 *            the x of the point to check
+	 * @param y
+	 *            the y of the point to check
+	 * @return true if the point is not inside an obstacle, false otherwise
+	 */
+	public boolean isValid(int x, int y) {
+		// Checks that the point is within the boundary.
+		if (x < -ProblemStatement.BOUND_CONSTRAINT || x > ProblemStatement.BOUND_CONSTRAINT
+				|| y < -ProblemStatement.BOUND_CONSTRAINT || y > ProblemStatement.BOUND_CONSTRAINT) {
+			return false;
+		}
+
+		// Checks that there's no obstacle obstructing the path.
+		return !obstaclePoints.contains(x, y);
+	}
+
+	/**
+	 * Checks if a point is on the perimeter of an obstacle.
+	 *
+	 * @param n
+	 *            the point to check
+	 * @return true if the point is an obstacle cell, false otherwise
+	 */
+	public boolean isObstaclePoint(Node n) {
+		return obstaclePoints.contains(n.x, n.y);
+	}
+
+	/**
+	 * Checks if any cell of a rectangle is an obstacle cell.
+	 *
+	 * @param minX
+	 *            the lowest x coordinate of the rectangle
+	 * @param minY
+	 *            the lowest y coordinate of the rectangle
+	 * @param maxX
+	 *            the highest x coordinate of the rectangle
+	 * @param maxY
+	 *            the highest y coordinate of the rectangle
+	 * @return true if the rectangle contains an obstacle cell, false
+	 *         otherwise
+	 */
+	public boolean hasObstaclePoints(int minX, int minY, int maxX, int maxY) {
+		return obstaclePoints.containsAny(minX, minY, maxX, maxY);
+	}
+
+	/**
+	 * Returns a copy of the {@link #obstaclePoints} which can be modified and
+	 * used for a new scene. The copy is an {@link OccupancyGrid#overlay()},
+	 * so it only copies the tiles it changes.
+	 *
+	 * @return a copy of the obstacle cells
+	 * @see #withObstaclePoints(OccupancyGrid)
+	 */
+	public OccupancyGrid copyObstaclePoints() {
+		return obstaclePoints.overlay();
+	}
+
+	/**
+	 * Returns the obstacle cells, which must not be modified.
+	 *
+	 * @return the {@link #obstaclePoints}
+	 */
+	OccupancyGrid getObstaclePoints() {
+		return obstaclePoints;
+	}
+
+	/**
+	 * Gets a copy of the {@link #startingPoint}.
+	 *
+	 * @return the {@link #startingPoint}
+	 */
+	public Node getStartingPoint() {
+		return new Node(startingPoint.x, startingPoint.y);
+	}
+
+	/**
+	 * Gets a copy of the {@link #endingPoint}.
+	 *
+	 * @return the {@link #endingPoint}
+	 */
+	public Node getEndingPoint() {
+		return new Node(endingPoint.x, endingPoint.y);
+	}
+
+	/**
+	 * Gets the {@link #numberOfObstacles}.
+	 *
+	 * @return the {@link #numberOfObstacles}
+	 */
+	public int getNumberOfObstacles() {
+		return numberOfObstacles;
+	}
+
+	/**
+	 * Gets the {@link #obstacleCoordinates}, which must not be modified.
+	 *
+	 * @return the {@link #obstacleCoordinates}
+	 */
+	public int[] getObstacleCoordinates() {
+		return obstacleCoordinates;
+	}
+
+	/**
+	 * Gets the {@link #obstacles}.
+	 *
+	 * @return the {@link #obstacles}
+	 */
+	public List<Obstacle> getObstacles() {
+		return obstacles;
+	}
+
+	/**
+	 * Gets the {@link #obstacleIndex}.
+	 *
+	 * @return the {@link #obstacleIndex}
+	 */
+	public ObstacleIndex getObstacleIndex() {
+		return obstacleIndex;
+	}
+
+}
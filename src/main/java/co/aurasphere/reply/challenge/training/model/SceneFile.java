@@ -0,0 +1,239 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.reply.challenge.training.model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary file containing a problem already parsed and rasterized, so that it
+ * can be loaded without any computation. The file contains, in this order
+ * and in big endian:
+ * <ul>
+ * <li>the {@link #MAGIC} number and the {@link #VERSION} of the format</li>
+ * <li>the coordinates of the starting and ending point and the number of
+ * obstacles declared</li>
+ * <li>the number of obstacle coordinates, followed by the coordinates</li>
+ * <li>the cells of the {@link ObstacleIndex}: their size (0 if the index is
+ * not stored), the length and the content of the cell starts and the length
+ * and the content of the cell obstacles</li>
+ * <li>the number of cells of the {@link OccupancyGrid}, the number of its
+ * tiles and their keys</li>
+ * <li>the words of the tiles, 64 for each tile, aligned to 8 bytes</li>
+ * </ul>
+ * The tiles are the largest part of the file, so they're not loaded: they're
+ * memory mapped, read only, and used directly by the loaded grid. Several
+ * processes loading the same file share the same pages.
+ * 
+ * @author Donato Rimenti
+ *
+ */
+public class SceneFile {
+
+	/**
+	 * Extension of the scene files.
+	 */
+	public static final String EXTENSION = ".scene";
+
+	/**
+	 * First bytes of a scene file, "SCNE" in ASCII.
+	 */
+	private static final int MAGIC = 0x53434E45;
+
+	/**
+	 * Version of the format written by this class.
+	 */
+	private static final int VERSION = 1;
+
+	/**
+	 * Private constructor for utility class.
+	 */
+	private SceneFile() {
+	}
+
+	/**
+	 * Writes a scene to a file. The file is written next to the destination
+	 * and then moved in place, so that a process loading it never sees it
+	 * incomplete.
+	 * 
+	 * @param scene
+	 *            the scene to write
+	 * @param path
+	 *            the destination file
+	 * @throws IOException
+	 *             if the file can't be written
+	 */
+	public static void compile(Scene scene, Path path) throws IOException {
+		int[] coordinates = scene.getObstacleCoordinates();
+		ObstacleIndex index = scene.getObstacleIndex();
+		OccupancyGrid grid = scene.getObstaclePoints();
+		Node startingPoint = scene.getStartingPoint();
+		Node endingPoint = scene.getEndingPoint();
+		int[] tileKeys = grid.getTileKeys();
+		int cellCount = index == null ? 0 : index.getCellCount() + 1;
+		int cellObstacleCount = index == null ? 0 : index.getCellStart(index.getCellCount());
+
+		long headerSize = 4L * (8 + coordinates.length + 3 + cellCount + cellObstacleCount) + 8 + 4
+				+ 4L * tileKeys.length;
+		long tilesOffset = (headerSize + 7) / 8 * 8;
+		long size = tilesOffset + 8L * 64 * tileKeys.length;
+
+		Path absolute = path.toAbsolutePath();
+		Path temporary = absolute.resolveSibling(absolute.getFileName() + "." + System.nanoTime() + ".tmp");
+		try {
+			try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE_NEW,
+					StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+				MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+				buffer.putInt(MAGIC);
+				buffer.putInt(VERSION);
+				buffer.putInt(startingPoint.x);
+				buffer.putInt(startingPoint.y);
+				buffer.putInt(endingPoint.x);
+				buffer.putInt(endingPoint.y);
+				buffer.putInt(scene.getNumberOfObstacles());
+				buffer.putInt(coordinates.length);
+				buffer.asIntBuffer().put(coordinates);
+				buffer.position(buffer.position() + 4 * coordinates.length);
+
+				// The index cells.
+				buffer.putInt(index == null ? 0 : index.getCellSize());
+				buffer.putInt(cellCount);
+				for (int i = 0; i < cellCount; i++) {
+					buffer.putInt(index.getCellStart(i));
+				}
+				buffer.putInt(cellObstacleCount);
+				for (int i = 0; i < cellObstacleCount; i++) {
+					buffer.putInt(index.getCellObstacle(i));
+				}
+
+				// The grid tiles.
+				buffer.putLong(grid.size());
+				buffer.putInt(tileKeys.length);
+				buffer.asIntBuffer().put(tileKeys);
+				buffer.position(buffer.position() + 4 * tileKeys.length);
+				buffer.position((buffer.position() + 7) / 8 * 8);
+				LongBuffer tiles = buffer.asLongBuffer();
+				for (int key : tileKeys) {
+					grid.copyTile(key, tiles);
+				}
+				buffer.force();
+			}
+			move(temporary, absolute);
+		} finally {
+			Files.deleteIfExists(temporary);
+		}
+	}
+
+	/**
+	 * Moves a file, atomically if supported.
+	 * 
+	 * @param source
+	 *            the file to move
+	 * @param target
+	 *            the destination of the file
+	 * @throws IOException
+	 *             if the file can't be moved
+	 */
+	private static void move(Path source, Path target) throws IOException {
+		try {
+			Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Loads a scene file.
+	 * 
+	 * @param path
+	 *            the scene file
+	 * @return the loaded scene
+	 * @throws IOException
+	 *             if the file can't be read or it's not a valid scene file
+	 */
+	public static Scene load(Path path) throws IOException {
+		MappedByteBuffer buffer;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			// The mapping stays valid after the channel is closed.
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		if (buffer.limit() < 8 || buffer.getInt() != MAGIC) {
+			throw new IOException("Not a scene file: " + path);
+		}
+		int version = buffer.getInt();
+		if (version != VERSION) {
+			throw new IOException("Unsupported scene file version " + version + ": " + path);
+		}
+
+		Node startingPoint = new Node(buffer.getInt(), buffer.getInt());
+		Node endingPoint = new Node(buffer.getInt(), buffer.getInt());
+		int numberOfObstacles = buffer.getInt();
+		int[] coordinates = getInts(buffer);
+		int cellSize = buffer.getInt();
+		int[] cellStart = getInts(buffer);
+		int[] cellObstacles = getInts(buffer);
+		long cellCount = buffer.getLong();
+		int[] tileKeys = getInts(buffer);
+		buffer.position((buffer.position() + 7) / 8 * 8);
+		if (buffer.remaining() != 8L * 64 * tileKeys.length) {
+			throw new IOException("Truncated scene file: " + path);
+		}
+		LongBuffer tiles = buffer.slice().asLongBuffer();
+
+		List<Obstacle> obstacles = new ArrayList<Obstacle>(coordinates.length / 6);
+		for (int i = 0; i < coordinates.length; i += 6) {
+			obstacles.add(new Obstacle(coordinates[i], coordinates[i + 1], coordinates[i + 2], coordinates[i + 3],
+					coordinates[i + 4], coordinates[i + 5]));
+		}
+		ObstacleIndex index = cellSize == 0 ? new ObstacleIndex(obstacles)
+				: new ObstacleIndex(obstacles, cellSize, cellStart, cellObstacles);
+		return new Scene(startingPoint, endingPoint, numberOfObstacles, coordinates, obstacles, index,
+				new OccupancyGrid(tiles, tileKeys, cellCount));
+	}
+
+	/**
+	 * Reads an array of integers, preceded by its length.
+	 * 
+	 * @param buffer
+	 *            the buffer to read from
+	 * @return the array
+	 */
+	private static int[] getInts(ByteBuffer buffer) {
+		int[] values = new int[buffer.getInt()];
+		buffer.asIntBuffer().get(values);
+		buffer.position(buffer.position() + 4 * values.length);
+		return values;
+	}
+
+}
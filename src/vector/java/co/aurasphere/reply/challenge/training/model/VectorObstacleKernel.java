@@ -0,0 +1,81 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 Donato Rimenti
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package co.aurasphere.reply.challenge.training.model;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link ObstacleKernel} based on the JDK Vector API, which tests as many
+ * bounding boxes per instruction as the int lanes of the widest vectors of
+ * the CPU. The Vector API is an incubator module, compiled here against
+ * Java 17, so this class is compiled separately from the rest of the
+ * solution, and only when building with JDK 17 or later.
+ * {@link ObstacleColumns} loads it by name if the module has been added to
+ * the JVM with {@code --add-modules jdk.incubator.vector}.
+ * 
+ * @author Donato Rimenti
+ *
+ */
+final class VectorObstacleKernel implements ObstacleKernel {
+
+	/**
+	 * The widest int vectors of the CPU.
+	 */
+	private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * co.aurasphere.reply.challenge.training.model.ObstacleKernel#overlaps(int[],
+	 * int, int, int, int, int, int, int, int, int)
+	 */
+	@Override
+	public long overlaps(int[] data, int minX, int maxX, int minY, int maxY, int count, int boxMinX, int boxMinY,
+			int boxMaxX, int boxMaxY) {
+		long result = 0;
+		int i = 0;
+		for (int bound = SPECIES.loopBound(count); i < bound; i += SPECIES.length()) {
+			VectorMask<Integer> overlap = IntVector.fromArray(SPECIES, data, minX + i)
+					.compare(VectorOperators.LE, boxMaxX)
+					.and(IntVector.fromArray(SPECIES, data, maxX + i).compare(VectorOperators.GE, boxMinX))
+					.and(IntVector.fromArray(SPECIES, data, minY + i).compare(VectorOperators.LE, boxMaxY))
+					.and(IntVector.fromArray(SPECIES, data, maxY + i).compare(VectorOperators.GE, boxMinY));
+			result |= overlap.toLong() << i;
+		}
+
+		// The obstacles left don't fill a vector.
+		for (; i < count; i++) {
+			if ((data[minX + i] <= boxMaxX) & (data[maxX + i] >= boxMinX) & (data[minY + i] <= boxMaxY)
+					& (data[maxY + i] >= boxMinY)) {
+				result |= 1L << i;
+			}
+		}
+		return result;
+	}
+
+}